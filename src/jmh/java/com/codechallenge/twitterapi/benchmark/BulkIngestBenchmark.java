@@ -0,0 +1,94 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.codechallenge.twitterapi.dto.NewPostDTO;
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.service.FollowGraph;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostRepositoryImpl;
+import com.codechallenge.twitterapi.service.PostService;
+import com.codechallenge.twitterapi.service.PostServiceImpl;
+import com.codechallenge.twitterapi.service.TimelineRepositoryImpl;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions.OverflowPolicy;
+import com.codechallenge.twitterapi.service.UserNameDictionary;
+import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserRepositoryImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Ingest throughput in posts per second of a batch of {@value #BATCH_SIZE} posts by skewed popular users, published
+ * one by one through {@code addNewPost} or at once through {@code addNewPosts}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BulkIngestBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({ "10000" })
+    private int users;
+
+    @Param({ "10" })
+    private int averageFollows;
+
+    private PostService postService;
+
+    private List<NewPostDTO> batch;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        UserNameDictionary userNames = new UserNameDictionary();
+        MutationPublisher mutations = new MutationPublisher();
+        UserRepository userRepository = new UserRepositoryImpl(new FollowGraph(userNames), userNames, mutations);
+        PostRepository postRepository = new PostRepositoryImpl(userNames, mutations);
+        postService = new PostServiceImpl(postRepository, userRepository, new TimelineRepositoryImpl(200,
+                64 << 20), new TimelineSubscriptions(256, OverflowPolicy.DISCONNECT, 1, 0), new SimpleMeterRegistry());
+
+        SyntheticData data = new SyntheticData(users);
+        data.populate(userRepository, postRepository, averageFollows, users, 42);
+        Random random = new Random(7);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new NewPostDTO(data.popularUserName(random), "post " + i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void addNewPost(Blackhole blackhole) {
+        for (NewPostDTO newPost : batch) {
+            blackhole.consume(postService.addNewPost(newPost.getText(), newPost.getUserName()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<PostDTO> addNewPosts() {
+        return postService.addNewPosts(batch);
+    }
+}
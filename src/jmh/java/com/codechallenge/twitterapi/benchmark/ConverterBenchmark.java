@@ -0,0 +1,65 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.dto.UserDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.utils.PostPojo2DtoConverter;
+import com.codechallenge.twitterapi.utils.UserPojoToDtoConverter;
+
+/**
+ * Cost of converting a page, a full inbox and a long list of posts and users to DTOs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConverterBenchmark {
+    @Param({ "20", "200", "10000" })
+    private int size;
+
+    private List<Post> posts;
+
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        posts = new ArrayList<>(size);
+        users = new ArrayList<>(size);
+        LocalDateTime dateTime = LocalDateTime.of(2018, 3, 24, 0, 0);
+        for (int i = 0; i < size; i++) {
+            User user = new User("user" + i);
+            users.add(user);
+            posts.add(new Post(i + 1, "Lorem ipsum dolor sit amet " + i, user, dateTime.plusSeconds(i)));
+        }
+    }
+
+    @Benchmark
+    public List<PostDTO> convertPosts() {
+        return PostPojo2DtoConverter.convert(posts);
+    }
+
+    @Benchmark
+    public List<UserDTO> convertUsers() {
+        return UserPojoToDtoConverter.convert(users);
+    }
+}
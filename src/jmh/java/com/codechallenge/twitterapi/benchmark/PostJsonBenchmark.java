@@ -0,0 +1,82 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.utils.PostJsonEncoder;
+import com.codechallenge.twitterapi.utils.PostPojo2DtoConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Cost of writing a page of posts as JSON: converting to DTOs and serializing them with Jackson against copying the
+ * fragments encoded when the posts were saved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PostJsonBenchmark {
+    @Param({ "20", "200" })
+    private int size;
+
+    private List<Post> posts;
+
+    private ObjectMapper objectMapper;
+
+    private PostJsonEncoder encoder;
+
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        encoder = new PostJsonEncoder(objectMapper);
+        posts = new ArrayList<>(size);
+        LocalDateTime dateTime = LocalDateTime.of(2018, 3, 24, 0, 0);
+        for (int i = 0; i < size; i++) {
+            Post post = new Post(i + 1, "Lorem ipsum dolor sit amet " + i, new User("user" + i),
+                    dateTime.plusSeconds(i));
+            encoder.encode(post);
+            posts.add(post);
+        }
+        output = new ByteArrayOutputStream(size * 128);
+    }
+
+    @Benchmark
+    public int serializeDtos() throws IOException {
+        output.reset();
+        objectMapper.writeValue(output, PostPojo2DtoConverter.convert(posts));
+        return output.size();
+    }
+
+    @Benchmark
+    public int writeEncodedPosts() throws IOException {
+        output.reset();
+        encoder.writeArray(posts, output);
+        return output.size();
+    }
+}
@@ -0,0 +1,92 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.ColumnarPostRepository;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostRepositoryImpl;
+import com.codechallenge.twitterapi.service.UserNameDictionary;
+
+/**
+ * Throughput of concurrent writers and readers of the post repository. Run with {@code -t 1}, {@code -t 2},
+ * {@code -t 4}... to see how {@code save} scales with the number of cores, and with {@code -prof gc} to compare the
+ * allocation rate of the heap and columnar storage modes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PostRepositoryBenchmark {
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2018, 3, 24, 0, 0);
+
+    @Param({ "1000" })
+    private int users;
+
+    @Param({ "heap", "columnar" })
+    private String storage;
+
+    private PostRepository postRepository;
+
+    private User[] authors;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        UserNameDictionary userNames = new UserNameDictionary();
+        MutationPublisher mutations = new MutationPublisher();
+        postRepository = "columnar".equals(storage) ? new ColumnarPostRepository(userNames, mutations, false)
+                : new PostRepositoryImpl(userNames, mutations);
+        authors = new User[users];
+        for (int i = 0; i < users; i++) {
+            authors[i] = new User("user" + i);
+            postRepository.save(new Post("post", authors[i], DATE_TIME));
+        }
+    }
+
+    @Benchmark
+    public Post save() {
+        return postRepository.save(new Post("post", randomAuthor(), DATE_TIME));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Post mixedSave() {
+        return save();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Post mixedRead() {
+        List<Post> posts = postRepository.findByUserName(randomAuthor().getName());
+        return posts.get(posts.size() - 1);
+    }
+
+    private User randomAuthor() {
+        return authors[ThreadLocalRandom.current()
+                .nextInt(users)];
+    }
+}
@@ -0,0 +1,140 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostMergeIterator;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostRepositoryImpl;
+import com.codechallenge.twitterapi.service.PostSearchIndex;
+import com.codechallenge.twitterapi.service.UserNameDictionary;
+
+/**
+ * A page of 20 posts matching a query, from the search index and from a scan of the posts of every user, which is
+ * what a client had to do without the index. Words of the posts follow a Zipf distribution over the vocabulary:
+ * {@code common} is the most frequent word, {@code rare} appears in about one post of a thousand and {@code both}
+ * asks for a frequent word and a rare one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PostSearchBenchmark {
+    private static final int USERS = 1000;
+
+    private static final int VOCABULARY = 10000;
+
+    private static final int WORDS_PER_POST = 12;
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "100000" })
+    private int posts;
+
+    @Param({ "common", "rare", "both" })
+    private String query;
+
+    private String queryText;
+
+    private PostRepository postRepository;
+
+    private PostSearchIndex searchIndex;
+
+    @Setup
+    public void setUp() {
+        UserNameDictionary userNames = new UserNameDictionary();
+        MutationPublisher mutations = new MutationPublisher();
+        postRepository = new PostRepositoryImpl(userNames, mutations);
+        searchIndex = new PostSearchIndex(postRepository, userNames, mutations);
+
+        double[] frequency = new double[VOCABULARY];
+        double sum = 0;
+        for (int rank = 0; rank < VOCABULARY; rank++) {
+            sum += 1.0 / (rank + 1);
+            frequency[rank] = sum;
+        }
+        Random random = new Random(42);
+        LocalDateTime dateTime = LocalDateTime.of(2018, 3, 24, 0, 0);
+        for (int i = 0; i < posts; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int words = 0; words < WORDS_PER_POST; words++) {
+                int rank = Arrays.binarySearch(frequency, random.nextDouble() * sum);
+                text.append("w")
+                        .append(Math.min(rank >= 0 ? rank : -rank - 1, VOCABULARY - 1))
+                        .append(' ');
+            }
+            postRepository.save(new Post(text.toString(), new User("user" + random.nextInt(USERS)),
+                    dateTime.plusSeconds(i)));
+        }
+
+        switch (query) {
+        case "common":
+            queryText = "w0";
+            break;
+        case "rare":
+            queryText = "w1000";
+            break;
+        case "both":
+            queryText = "w0 w1000";
+            break;
+        default:
+            throw new IllegalArgumentException(query);
+        }
+    }
+
+    @Benchmark
+    public List<Post> searchIndex() {
+        return searchIndex.search(queryText, PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public List<Post> scanAllPosts() {
+        List<List<Post>> postsOfUsers = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            postsOfUsers.add(postRepository.findByUserName("user" + i));
+        }
+        String[] words = queryText.split(" ");
+        List<Post> page = new ArrayList<>(PAGE_SIZE);
+        for (PostMergeIterator iterator = PostMergeIterator.newestFirst(postsOfUsers); iterator.hasNext()
+                && page.size() < PAGE_SIZE;) {
+            Post post = iterator.next();
+            if (containsAll(post.getText(), words)) {
+                page.add(post);
+            }
+        }
+        return page;
+    }
+
+    private static boolean containsAll(String text, String[] words) {
+        List<String> textWords = Arrays.asList(text.toLowerCase(Locale.ROOT)
+                .split("\\W+"));
+        for (String word : words) {
+            if (!textWords.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
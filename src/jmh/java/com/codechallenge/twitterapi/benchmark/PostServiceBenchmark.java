@@ -0,0 +1,107 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.service.FollowGraph;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostRepositoryImpl;
+import com.codechallenge.twitterapi.service.PostService;
+import com.codechallenge.twitterapi.service.PostServiceImpl;
+import com.codechallenge.twitterapi.service.TimelineRepositoryImpl;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions.OverflowPolicy;
+import com.codechallenge.twitterapi.service.UserNameDictionary;
+import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserRepositoryImpl;
+import com.codechallenge.twitterapi.utils.UserPojoToDtoConverter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Latency of the post service on a {@link SyntheticData} set. Posts are written by, and histories read from, the
+ * skewed popular users; timelines are read for uniformly chosen users.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PostServiceBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "1000", "10000" })
+    private int users;
+
+    @Param({ "10", "100" })
+    private int averageFollows;
+
+    @Param({ "100000" })
+    private int posts;
+
+    @Param({ "200" })
+    private int inboxCapacity;
+
+    @Param({ "67108864" })
+    private long cacheBudgetBytes;
+
+    private SyntheticData data;
+
+    private UserRepository userRepository;
+
+    private PostService postService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserNameDictionary userNames = new UserNameDictionary();
+        MutationPublisher mutations = new MutationPublisher();
+        userRepository = new UserRepositoryImpl(new FollowGraph(userNames), userNames, mutations);
+        PostRepository postRepository = new PostRepositoryImpl(userNames, mutations);
+        TimelineRepositoryImpl timelineRepository = new TimelineRepositoryImpl(inboxCapacity, cacheBudgetBytes);
+        postService = new PostServiceImpl(postRepository, userRepository, timelineRepository,
+                new TimelineSubscriptions(256, OverflowPolicy.DISCONNECT, 1, 0), new SimpleMeterRegistry());
+
+        data = new SyntheticData(users);
+        data.populate(userRepository, postRepository, averageFollows, posts, 42);
+    }
+
+    @Benchmark
+    public PostDTO addNewPost() {
+        return postService.addNewPost("post", data.popularUserName(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<PostDTO> findByUserName() {
+        return postService.findByUserName(data.popularUserName(ThreadLocalRandom.current()), PAGE_SIZE, null,
+                null);
+    }
+
+    @Benchmark
+    public List<PostDTO> findPostsByUsers() {
+        String userName = data.anyUserName(ThreadLocalRandom.current());
+        return postService.findPostsByUsers(UserPojoToDtoConverter.convert(userRepository.findAllFollowedUsers(
+                userName)));
+    }
+
+    @Benchmark
+    public List<PostDTO> findTimeline() {
+        return postService.findTimeline(data.anyUserName(ThreadLocalRandom.current()), PAGE_SIZE, null, null);
+    }
+}
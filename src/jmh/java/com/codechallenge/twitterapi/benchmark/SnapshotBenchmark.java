@@ -0,0 +1,113 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.persistence.SnapshotFile;
+import com.codechallenge.twitterapi.service.ColumnarPostRepository;
+import com.codechallenge.twitterapi.service.FollowGraph;
+import com.codechallenge.twitterapi.service.MutationApplier;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostRepositoryImpl;
+import com.codechallenge.twitterapi.service.UserNameDictionary;
+import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserRepositoryImpl;
+
+/**
+ * Startup time: loading a snapshot of {@code users} users following 10 users each and posting
+ * {@code postsPerUser} posts each into empty repositories.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class SnapshotBenchmark {
+    private static final int FOLLOWED_USERS = 10;
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2018, 3, 24, 0, 0);
+
+    @Param({ "100000" })
+    private int users;
+
+    @Param({ "10" })
+    private int postsPerUser;
+
+    @Param({ "heap", "columnar" })
+    private String storage;
+
+    private Path snapshot;
+
+    private UserRepository userRepository;
+
+    private PostRepository postRepository;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        createRepositories();
+        Random random = new Random(42);
+        User[] allUsers = new User[users];
+        for (int i = 0; i < users; i++) {
+            allUsers[i] = userRepository.save(new User("user" + i));
+        }
+        for (User user : allUsers) {
+            for (int i = 0; i < FOLLOWED_USERS; i++) {
+                userRepository.follow(user, allUsers[random.nextInt(users)]);
+            }
+        }
+        for (int i = 0; i < postsPerUser; i++) {
+            for (User user : allUsers) {
+                postRepository.save(new Post("Lorem ipsum dolor sit amet, consectetur adipiscing elit", user,
+                        DATE_TIME.plusSeconds(i)));
+            }
+        }
+
+        snapshot = Files.createTempFile("snapshot", ".bin");
+        SnapshotFile.write(snapshot, 0, userRepository, postRepository);
+    }
+
+    @Setup(Level.Iteration)
+    public void createRepositories() {
+        userRepository = null;
+        postRepository = null;
+        System.gc();
+
+        UserNameDictionary userNames = new UserNameDictionary();
+        MutationPublisher mutations = new MutationPublisher();
+        userRepository = new UserRepositoryImpl(new FollowGraph(userNames), userNames, mutations);
+        postRepository = "columnar".equals(storage) ? new ColumnarPostRepository(userNames, mutations, false)
+                : new PostRepositoryImpl(userNames, mutations);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public long load() throws IOException {
+        return SnapshotFile.read(snapshot, new MutationApplier(userRepository, postRepository));
+    }
+}
@@ -0,0 +1,90 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+/**
+ * Repeatable synthetic data set. Followed users and post authors are drawn from a Zipf distribution over the
+ * users, so a few users get most of the followers and write most of the posts, and the number of users each user
+ * follows has a Pareto tail.
+ */
+final class SyntheticData {
+    private static final double POPULARITY_EXPONENT = 1.0;
+
+    private static final double FOLLOWS_TAIL_INDEX = 2.0;
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2018, 3, 24, 0, 0);
+
+    private final String[] userNames;
+
+    private final double[] popularity;
+
+    SyntheticData(int users) {
+        userNames = new String[users];
+        for (int i = 0; i < users; i++) {
+            userNames[i] = "user" + i;
+        }
+        popularity = new double[users];
+        double sum = 0;
+        for (int rank = 0; rank < users; rank++) {
+            sum += 1 / Math.pow(rank + 1, POPULARITY_EXPONENT);
+            popularity[rank] = sum;
+        }
+        for (int rank = 0; rank < users; rank++) {
+            popularity[rank] /= sum;
+        }
+    }
+
+    /**
+     * Saves every user, lets each of them follow {@code averageFollows} users on average and saves {@code posts}
+     * posts, oldest first.
+     */
+    void populate(UserRepository userRepository, PostRepository postRepository, int averageFollows, int posts,
+            long seed) {
+        Random random = new Random(seed);
+        User[] users = new User[userNames.length];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userRepository.save(new User(userNames[i]));
+        }
+
+        // a Pareto distribution with tail index 2 has a mean of 2
+        double scale = averageFollows / (FOLLOWS_TAIL_INDEX / (FOLLOWS_TAIL_INDEX - 1));
+        for (User user : users) {
+            double pareto = Math.pow(1 - random.nextDouble(), -1 / FOLLOWS_TAIL_INDEX);
+            int follows = (int) Math.min(users.length - 1, Math.round(scale * pareto));
+            for (int i = 0; i < follows; i++) {
+                User followedUser = users[popular(random)];
+                if (followedUser != user) {
+                    userRepository.follow(user, followedUser);
+                }
+            }
+        }
+
+        for (int i = 0; i < posts; i++) {
+            postRepository.save(new Post("Lorem ipsum dolor sit amet " + i, users[popular(random)],
+                    DATE_TIME.plusSeconds(i)));
+        }
+    }
+
+    /**
+     * Returns a user name drawn with the same skew as the post authors and followed users.
+     */
+    String popularUserName(Random random) {
+        return userNames[popular(random)];
+    }
+
+    String anyUserName(Random random) {
+        return userNames[random.nextInt(userNames.length)];
+    }
+
+    private int popular(Random random) {
+        int index = Arrays.binarySearch(popularity, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, popularity.length - 1);
+    }
+}
@@ -0,0 +1,122 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostMergeIterator;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostRepositoryImpl;
+import com.codechallenge.twitterapi.service.TieredPostRepository;
+import com.codechallenge.twitterapi.service.UserNameDictionary;
+
+/**
+ * A page of 20 posts of one user in the heap and tiered storage modes, from the newest post and from a random point
+ * deep in the history. In the tiered mode only the newest 100 posts of a user stay on the heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TieredStorageBenchmark {
+    private static final int USERS = 1000;
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "1000" })
+    private int postsPerUser;
+
+    @Param({ "heap", "tiered" })
+    private String storage;
+
+    private PostRepository postRepository;
+
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        UserNameDictionary userNames = new UserNameDictionary();
+        MutationPublisher mutations = new MutationPublisher();
+        directory = Files.createTempDirectory("cold");
+        TieredPostRepository tieredRepository = null;
+        if ("tiered".equals(storage)) {
+            tieredRepository = new TieredPostRepository(userNames, mutations, directory.toString(), 100,
+                    Long.MAX_VALUE / 2, 64 << 20, 0);
+            postRepository = tieredRepository;
+        } else {
+            postRepository = new PostRepositoryImpl(userNames, mutations);
+        }
+
+        LocalDateTime dateTime = LocalDateTime.now()
+                .minusHours(1);
+        for (int i = 0; i < postsPerUser; i++) {
+            for (int user = 0; user < USERS; user++) {
+                postRepository.save(new Post("post number " + i + " of a user who writes about benchmarks",
+                        new User("user" + user), dateTime));
+            }
+        }
+        if (tieredRepository != null) {
+            tieredRepository.moveColdPosts();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (postRepository instanceof TieredPostRepository) {
+            ((TieredPostRepository) postRepository).close();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public List<Post> newestPage() {
+        return page(Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Post> deepPage() {
+        return page(ThreadLocalRandom.current()
+                .nextLong((long) USERS * postsPerUser / 2));
+    }
+
+    private List<Post> page(long before) {
+        List<Post> posts = postRepository.findByUserName("user" + ThreadLocalRandom.current()
+                .nextInt(USERS));
+        List<Post> page = new ArrayList<>(PAGE_SIZE);
+        for (PostMergeIterator iterator = new PostMergeIterator(Collections.singletonList(posts), before, 0); iterator
+                .hasNext() && page.size() < PAGE_SIZE;) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+}
@@ -0,0 +1,66 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.dto.TrendsDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.TrendTracker;
+
+/**
+ * Counting the tags of a post and reading the trends, after a million posts with tags drawn from a vocabulary of
+ * {@code distinctTags}. The cost of both stays flat as the vocabulary grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TrendTrackerBenchmark {
+    private static final User USER = new User("user");
+
+    @Param({ "1000", "1000000" })
+    private int distinctTags;
+
+    private TrendTracker trendTracker;
+
+    @Setup
+    public void setUp() {
+        trendTracker = new TrendTracker(new MutationPublisher(), 2048, 100);
+        for (int i = 0; i < 1000000; i++) {
+            trendTracker.onPostSaved(newPost());
+        }
+    }
+
+    @Benchmark
+    public void countTags() {
+        trendTracker.onPostSaved(newPost());
+    }
+
+    @Benchmark
+    public TrendsDTO findTrends() {
+        return trendTracker.findTrends(10);
+    }
+
+    private Post newPost() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Post(1, "posting about #tag" + random.nextInt(distinctTags) + " with @user" + random.nextInt(100),
+                USER, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,84 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.FollowGraph;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepositoryImpl;
+import com.codechallenge.twitterapi.service.UserNameDictionary;
+import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserRepositoryImpl;
+
+/**
+ * Latency of the user lookups on a {@link SyntheticData} follow graph, for uniformly chosen users.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UserRepositoryBenchmark {
+    @Param({ "10000", "100000" })
+    private int users;
+
+    @Param({ "10", "100" })
+    private int averageFollows;
+
+    private SyntheticData data;
+
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserNameDictionary userNames = new UserNameDictionary();
+        MutationPublisher mutations = new MutationPublisher();
+        userRepository = new UserRepositoryImpl(new FollowGraph(userNames), userNames, mutations);
+
+        data = new SyntheticData(users);
+        data.populate(userRepository, new PostRepositoryImpl(userNames, mutations), averageFollows, 0, 42);
+    }
+
+    @Benchmark
+    public Optional<User> findByName() {
+        return userRepository.findByName(data.anyUserName(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public Optional<User> findByNameInAnotherCase() {
+        return userRepository.findByName(data.anyUserName(ThreadLocalRandom.current())
+                .toUpperCase());
+    }
+
+    @Benchmark
+    public List<User> findAllFollowedUsers() {
+        return userRepository.findAllFollowedUsers(data.anyUserName(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<User> findAllFollowers() {
+        return userRepository.findAllFollowers(data.anyUserName(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public int countFollowers() {
+        return userRepository.countFollowers(data.anyUserName(ThreadLocalRandom.current()));
+    }
+}
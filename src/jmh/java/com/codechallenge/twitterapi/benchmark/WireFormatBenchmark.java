@@ -0,0 +1,125 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.utils.BinaryMappers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+
+/**
+ * Encoding and decoding a timeline of 1,000 posts in each representation of the API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WireFormatBenchmark {
+    private static final int TIMELINE_SIZE = 1000;
+
+    @Param({ "json", "smile", "cbor", "protobuf" })
+    private String format;
+
+    private List<PostDTO> timeline;
+
+    private Object message;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        LocalDateTime dateTime = LocalDateTime.of(2018, 3, 24, 0, 0);
+        timeline = new ArrayList<>(TIMELINE_SIZE);
+        for (int i = TIMELINE_SIZE; i > 0; i--) {
+            StringBuilder text = new StringBuilder();
+            for (int words = 3 + random.nextInt(20); words > 0; words--) {
+                text.append("lorem ipsum dolor sit amet".split(" ")[random.nextInt(5)])
+                        .append(' ');
+            }
+            timeline.add(new PostDTO(i, text.toString(), "user" + random.nextInt(100),
+                    dateTime.plusSeconds(i * 7L)));
+        }
+
+        message = timeline;
+        TypeReference<List<PostDTO>> listOfPosts = new TypeReference<List<PostDTO>>() {
+        };
+        switch (format) {
+        case "json":
+            ObjectMapper json = Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+            writer = json.writer();
+            reader = json.readerFor(listOfPosts);
+            break;
+        case "smile":
+            writer = BinaryMappers.smile()
+                    .writer();
+            reader = BinaryMappers.smile()
+                    .readerFor(listOfPosts);
+            break;
+        case "cbor":
+            writer = BinaryMappers.cbor()
+                    .writer();
+            reader = BinaryMappers.cbor()
+                    .readerFor(listOfPosts);
+            break;
+        case "protobuf":
+            ProtobufSchema schema = BinaryMappers.protobufSchema()
+                    .withRootType("Posts");
+            message = Collections.singletonMap("posts", timeline);
+            writer = BinaryMappers.protobuf()
+                    .writer(schema);
+            reader = BinaryMappers.protobuf()
+                    .readerFor(PostsMessage.class)
+                    .with(schema);
+            break;
+        default:
+            throw new IllegalArgumentException(format);
+        }
+        encoded = writer.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return reader.readValue(encoded);
+    }
+
+    public static class PostsMessage {
+        public List<PostDTO> posts;
+    }
+}
@@ -0,0 +1,76 @@
+package com.codechallenge.twitterapi.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.persistence.WriteAheadLog;
+
+/**
+ * Post append throughput of the write-ahead log under each sync policy: {@code record} forces every record to disk,
+ * {@code batch} every 100 records, {@code interval} every 10 ms from the background thread and {@code none} leaves it
+ * to the operating system.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WriteAheadLogBenchmark {
+    private static final User AUTHOR = new User("user");
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2018, 3, 24, 0, 0);
+
+    @Param({ "record", "batch", "interval", "none" })
+    private String sync;
+
+    private Path directory;
+
+    private WriteAheadLog log;
+
+    private long id;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        int syncEveryRecords = "record".equals(sync) ? 1 : "batch".equals(sync) ? 100 : 0;
+        long syncIntervalMillis = "interval".equals(sync) ? 10 : 0;
+        log = new WriteAheadLog(directory, 64 * 1024 * 1024, syncEveryRecords, syncIntervalMillis);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach(path -> path.toFile()
+                            .delete());
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        log.onPostSaved(new Post(++id, "post", AUTHOR, DATE_TIME));
+    }
+}
@@ -1,12 +1,28 @@
 package com.codechallenge.twitterapi;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
 
 @SpringBootApplication
 public class TwitterApiApplication {
-    
+	static final String REACTIVE_PROFILE = "reactive";
+
 	public static void main(String[] args) {
-		SpringApplication.run(TwitterApiApplication.class, args);
+		SpringApplication application = new SpringApplication(TwitterApiApplication.class);
+		if (isReactiveProfileActive(args)) {
+			// the type decides which environment is created, so it cannot come from the profile's properties
+			application.setWebApplicationType(WebApplicationType.REACTIVE);
+		}
+		application.run(args);
+	}
+
+	static boolean isReactiveProfileActive(String[] args) {
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources()
+				.addFirst(new SimpleCommandLinePropertySource(args));
+		return environment.acceptsProfiles(REACTIVE_PROFILE);
 	}
 }
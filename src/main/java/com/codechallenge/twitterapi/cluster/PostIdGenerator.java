@@ -0,0 +1,61 @@
+package com.codechallenge.twitterapi.cluster;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Draws post ids that are unique and ordered by publishing time across the nodes of a partitioned deployment, so
+ * they still work as cursors once the timelines are merged from several nodes: the milliseconds since 2018 in the
+ * high bits and the node index in the low {@link #NODE_BITS}. A node publishing more than 4096 posts in one
+ * millisecond borrows ids from the next one. On a single node the repository numbers the posts itself.
+ */
+@Component
+public class PostIdGenerator {
+    static final int NODE_BITS = 10;
+
+    private static final int TIME_SHIFT = 22;
+
+    private static final long EPOCH_MILLIS = 1514764800000L;
+
+    private final ShardRing shardRing;
+
+    private final Clock clock;
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Autowired
+    public PostIdGenerator(ShardRing shardRing) {
+        this(shardRing, Clock.systemUTC());
+    }
+
+    PostIdGenerator(ShardRing shardRing, Clock clock) {
+        if (shardRing.size() > 1 << NODE_BITS) {
+            throw new IllegalArgumentException("At most " + (1 << NODE_BITS) + " nodes are supported");
+        }
+        this.shardRing = shardRing;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the next id, or {@code 0} when this node is the only one.
+     */
+    public long nextId() {
+        if (!shardRing.isPartitioned()) {
+            return 0;
+        }
+        long timeId = (clock.millis() - EPOCH_MILLIS) << TIME_SHIFT | shardRing.nodeIndex();
+        return lastId.updateAndGet(last -> Math.max(last + (1 << NODE_BITS), timeId));
+    }
+
+    /**
+     * Makes the next ids greater than a restored one, even if the clock went back since it was drawn.
+     */
+    public void advancePast(long id) {
+        if (shardRing.isPartitioned()) {
+            lastId.accumulateAndGet(id & -(1 << NODE_BITS) | shardRing.nodeIndex(), Math::max);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.codechallenge.twitterapi.cluster;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.codechallenge.twitterapi.dto.NewPostDTO;
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.dto.UserDTO;
+import com.codechallenge.twitterapi.exception.ShardUnavailableException;
+import com.codechallenge.twitterapi.exception.UserNotFoundException;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+/**
+ * Calls the other nodes of a partitioned deployment on behalf of this one. Requests carry the
+ * {@link ShardRoutingFilter#FORWARDED_HEADER}, so a node never forwards them again, and a node that does not answer
+ * fails the request with a {@link ShardUnavailableException}. A node rejecting a request answers 400, as it does
+ * for an unknown user.
+ */
+@Component
+public class ShardClient {
+    /**
+     * Posts asked for at once when a node is read page by page.
+     */
+    static final int PAGE_SIZE = 200;
+
+    private final ShardRing shardRing;
+
+    private final RestTemplate restTemplate;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "shard-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ShardClient(ShardRing shardRing, RestTemplateBuilder restTemplateBuilder,
+            @Value("${twitter.cluster.timeout-ms:2000}") int timeoutMillis) {
+        this.shardRing = shardRing;
+        this.restTemplate = restTemplateBuilder.setConnectTimeout(timeoutMillis)
+                .setReadTimeout(timeoutMillis)
+                .build();
+    }
+
+    /**
+     * Looks the user up on the node owning it.
+     */
+    public Optional<User> findUser(String userName) {
+        int node = shardRing.ownerOf(userName);
+        URI uri = UriComponentsBuilder.fromHttpUrl(shardRing.nodeUrl(node))
+                .path("/users/{userName}")
+                .buildAndExpand(userName)
+                .encode()
+                .toUri();
+        try {
+            UserDTO user = exchange(node, uri, HttpMethod.GET, null, UserDTO.class);
+            return Optional.of(new User(user.getName()));
+        } catch (HttpClientErrorException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Records the follow on the node owning the followed user, which answers for its followers.
+     */
+    public void addFollower(String userName, String followerName) {
+        int node = shardRing.ownerOf(userName);
+        URI uri = UriComponentsBuilder.fromHttpUrl(shardRing.nodeUrl(node))
+                .path("/shard/users/{userName}/followers")
+                .buildAndExpand(userName)
+                .encode()
+                .toUri();
+        try {
+            exchange(node, uri, HttpMethod.POST, new UserDTO(followerName), Void.class);
+        } catch (HttpClientErrorException e) {
+            throw new UserNotFoundException(userName);
+        }
+    }
+
+    /**
+     * Adds the posts on the node owning their authors and returns them in the given order.
+     */
+    public List<PostDTO> addPosts(int node, List<NewPostDTO> newPosts) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(shardRing.nodeUrl(node))
+                .path("/shard/posts")
+                .build()
+                .toUri();
+        return Arrays.asList(exchange(node, uri, HttpMethod.POST, newPosts, PostDTO[].class));
+    }
+
+    /**
+     * Asks every node for the newest posts of its users between the cursors, all nodes at once, and returns one list
+     * per node in ascending id order, as the repositories hold them.
+     */
+    public List<List<Post>> findPosts(Map<Integer, List<String>> userNamesByNode, int limit, long before,
+            long after) {
+        List<CompletableFuture<List<Post>>> pages = new ArrayList<>(userNamesByNode.size());
+        userNamesByNode.forEach((node, userNames) -> pages.add(CompletableFuture.supplyAsync(() -> findPosts(node,
+                userNames, limit, before, after), executor)));
+
+        List<List<Post>> postLists = new ArrayList<>(pages.size());
+        try {
+            for (CompletableFuture<List<Post>> page : pages) {
+                postLists.add(page.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return postLists;
+    }
+
+    /**
+     * Iterates over the posts of the node's users between the cursors, newest first, asking the node for the next
+     * page of {@link #PAGE_SIZE} posts only once the previous one is consumed.
+     */
+    public Iterator<Post> iteratePosts(int node, List<String> userNames, long before, long after) {
+        return new Iterator<Post>() {
+            private List<Post> page = Collections.emptyList();
+
+            private int index = -1;
+
+            private long pageBefore = before;
+
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                if (index < 0 && !lastPage) {
+                    page = findPosts(node, userNames, PAGE_SIZE, pageBefore, after);
+                    index = page.size() - 1;
+                    lastPage = page.size() < PAGE_SIZE;
+                    if (!page.isEmpty()) {
+                        pageBefore = page.get(0)
+                                .getId();
+                    }
+                }
+                return index >= 0;
+            }
+
+            @Override
+            public Post next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index--);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    private List<Post> findPosts(int node, List<String> userNames, int limit, long before, long after) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(shardRing.nodeUrl(node))
+                .path("/shard/posts")
+                .queryParam("users", userNames.toArray())
+                .queryParam("limit", limit)
+                .queryParam("before", before)
+                .queryParam("after", after)
+                .build()
+                .encode()
+                .toUri();
+        PostDTO[] page = exchange(node, uri, HttpMethod.GET, null, PostDTO[].class);
+        List<Post> posts = new ArrayList<>(page.length);
+        for (int i = page.length - 1; i >= 0; i--) {
+            posts.add(new Post(page[i].getId(), page[i].getText(), new User(page[i].getUserName()), page[i]
+                    .getDateTime()));
+        }
+        return posts;
+    }
+
+    private <T> T exchange(int node, URI uri, HttpMethod method, Object body, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        if (body != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        headers.set(ShardRoutingFilter.FORWARDED_HEADER, Integer.toString(shardRing.nodeIndex()));
+        try {
+            return restTemplate.exchange(uri, method, new HttpEntity<>(body, headers), responseType)
+                    .getBody();
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() == HttpStatus.BAD_REQUEST) {
+                throw e;
+            }
+            throw new ShardUnavailableException(shardRing.nodeUrl(node), e);
+        } catch (RestClientException e) {
+            throw new ShardUnavailableException(shardRing.nodeUrl(node), e);
+        }
+    }
+}
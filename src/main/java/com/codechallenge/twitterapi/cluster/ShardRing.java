@@ -0,0 +1,121 @@
+package com.codechallenge.twitterapi.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns every user to the node owning its data, by consistent hashing of the lower-cased user name. Each node is
+ * placed on the ring at {@code twitter.cluster.virtual-nodes} points derived from its URL, so adding a node moves
+ * only the users that now fall to it. Nodes are listed in {@code twitter.cluster.nodes}, every node with the same
+ * list; {@code twitter.cluster.node-index} tells which one is this node. Unless {@code twitter.cluster.enabled} is
+ * set, this node owns every user.
+ */
+@Component
+public class ShardRing {
+    private final List<String> nodes;
+
+    private final int nodeIndex;
+
+    private final long[] points;
+
+    private final int[] owners;
+
+    @Autowired
+    public ShardRing(@Value("${twitter.cluster.enabled:false}") boolean enabled,
+            @Value("${twitter.cluster.nodes:}") String[] nodes, @Value("${twitter.cluster.node-index:0}") int nodeIndex,
+            @Value("${twitter.cluster.virtual-nodes:128}") int virtualNodes) {
+        this(enabled ? Arrays.asList(nodes) : Collections.emptyList(), nodeIndex, virtualNodes);
+    }
+
+    ShardRing(List<String> nodes, int nodeIndex, int virtualNodes) {
+        if (!nodes.isEmpty() && (nodeIndex < 0 || nodeIndex >= nodes.size())) {
+            throw new IllegalArgumentException("Node index [" + nodeIndex + "] must be between 0 and "
+                    + (nodes.size() - 1));
+        }
+        this.nodes = nodes;
+        this.nodeIndex = nodes.isEmpty() ? 0 : nodeIndex;
+
+        long[][] entries = new long[nodes.size() * virtualNodes][];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int i = 0; i < virtualNodes; i++) {
+                entries[node * virtualNodes + i] = new long[] { hash(nodes.get(node) + "#" + i), node };
+            }
+        }
+        Arrays.sort(entries, (entry1, entry2) -> Long.compare(entry1[0], entry2[0]));
+        points = new long[entries.length];
+        owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    /**
+     * Ring of a node that owns every user.
+     */
+    public static ShardRing singleNode() {
+        return new ShardRing(Collections.emptyList(), 0, 0);
+    }
+
+    public boolean isPartitioned() {
+        return nodes.size() > 1;
+    }
+
+    public int size() {
+        return Math.max(1, nodes.size());
+    }
+
+    public int nodeIndex() {
+        return nodeIndex;
+    }
+
+    /**
+     * Base URL of the node, context path included.
+     */
+    public String nodeUrl(int node) {
+        return nodes.get(node);
+    }
+
+    /**
+     * Index of the node owning the user: the first point of the ring at or after the hash of its name.
+     */
+    public int ownerOf(String userName) {
+        if (!isPartitioned()) {
+            return nodeIndex;
+        }
+        int index = Arrays.binarySearch(points, hash(userName.toLowerCase(Locale.ROOT)));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public boolean isLocal(String userName) {
+        return ownerOf(userName) == nodeIndex;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes followed by the MurmurHash3 finalizer, so the ring is the same on every JVM
+     * and close keys end up far apart.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,277 @@
+package com.codechallenge.twitterapi.cluster;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import com.codechallenge.twitterapi.dto.ApiErrorDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Forwards the requests about a user, {@code /users/{userName}} and below, to the node owning the user and relays
+ * the answer, streams included. A new user is routed by the name in the request body. Requests already forwarded by
+ * another node are always served here, so nodes that disagree about the ring cannot bounce a request forever. The
+ * {@link #FORWARDED_HEADER} is only trusted from the addresses of the nodes in {@code twitter.cluster.nodes}, so a
+ * client cannot make a node store users it does not own.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "twitter.cluster.enabled", havingValue = "true")
+public class ShardRoutingFilter extends OncePerRequestFilter {
+    /**
+     * Marks a request sent by another node, with the index of that node.
+     */
+    public static final String FORWARDED_HEADER = "X-Twitter-Forwarded-By";
+
+    private static final String USERS_PATH = "/users";
+
+    private static final Set<String> HOP_BY_HOP_HEADERS = new HashSet<>(Arrays.asList("connection", "keep-alive",
+            "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "host"));
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardRoutingFilter.class);
+
+    private final ShardRing shardRing;
+
+    private final ObjectMapper objectMapper;
+
+    private final Set<InetAddress> nodeAddresses;
+
+    private final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+
+    /**
+     * Forwarded responses may be event streams, so only connecting is bounded by {@code twitter.cluster.timeout-ms}.
+     */
+    @Autowired
+    public ShardRoutingFilter(ShardRing shardRing, ObjectMapper objectMapper,
+            @Value("${twitter.cluster.timeout-ms:2000}") int timeoutMillis) {
+        this.shardRing = shardRing;
+        this.objectMapper = objectMapper;
+        this.nodeAddresses = nodeAddresses(shardRing);
+        requestFactory.setBufferRequestBody(false);
+        requestFactory.setConnectTimeout(timeoutMillis);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (request.getHeader(FORWARDED_HEADER) != null && isFromNode(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String path = request.getRequestURI()
+                .substring(request.getContextPath()
+                        .length());
+        String userName = userNameOf(path);
+        HttpServletRequest routedRequest = request;
+        if (userName == null && HttpMethod.POST.matches(request.getMethod()) && (USERS_PATH.equals(path)
+                || (USERS_PATH + "/").equals(path))) {
+            byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+            userName = newUserNameOf(body);
+            routedRequest = new CachedBodyRequest(request, body);
+        }
+
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        if (userName == null || method == null || shardRing.isLocal(userName)) {
+            chain.doFilter(routedRequest, response);
+        } else {
+            forward(routedRequest, method, response, shardRing.ownerOf(userName), path);
+        }
+    }
+
+    boolean isFromNode(HttpServletRequest request) {
+        try {
+            return nodeAddresses.contains(InetAddress.getByName(request.getRemoteAddr()));
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private static Set<InetAddress> nodeAddresses(ShardRing shardRing) {
+        Set<InetAddress> addresses = new HashSet<>();
+        for (int node = 0; node < shardRing.size(); node++) {
+            String host = URI.create(shardRing.nodeUrl(node))
+                    .getHost();
+            try {
+                addresses.addAll(Arrays.asList(InetAddress.getAllByName(host)));
+            } catch (UnknownHostException e) {
+                LOGGER.warn("Cannot resolve node {}, requests forwarded from it will be routed again", host);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Relays the request as is, the original host included, so the links built by the owner point to this node.
+     */
+    private void forward(HttpServletRequest request, HttpMethod method, HttpServletResponse response, int node,
+            String path) throws IOException {
+        String query = request.getQueryString();
+        URI uri = URI.create(shardRing.nodeUrl(node) + path + (query != null ? "?" + query : ""));
+        ClientHttpRequest forwardedRequest = requestFactory.createRequest(uri, method);
+        HttpHeaders headers = forwardedRequest.getHeaders();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                headers.put(name, Collections.list(request.getHeaders(name)));
+            }
+        }
+        headers.set(FORWARDED_HEADER, Integer.toString(shardRing.nodeIndex()));
+        if (request.getHeader(HttpHeaders.HOST) != null) {
+            headers.set("X-Forwarded-Host", request.getHeader(HttpHeaders.HOST));
+            headers.set("X-Forwarded-Proto", request.getScheme());
+        }
+
+        try {
+            if (request.getContentLength() > 0 || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null) {
+                StreamUtils.copy(request.getInputStream(), forwardedRequest.getBody());
+            }
+            try (ClientHttpResponse forwardedResponse = forwardedRequest.execute()) {
+                response.setStatus(forwardedResponse.getRawStatusCode());
+                forwardedResponse.getHeaders()
+                        .forEach((name, values) -> {
+                            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                                values.forEach(value -> response.addHeader(name, value));
+                            }
+                        });
+                copyFlushing(forwardedResponse.getBody(), response.getOutputStream());
+            }
+        } catch (IOException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.reset();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), new ApiErrorDTO(HttpStatus.SERVICE_UNAVAILABLE
+                    .value(), "Node [" + shardRing.nodeUrl(node) + "] is not available"));
+        }
+    }
+
+    /**
+     * Returns the decoded user name of a path below {@code /users/}, or {@code null}.
+     */
+    static String userNameOf(String path) {
+        if (!path.startsWith(USERS_PATH + "/")) {
+            return null;
+        }
+        int start = USERS_PATH.length() + 1;
+        int end = path.indexOf('/', start);
+        String userName = path.substring(start, end < 0 ? path.length() : end);
+        return userName.isEmpty() ? null : UriUtils.decode(userName, StandardCharsets.UTF_8);
+    }
+
+    private String newUserNameOf(byte[] body) {
+        try {
+            JsonNode name = objectMapper.readTree(body)
+                    .get("name");
+            return name != null && name.isTextual() ? name.asText() : null;
+        } catch (IOException e) {
+            // the controller reports the malformed body
+            return null;
+        }
+    }
+
+    // event streams are relayed event by event
+    private static void copyFlushing(InputStream input, ServletOutputStream output) throws IOException {
+        byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+        for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+            output.write(buffer, 0, read);
+            output.flush();
+        }
+    }
+
+    /**
+     * Request whose body has been read already, to route it.
+     */
+    static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // the body is in memory already, so all of it is available right away
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException | RuntimeException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.util.List;
+
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.utils.PostPojo2DtoConverter;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Response body of a page of posts, written from their pre-encoded JSON by {@link EncodedPostsHttpMessageConverter}.
+ */
+public final class EncodedPosts {
+    private final List<Post> posts;
+
+    public EncodedPosts(List<Post> posts) {
+        this.posts = posts;
+    }
+
+    public List<Post> getPosts() {
+        return posts;
+    }
+
+    /**
+     * The posts as DTOs, for the representations that are serialized by an object mapper.
+     */
+    @JsonValue
+    public List<PostDTO> toDtos() {
+        return PostPojo2DtoConverter.convert(posts);
+    }
+}
@@ -0,0 +1,57 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.utils.PostJsonEncoder;
+
+/**
+ * Writes {@link EncodedPosts} as a JSON array of the fragments kept on the posts, without building DTOs or going
+ * through the object mapper.
+ */
+class EncodedPostsHttpMessageConverter extends AbstractHttpMessageConverter<EncodedPosts> {
+    private final PostJsonEncoder encoder;
+
+    EncodedPostsHttpMessageConverter(PostJsonEncoder encoder) {
+        super(StandardCharsets.UTF_8, MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.encoder = encoder;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return EncodedPosts.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected EncodedPosts readInternal(Class<? extends EncodedPosts> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        throw new HttpMessageNotReadableException("Encoded posts cannot be read");
+    }
+
+    @Override
+    protected Long getContentLength(EncodedPosts encodedPosts, MediaType contentType) {
+        long length = 2 + Math.max(encodedPosts.getPosts()
+                .size() - 1, 0);
+        for (Post post : encodedPosts.getPosts()) {
+            length += encoder.encode(post).length;
+        }
+        return length;
+    }
+
+    @Override
+    protected void writeInternal(EncodedPosts encodedPosts, HttpOutputMessage outputMessage) throws IOException {
+        encoder.writeArray(encodedPosts.getPosts(), outputMessage.getBody());
+    }
+}
@@ -0,0 +1,39 @@
+package com.codechallenge.twitterapi.controller;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Media types the API supports beyond the ones defined in {@link MediaType}.
+ */
+public final class MediaTypes {
+    /**
+     * Newline delimited JSON: one JSON document per line.
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+    /**
+     * Smile, the binary JSON format of Jackson.
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    /**
+     * Concise Binary Object Representation (RFC 7049).
+     */
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+    public static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
+    /**
+     * Protocol buffers, following the messages of {@code /twitter.proto}.
+     */
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf(APPLICATION_PROTOBUF_VALUE);
+
+    private MediaTypes() {
+    }
+}
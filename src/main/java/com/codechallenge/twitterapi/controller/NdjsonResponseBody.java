@@ -0,0 +1,44 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Writes the records of an iterator as newline delimited JSON while the iterator is walked, so a response holds at
+ * most one record in memory. The first record is flushed right away, the following ones whenever
+ * {@value #FLUSH_EVERY_RECORDS} records have been written.
+ */
+public class NdjsonResponseBody implements StreamingResponseBody {
+    static final int FLUSH_EVERY_RECORDS = 256;
+
+    private final Iterator<?> records;
+
+    private final ObjectWriter writer;
+
+    public NdjsonResponseBody(Iterator<?> records, ObjectWriter writer) {
+        this.records = records;
+        this.writer = writer;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = writer.getFactory()
+                .createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (int written = 0; records.hasNext(); written++) {
+                writer.writeValue(generator, records.next());
+                generator.writeRaw('\n');
+                if (written % FLUSH_EVERY_RECORDS == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+}
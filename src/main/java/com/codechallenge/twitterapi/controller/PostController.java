@@ -0,0 +1,165 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.codechallenge.twitterapi.dto.ApiErrorDTO;
+import com.codechallenge.twitterapi.dto.BulkPostResultDTO;
+import com.codechallenge.twitterapi.dto.NewPostDTO;
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.dto.ValidationErrorDTO;
+import com.codechallenge.twitterapi.exception.PaginationException;
+import com.codechallenge.twitterapi.service.PostSearchIndex;
+import com.codechallenge.twitterapi.service.PostService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_CBOR_VALUE;
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_NDJSON_VALUE;
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_PROTOBUF_VALUE;
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_SMILE_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@RequestMapping("/posts")
+public class PostController {
+    static final int BULK_CHUNK_SIZE = 1000;
+
+    private final PostService postService;
+
+    private final PostSearchIndex searchIndex;
+
+    private final Validator validator;
+
+    private final ObjectReader newPostReader;
+
+    @Autowired
+    public PostController(PostService postService, PostSearchIndex searchIndex, Validator validator,
+            ObjectMapper objectMapper) {
+        this.postService = postService;
+        this.searchIndex = searchIndex;
+        this.validator = validator;
+        this.newPostReader = objectMapper.readerFor(NewPostDTO.class);
+    }
+
+    @PostMapping(path = "/bulk", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    public List<BulkPostResultDTO> addNewPosts(@RequestBody List<NewPostDTO> newPosts) {
+        List<BulkPostResultDTO> results = new ArrayList<>(newPosts.size());
+        for (int from = 0; from < newPosts.size(); from += BULK_CHUNK_SIZE) {
+            addChunk(newPosts.subList(from, Math.min(from + BULK_CHUNK_SIZE, newPosts.size())), results);
+        }
+        return results;
+    }
+
+    @PostMapping(path = "/bulk", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_NDJSON_VALUE)
+    public List<BulkPostResultDTO> addNewPosts(InputStream body) throws IOException {
+        List<BulkPostResultDTO> results = new ArrayList<>();
+        List<NewPostDTO> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.trim()
+                    .isEmpty()) {
+                continue;
+            }
+            chunk.add(parse(line));
+            if (chunk.size() == BULK_CHUNK_SIZE) {
+                addChunk(chunk, results);
+                chunk.clear();
+            }
+        }
+        addChunk(chunk, results);
+        return results;
+    }
+
+    /**
+     * Newest posts containing all words of the query, paginated with the {@code before} cursor like the timelines.
+     */
+    @GetMapping(path = "/search", produces = { APPLICATION_JSON_UTF8_VALUE, APPLICATION_SMILE_VALUE,
+            APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
+    public EncodedPosts searchPosts(@RequestParam String q,
+            @RequestParam(defaultValue = UserController.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) Long before) {
+        if (limit < 1 || limit > UserController.MAX_PAGE_SIZE) {
+            throw new PaginationException(limit, UserController.MAX_PAGE_SIZE);
+        }
+        return new EncodedPosts(searchIndex.search(q, limit, before));
+    }
+
+    @ExceptionHandler(PaginationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrorDTO reportPaginationError(PaginationException ex) {
+        return new ApiErrorDTO(HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+    }
+
+    /**
+     * Adds the valid posts of the chunk in one go; {@code null} stands for a record that could not be parsed.
+     */
+    private void addChunk(List<NewPostDTO> chunk, List<BulkPostResultDTO> results) {
+        List<NewPostDTO> validPosts = new ArrayList<>(chunk.size());
+        int firstResult = results.size();
+        for (NewPostDTO newPost : chunk) {
+            List<ValidationErrorDTO> errors = validate(newPost);
+            if (errors.isEmpty()) {
+                validPosts.add(newPost);
+                results.add(null);
+            } else {
+                results.add(new BulkPostResultDTO(HttpStatus.BAD_REQUEST.value(), errors));
+            }
+        }
+
+        List<PostDTO> savedPosts = postService.addNewPosts(validPosts);
+        for (int i = firstResult, saved = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, new BulkPostResultDTO(HttpStatus.CREATED.value(), savedPosts.get(saved++)
+                        .getId()));
+            }
+        }
+    }
+
+    private List<ValidationErrorDTO> validate(NewPostDTO newPost) {
+        if (newPost == null) {
+            return Collections.singletonList(new ValidationErrorDTO(null, "Malformed JSON record"));
+        }
+        Set<ConstraintViolation<NewPostDTO>> violations = validator.validate(newPost);
+        List<ValidationErrorDTO> errors = new ArrayList<>(violations.size());
+        for (ConstraintViolation<NewPostDTO> violation : violations) {
+            errors.add(new ValidationErrorDTO(violation.getPropertyPath()
+                    .toString(), violation.getMessage()));
+        }
+        return errors;
+    }
+
+    private NewPostDTO parse(String line) throws IOException {
+        try {
+            return newPostReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
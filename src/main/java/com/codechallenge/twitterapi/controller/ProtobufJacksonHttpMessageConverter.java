@@ -0,0 +1,104 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import com.codechallenge.twitterapi.dto.ApiErrorDTO;
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.dto.UserDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+
+/**
+ * Writes the DTOs as the messages of the protobuf schema. Protobuf has no top-level lists, so lists of posts and users
+ * are written as the {@code Posts} and {@code Users} messages wrapping them.
+ */
+class ProtobufJacksonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    private final Map<String, ObjectWriter> writers = new HashMap<>();
+
+    ProtobufJacksonHttpMessageConverter(ObjectMapper objectMapper, ProtobufSchema schema) {
+        super(MediaTypes.APPLICATION_PROTOBUF);
+        for (String messageType : schema.getMessageTypes()) {
+            writers.put(messageType, objectMapper.writer(schema.withRootType(messageType)));
+        }
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return messageType(clazz) != null;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return messageType(type != null ? type : clazz) != null && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf requests are not supported");
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf requests are not supported");
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        String messageType = messageType(type != null ? type : value.getClass());
+        Object message = value;
+        if (value instanceof EncodedPosts) {
+            message = Collections.singletonMap("posts", ((EncodedPosts) value).toDtos());
+        } else if (value instanceof Collection) {
+            message = Collections.singletonMap("Posts".equals(messageType) ? "posts" : "users", value);
+        }
+        writers.get(messageType)
+                .writeValue(StreamUtils.nonClosing(outputMessage.getBody()), message);
+    }
+
+    private static String messageType(Type type) {
+        ResolvableType resolvableType = ResolvableType.forType(type);
+        Class<?> clazz = resolvableType.resolve(Object.class);
+        if (Collection.class.isAssignableFrom(clazz)) {
+            Class<?> elementClass = resolvableType.asCollection()
+                    .resolveGeneric(0);
+            if (elementClass == PostDTO.class) {
+                return "Posts";
+            }
+            return elementClass == UserDTO.class ? "Users" : null;
+        }
+        if (clazz == EncodedPosts.class) {
+            return "Posts";
+        }
+        if (clazz == PostDTO.class) {
+            return "Post";
+        }
+        if (clazz == UserDTO.class) {
+            return "User";
+        }
+        return clazz == ApiErrorDTO.class ? "ApiError" : null;
+    }
+}
@@ -0,0 +1,91 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.codechallenge.twitterapi.dto.ApiErrorDTO;
+import com.codechallenge.twitterapi.dto.MutationBatchDTO;
+import com.codechallenge.twitterapi.dto.MutationDTO;
+import com.codechallenge.twitterapi.exception.ReplicationLogTruncatedException;
+import com.codechallenge.twitterapi.replication.ReplicationLog;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
+
+/**
+ * The mutation stream of the leader, pulled by the {@link com.codechallenge.twitterapi.replication.Replicator} of
+ * every replica.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "twitter.replication.role", havingValue = "leader")
+@RequestMapping("/replication")
+public class ReplicationController {
+    public static final String LOG_ID_HEADER = "X-Twitter-Replication-Log";
+
+    private final ReplicationLog replicationLog;
+
+    @Autowired
+    public ReplicationController(ReplicationLog replicationLog) {
+        this.replicationLog = replicationLog;
+    }
+
+    /**
+     * The mutations following the given sequence. When there is none, the request is held for up to {@code wait}
+     * milliseconds, so an idle replica does not poll in a loop.
+     */
+    @GetMapping(path = "/mutations", produces = APPLICATION_JSON_UTF8_VALUE)
+    public MutationBatchDTO retrieveMutations(@RequestParam long after,
+            @RequestParam(defaultValue = "1000") int limit, @RequestParam(defaultValue = "0") long wait)
+            throws InterruptedException {
+        List<MutationDTO> mutations = replicationLog.read(after, limit, wait);
+        return new MutationBatchDTO(replicationLog.getLogId(), replicationLog.getLastSequence(), mutations);
+    }
+
+    /**
+     * A snapshot of the repositories in the {@link com.codechallenge.twitterapi.persistence.SnapshotFile} format,
+     * holding the sequence to pull the mutations after.
+     */
+    @GetMapping(path = "/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> retrieveSnapshot() throws IOException {
+        Path snapshot = Files.createTempFile("replication-snapshot", ".bin");
+        try {
+            replicationLog.writeSnapshot(snapshot);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(snapshot);
+            throw e;
+        }
+        return ResponseEntity.ok()
+                .header(LOG_ID_HEADER, replicationLog.getLogId())
+                .contentLength(Files.size(snapshot))
+                .body(output -> {
+                    try {
+                        Files.copy(snapshot, output);
+                    } finally {
+                        Files.deleteIfExists(snapshot);
+                    }
+                });
+    }
+
+    @ExceptionHandler(ReplicationLogTruncatedException.class)
+    @ResponseStatus(HttpStatus.GONE)
+    public ApiErrorDTO reportTruncatedLog(ReplicationLogTruncatedException ex) {
+        return new ApiErrorDTO(HttpStatus.GONE.value(), ex.getMessage());
+    }
+}
@@ -0,0 +1,81 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.codechallenge.twitterapi.dto.ApiErrorDTO;
+import com.codechallenge.twitterapi.dto.NewPostDTO;
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.dto.UserDTO;
+import com.codechallenge.twitterapi.exception.UserNotFoundException;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.PostService;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Calls between the nodes of a partitioned deployment, made by {@link com.codechallenge.twitterapi.cluster.ShardClient}
+ * for the users this node owns.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "twitter.cluster.enabled", havingValue = "true")
+@RequestMapping("/shard")
+public class ShardController {
+    private final UserRepository userRepository;
+
+    private final PostService postService;
+
+    @Autowired
+    public ShardController(UserRepository userRepository, PostService postService) {
+        this.userRepository = userRepository;
+        this.postService = postService;
+    }
+
+    /**
+     * One page of the posts of the users merged, for a timeline assembled on another node.
+     */
+    @GetMapping(path = "/posts", produces = APPLICATION_JSON_UTF8_VALUE)
+    public EncodedPosts retrievePostsByUsers(@RequestParam List<String> users, @RequestParam int limit,
+            @RequestParam long before, @RequestParam long after) {
+        return new EncodedPosts(postService.findPostsByUserNames(users, limit, before, after));
+    }
+
+    @PostMapping(path = "/posts", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    public List<PostDTO> addNewPosts(@RequestBody List<NewPostDTO> newPosts) {
+        return postService.addNewPosts(newPosts);
+    }
+
+    /**
+     * Records that a user of another node follows a user of this one.
+     */
+    @PostMapping(path = "/users/{userName}/followers", consumes = APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void addFollower(@PathVariable String userName, @RequestBody UserDTO followerDto) {
+        User user = userRepository.findByName(userName)
+                .orElseThrow(() -> new UserNotFoundException(userName));
+        userRepository.follow(new User(followerDto.getName()), user);
+    }
+
+    @ExceptionHandler(UserNotFoundException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrorDTO userNotFound(UserNotFoundException ex) {
+        return new ApiErrorDTO(HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+    }
+}
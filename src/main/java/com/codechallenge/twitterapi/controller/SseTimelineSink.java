@@ -0,0 +1,37 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.io.IOException;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.service.TimelineSink;
+
+/**
+ * Sends every post as a {@code post} event whose id is the post id, which is what a reconnecting client passes back
+ * in the {@code Last-Event-ID} header. A send blocks while the client does not read; the subscription is ended
+ * when it blocks for longer than the send timeout of
+ * {@link com.codechallenge.twitterapi.service.TimelineSubscriptions}.
+ */
+class SseTimelineSink implements TimelineSink {
+    static final String EVENT_NAME = "post";
+
+    private final SseEmitter emitter;
+
+    SseTimelineSink(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void send(PostDTO post) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(post.getId()))
+                .name(EVENT_NAME)
+                .data(post));
+    }
+
+    @Override
+    public void close() {
+        emitter.complete();
+    }
+}
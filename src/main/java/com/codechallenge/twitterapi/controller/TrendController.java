@@ -0,0 +1,47 @@
+package com.codechallenge.twitterapi.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.codechallenge.twitterapi.dto.ApiErrorDTO;
+import com.codechallenge.twitterapi.dto.TrendsDTO;
+import com.codechallenge.twitterapi.exception.PaginationException;
+import com.codechallenge.twitterapi.service.TrendTracker;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
+
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@RequestMapping("/trends")
+public class TrendController {
+    static final int MAX_TRENDS = 50;
+
+    private final TrendTracker trendTracker;
+
+    @Autowired
+    public TrendController(TrendTracker trendTracker) {
+        this.trendTracker = trendTracker;
+    }
+
+    @GetMapping(produces = APPLICATION_JSON_UTF8_VALUE)
+    public TrendsDTO retrieveTrends(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_TRENDS) {
+            throw new PaginationException(limit, MAX_TRENDS);
+        }
+        return trendTracker.findTrends(limit);
+    }
+
+    @ExceptionHandler(PaginationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrorDTO reportPaginationError(PaginationException ex) {
+        return new ApiErrorDTO(HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+    }
+}
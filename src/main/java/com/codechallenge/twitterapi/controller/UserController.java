@@ -1,12 +1,16 @@
 package com.codechallenge.twitterapi.controller;
 
 import java.net.URI;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -16,23 +20,43 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.codechallenge.twitterapi.cluster.ShardClient;
+import com.codechallenge.twitterapi.cluster.ShardRing;
 import com.codechallenge.twitterapi.dto.ApiErrorDTO;
 import com.codechallenge.twitterapi.dto.CommentDTO;
 import com.codechallenge.twitterapi.dto.PostDTO;
 import com.codechallenge.twitterapi.dto.UserDTO;
 import com.codechallenge.twitterapi.exception.EmptyTimelineException;
 import com.codechallenge.twitterapi.exception.FollowingException;
+import com.codechallenge.twitterapi.exception.PaginationException;
 import com.codechallenge.twitterapi.exception.PostNotFoundException;
+import com.codechallenge.twitterapi.exception.ShardUnavailableException;
 import com.codechallenge.twitterapi.exception.UserNotFoundException;
+import com.codechallenge.twitterapi.model.Post;
 import com.codechallenge.twitterapi.model.User;
 import com.codechallenge.twitterapi.service.PostService;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions;
 import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserVersions;
 import com.codechallenge.twitterapi.utils.UserPojoToDtoConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_NDJSON;
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_CBOR_VALUE;
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_NDJSON_VALUE;
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_PROTOBUF_VALUE;
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_SMILE_VALUE;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
@@ -40,82 +64,202 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @RequestMapping("/users")
 public class UserController {
+    static final String DEFAULT_PAGE_SIZE = "20";
+
+    static final int MAX_PAGE_SIZE = 200;
 
     private final UserRepository userRepository;
 
     private final PostService postService;
 
+    private final UserVersions userVersions;
+
+    private final ShardRing shardRing;
+
+    private final ShardClient shardClient;
+
+    private final ObjectWriter ndjsonWriter;
+
+    private final long streamTimeoutMillis;
+
     @Autowired
-    public UserController(UserRepository userRepository, PostService postService) {
+    public UserController(UserRepository userRepository, PostService postService, UserVersions userVersions,
+            ShardRing shardRing, ShardClient shardClient, ObjectMapper objectMapper,
+            @Value("${twitter.timeline.stream-timeout-ms:1800000}") long streamTimeoutMillis) {
         this.userRepository = userRepository;
         this.postService = postService;
+        this.userVersions = userVersions;
+        this.shardRing = shardRing;
+        this.shardClient = shardClient;
+        this.ndjsonWriter = objectMapper.writer();
+        this.streamTimeoutMillis = streamTimeoutMillis;
     }
 
-    @GetMapping(produces = APPLICATION_JSON_UTF8_VALUE)
+    @GetMapping(produces = { APPLICATION_JSON_UTF8_VALUE, APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE,
+            APPLICATION_PROTOBUF_VALUE })
     public List<UserDTO> retrieveAllRegistredUsers() {
-        return UserPojoToDtoConverter.convert(userRepository.findAll());
+        return UserPojoToDtoConverter.convert(userRepository.findAll(), userRepository);
     }
 
-    @PostMapping(consumes = APPLICATION_JSON_UTF8_VALUE, produces = APPLICATION_JSON_UTF8_VALUE)
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllRegistredUsers() {
+        return streamOf(UserPojoToDtoConverter.convert(userRepository.iterateAll(), userRepository));
+    }
+
+    @PostMapping(consumes = APPLICATION_JSON_UTF8_VALUE, produces = { APPLICATION_JSON_UTF8_VALUE,
+            APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
     public ResponseEntity<UserDTO> createUser(@RequestBody UserDTO userDto) {
         User newUser = userRepository.save(new User(userDto.getName()));
-        UserDTO newUserDto = new UserDTO(newUser.getName());
+        UserDTO newUserDto = UserPojoToDtoConverter.convert(newUser, userRepository);
         HttpHeaders headers = buildResponseHeaders(newUserDto.getName());
 
         return new ResponseEntity<>(newUserDto, headers, HttpStatus.CREATED);
     }
 
-    @GetMapping(path = "/{userName}", produces = APPLICATION_JSON_UTF8_VALUE)
+    @GetMapping(path = "/{userName}", produces = { APPLICATION_JSON_UTF8_VALUE, APPLICATION_SMILE_VALUE,
+            APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
     @ResponseStatus(HttpStatus.OK)
     public UserDTO retrieveUserDetails(@PathVariable String userName) {
         User user = retrieveUserByName(userName);
-        return UserPojoToDtoConverter.convert(user);
+        return UserPojoToDtoConverter.convert(user, userRepository);
     }
 
-    @GetMapping(path = "/{userName}/posts", produces = APPLICATION_JSON_UTF8_VALUE)
-    public List<PostDTO> retrievePostsByUser(@PathVariable String userName) {
+    @GetMapping(path = "/{userName}/posts", produces = { APPLICATION_JSON_UTF8_VALUE, APPLICATION_SMILE_VALUE,
+            APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
+    public EncodedPosts retrievePostsByUser(@PathVariable String userName,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit, @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after, WebRequest request) {
         User user = retrieveUserByName(userName);
-        List<PostDTO> posts = postService.findByUserName(user.getName());
+        throwExceptionWhenLimitInvalid(limit);
+        if (isNotModified(request, userVersions.postsVersion(user.getName()))) {
+            return null;
+        }
+        List<Post> posts = postService.findPostsByUserName(user.getName(), limit, before, after);
 
-        if (posts.isEmpty()) {
+        if (posts.isEmpty() && before == null && after == null) {
             throw new PostNotFoundException(userName);
         }
-        return posts;
+        return new EncodedPosts(posts);
     }
 
-    @PostMapping(path = "/{userName}/posts", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.CREATED)
-    public List<PostDTO> addNewPost(@PathVariable String userName, @Valid @RequestBody CommentDTO commentDto) {
-        postService.addNewPost(commentDto.getText(), userName);
-        return retrievePostsByUser(userName);
+    @GetMapping(path = "/{userName}/posts", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPostsByUser(@PathVariable String userName,
+            @RequestParam(required = false) Long before, @RequestParam(required = false) Long after) {
+        User user = retrieveUserByName(userName);
+        return streamOf(postService.iterateByUserName(user.getName(), before, after));
     }
 
-    @GetMapping(path = "/{userName}/followed-users", produces = APPLICATION_JSON_VALUE)
-    public List<UserDTO> retrieveFollowedUsers(@PathVariable String userName) {
+    @GetMapping(path = "/{userName}/posts/{postId}", produces = { APPLICATION_JSON_UTF8_VALUE,
+            APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
+    public PostDTO retrievePost(@PathVariable String userName, @PathVariable long postId) {
         User user = retrieveUserByName(userName);
+        return postService.findPost(user.getName(), postId)
+                .orElseThrow(() -> new PostNotFoundException(userName, postId));
+    }
+
+    @PostMapping(path = "/{userName}/posts", produces = { APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE,
+            APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE }, consumes = APPLICATION_JSON_VALUE)
+    public ResponseEntity<PostDTO> addNewPost(@PathVariable String userName,
+            @Valid @RequestBody CommentDTO commentDto) {
+        PostDTO newPost = postService.addNewPost(commentDto.getText(), userName);
+        HttpHeaders headers = buildResponseHeaders(String.valueOf(newPost.getId()));
+
+        return new ResponseEntity<>(newPost, headers, HttpStatus.CREATED);
+    }
+
+    @PostMapping(path = "/{userName}/posts", params = "recent", produces = { APPLICATION_JSON_VALUE,
+            APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE,
+            APPLICATION_PROTOBUF_VALUE }, consumes = APPLICATION_JSON_VALUE)
+    public ResponseEntity<EncodedPosts> addNewPostAndRetrieveRecentPosts(@PathVariable String userName,
+            @RequestParam int recent, @Valid @RequestBody CommentDTO commentDto) {
+        throwExceptionWhenLimitInvalid(recent);
+        PostDTO newPost = postService.addNewPost(commentDto.getText(), userName);
+        HttpHeaders headers = buildResponseHeaders(String.valueOf(newPost.getId()));
+
+        return new ResponseEntity<>(new EncodedPosts(postService.findPostsByUserName(userName, recent, null, null)),
+                headers, HttpStatus.CREATED);
+    }
+
+    @GetMapping(path = "/{userName}/followed-users", produces = { APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE,
+            APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
+    public List<UserDTO> retrieveFollowedUsers(@PathVariable String userName, WebRequest request) {
+        User user = retrieveUserByName(userName);
+        if (isNotModified(request, userVersions.followedUsersVersion(user.getName()))) {
+            return null;
+        }
         return retrieveFollowedUsers(user);
     }
 
-    @PostMapping(path = "/{userName}/followed-users", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    @PostMapping(path = "/{userName}/followed-users", produces = { APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE,
+            APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE }, consumes = APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.CREATED)
     public List<UserDTO> startFollowingUser(@PathVariable String userName, @RequestBody UserDTO userToFollowDto) {
         User user = retrieveUserByName(userName);
-        User userToFollow = retrieveUserByName(userToFollowDto.getName());
+        User userToFollow = retrieveUserToFollow(userToFollowDto.getName());
         throwExceptionWhenIdentical(user, userToFollow);
 
-        user.follow(userToFollow);
-        return UserPojoToDtoConverter.convert(user.getFollowedUsers());
+        if (!shardRing.isLocal(userToFollow.getName())) {
+            // the node owning the followed user answers for its followers
+            shardClient.addFollower(userToFollow.getName(), user.getName());
+        }
+        if (userRepository.follow(user, userToFollow)) {
+            postService.invalidateTimeline(user.getName());
+        }
+        return UserPojoToDtoConverter.convert(userRepository.findAllFollowedUsers(user.getName()), userRepository);
     }
 
-    @GetMapping(path = "/{userName}/timelines", produces = APPLICATION_JSON_VALUE)
-    public List<PostDTO> retrievePostsByOtherUsers(@PathVariable String userName) {
+    @GetMapping(path = "/{userName}/followers", produces = { APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE,
+            APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
+    public List<UserDTO> retrieveFollowers(@PathVariable String userName,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit, @RequestParam(required = false) String after) {
         User user = retrieveUserByName(userName);
-        return retrievePostsFromFollowedUsers(user);
+        throwExceptionWhenLimitInvalid(limit);
+        if (after != null) {
+            retrieveUserByName(after);
+        }
+        return UserPojoToDtoConverter.convert(userRepository.findFollowers(user.getName(), after, limit),
+                userRepository);
     }
 
-    @ExceptionHandler({ UserNotFoundException.class, FollowingException.class })
+    @GetMapping(path = "/{userName}/timelines", produces = { APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE,
+            APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
+    public EncodedPosts retrievePostsByOtherUsers(@PathVariable String userName,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit, @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after, WebRequest request) {
+        User user = retrieveUserByName(userName);
+        throwExceptionWhenLimitInvalid(limit);
+        throwExceptionWhenNotFollowingAnyone(user);
+        if (isNotModified(request, userVersions.timelineVersion(user.getName()))) {
+            return null;
+        }
+        return new EncodedPosts(postService.findTimelinePosts(user.getName(), limit, before, after));
+    }
+
+    @GetMapping(path = "/{userName}/timelines", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPostsByOtherUsers(@PathVariable String userName,
+            @RequestParam(required = false) Long before, @RequestParam(required = false) Long after) {
+        User user = retrieveUserByName(userName);
+        throwExceptionWhenNotFollowingAnyone(user);
+        return streamOf(postService.iterateTimeline(user.getName(), before, after));
+    }
+
+    @GetMapping(path = "/{userName}/timelines/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNewPostsByOtherUsers(@PathVariable String userName,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        User user = retrieveUserByName(userName);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        TimelineSubscriptions.Subscription subscription = postService.subscribeToTimeline(user.getName(),
+                lastEventId, new SseTimelineSink(emitter));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    @ExceptionHandler({ UserNotFoundException.class, FollowingException.class, PaginationException.class })
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrorDTO userNotFound(Exception ex) {
         return new ApiErrorDTO(HttpStatus.BAD_REQUEST.value(), ex.getMessage());
@@ -127,6 +271,12 @@ public class UserController {
         return new ApiErrorDTO(HttpStatus.NOT_FOUND.value(), ex.getMessage());
     }
 
+    @ExceptionHandler(ShardUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ApiErrorDTO reportUnavailableNode(ShardUnavailableException ex) {
+        return new ApiErrorDTO(HttpStatus.SERVICE_UNAVAILABLE.value(), ex.getMessage());
+    }
+
     private User retrieveUserByName(String userName) {
         Optional<User> user = userRepository.findByName(userName);
 
@@ -136,23 +286,39 @@ public class UserController {
         return user.get();
     }
 
-    private List<PostDTO> retrievePostsFromFollowedUsers(User user) {
-        List<UserDTO> followedUsers = retrieveFollowedUsers(user);
-        return postService.findPostsByUsers(followedUsers);
+    private User retrieveUserToFollow(String userName) {
+        if (userName == null || shardRing.isLocal(userName)) {
+            return retrieveUserByName(userName);
+        }
+        return shardClient.findUser(userName)
+                .orElseThrow(() -> new UserNotFoundException(userName));
+    }
+
+    private void throwExceptionWhenNotFollowingAnyone(User user) {
+        if (userRepository.findAllFollowedUsers(user.getName())
+                .isEmpty()) {
+            throw new EmptyTimelineException(user.getName());
+        }
     }
 
     private List<UserDTO> retrieveFollowedUsers(User user) {
-        List<User> users = user.getFollowedUsers();
+        List<User> users = userRepository.findAllFollowedUsers(user.getName());
 
         if (users.isEmpty()) {
             throw new EmptyTimelineException(user.getName());
         }
-        return UserPojoToDtoConverter.convert(user.getFollowedUsers());
+        return UserPojoToDtoConverter.convert(users, userRepository);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamOf(Iterator<?> records) {
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(new NdjsonResponseBody(records, ndjsonWriter));
     }
 
     private static HttpHeaders buildResponseHeaders(String resourceId) {
         HttpHeaders headers = new HttpHeaders();
-        URI locationURI = ServletUriComponentsBuilder.fromCurrentRequest()
+        URI locationURI = ServletUriComponentsBuilder.fromCurrentRequestUri()
                 .path("/{resourceId}")
                 .buildAndExpand(resourceId)
                 .toUri();
@@ -161,6 +327,20 @@ public class UserController {
         return headers;
     }
 
+    /**
+     * Answers 304 when the client holds the current version; the ETag is weak, as every representation of a version
+     * carries the same data. Without a version the response carries no ETag.
+     */
+    private static boolean isNotModified(WebRequest request, String version) {
+        return version != null && request.checkNotModified("W/\"" + version + "\"");
+    }
+
+    private static void throwExceptionWhenLimitInvalid(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new PaginationException(limit, MAX_PAGE_SIZE);
+        }
+    }
+
     private static void throwExceptionWhenIdentical(User user, User userToFollow) {
         if (user.equals(userToFollow)) {
             throw new FollowingException(user.getName(), userToFollow.getName());
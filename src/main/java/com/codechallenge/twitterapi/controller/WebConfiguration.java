@@ -0,0 +1,67 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.codechallenge.twitterapi.utils.BinaryMappers;
+import com.codechallenge.twitterapi.utils.PostJsonEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class WebConfiguration implements WebMvcConfigurer {
+    private final PostJsonEncoder postJsonEncoder;
+
+    private final ProtobufSchema protobufSchema;
+
+    @Autowired
+    public WebConfiguration(ObjectMapper objectMapper) throws IOException {
+        this.postJsonEncoder = new PostJsonEncoder(objectMapper);
+        this.protobufSchema = BinaryMappers.protobufSchema();
+    }
+
+    /**
+     * Pages of posts are written from their encoded JSON, ahead of Jackson which would take any object. A single JSON
+     * document is valid newline delimited JSON, so errors can be reported to streaming clients too. The binary
+     * formats replace the default Smile and CBOR converters, which would write dates as arrays.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new EncodedPostsHttpMessageConverter(postJsonEncoder));
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+        converters.add(withoutCharset(new MappingJackson2SmileHttpMessageConverter(BinaryMappers.smile())));
+        converters.add(withoutCharset(new MappingJackson2CborHttpMessageConverter(BinaryMappers.cbor())));
+        converters.add(new ProtobufJacksonHttpMessageConverter(BinaryMappers.protobuf(), protobufSchema));
+        List<HttpMessageConverter<?>> ndjsonConverters = new ArrayList<>(1);
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2HttpMessageConverter && ndjsonConverters.isEmpty()) {
+                MappingJackson2HttpMessageConverter ndjsonConverter = new MappingJackson2HttpMessageConverter(
+                        ((MappingJackson2HttpMessageConverter) converter).getObjectMapper());
+                ndjsonConverter.setSupportedMediaTypes(Collections.singletonList(MediaTypes.APPLICATION_NDJSON));
+                ndjsonConverters.add(ndjsonConverter);
+            }
+        }
+        converters.addAll(ndjsonConverters);
+    }
+
+    private static <T extends AbstractHttpMessageConverter<?>> T withoutCharset(T converter) {
+        // a charset means nothing for a binary format
+        converter.setDefaultCharset(null);
+        return converter;
+    }
+}
@@ -0,0 +1,39 @@
+package com.codechallenge.twitterapi.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class BulkPostResultDTO {
+    private final int status;
+
+    private final Long id;
+
+    private final List<ValidationErrorDTO> errors;
+
+    public BulkPostResultDTO(int status, long id) {
+        this.status = status;
+        this.id = id;
+        this.errors = Collections.emptyList();
+    }
+
+    public BulkPostResultDTO(int status, List<ValidationErrorDTO> errors) {
+        this.status = status;
+        this.id = null;
+        this.errors = errors;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public List<ValidationErrorDTO> getErrors() {
+        return errors;
+    }
+}
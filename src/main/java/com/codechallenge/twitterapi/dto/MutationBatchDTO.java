@@ -0,0 +1,38 @@
+package com.codechallenge.twitterapi.dto;
+
+import java.util.List;
+
+public class MutationBatchDTO {
+    private String logId;
+
+    private long lastSequence;
+
+    private List<MutationDTO> mutations;
+
+    private MutationBatchDTO() {
+    }
+
+    public MutationBatchDTO(String logId, long lastSequence, List<MutationDTO> mutations) {
+        this.logId = logId;
+        this.lastSequence = lastSequence;
+        this.mutations = mutations;
+    }
+
+    /**
+     * Identifies the log the sequences belong to; a restarted leader starts a new one.
+     */
+    public String getLogId() {
+        return logId;
+    }
+
+    /**
+     * Sequence of the newest mutation of the leader, to tell how far behind the replica is.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public List<MutationDTO> getMutations() {
+        return mutations;
+    }
+}
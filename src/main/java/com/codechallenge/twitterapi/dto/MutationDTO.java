@@ -0,0 +1,86 @@
+package com.codechallenge.twitterapi.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * One change of the repositories of the leader, in the order the leader applied them.
+ */
+@JsonInclude(Include.NON_NULL)
+public class MutationDTO {
+    public enum Type {
+        USER_SAVED, POST_SAVED, FOLLOW
+    }
+
+    private long sequence;
+
+    private Type type;
+
+    private String userName;
+
+    private String followedUserName;
+
+    private Long postId;
+
+    private String text;
+
+    private LocalDateTime dateTime;
+
+    private MutationDTO() {
+    }
+
+    public MutationDTO(long sequence, String userName) {
+        this.sequence = sequence;
+        this.type = Type.USER_SAVED;
+        this.userName = userName;
+    }
+
+    public MutationDTO(long sequence, String userName, String followedUserName) {
+        this.sequence = sequence;
+        this.type = Type.FOLLOW;
+        this.userName = userName;
+        this.followedUserName = followedUserName;
+    }
+
+    public MutationDTO(long sequence, long postId, String text, String userName, LocalDateTime dateTime) {
+        this.sequence = sequence;
+        this.type = Type.POST_SAVED;
+        this.postId = postId;
+        this.text = text;
+        this.userName = userName;
+        this.dateTime = dateTime;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The user saved, the author of the post or the follower.
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getFollowedUserName() {
+        return followedUserName;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+}
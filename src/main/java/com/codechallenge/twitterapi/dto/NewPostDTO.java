@@ -0,0 +1,38 @@
+package com.codechallenge.twitterapi.dto;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+
+public class NewPostDTO {
+
+    @NotEmpty
+    private String userName;
+
+    @NotEmpty
+    @Size(max = 140)
+    private String text;
+
+    private NewPostDTO() {
+    }
+
+    public NewPostDTO(String userName, String text) {
+        this.userName = userName;
+        this.text = text;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
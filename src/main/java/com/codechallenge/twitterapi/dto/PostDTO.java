@@ -3,6 +3,8 @@ package com.codechallenge.twitterapi.dto;
 import java.time.LocalDateTime;
 
 public class PostDTO {
+    private long id;
+
     private String text;
 
     private String userName;
@@ -13,11 +15,20 @@ public class PostDTO {
     }
 
     public PostDTO(String text, String userName, LocalDateTime dateTime) {
+        this(0, text, userName, dateTime);
+    }
+
+    public PostDTO(long id, String text, String userName, LocalDateTime dateTime) {
+        this.id = id;
         this.text = text;
         this.userName = userName;
         this.dateTime = dateTime;
     }
 
+    public long getId() {
+        return id;
+    }
+
     public String getText() {
         return text;
     }
@@ -0,0 +1,20 @@
+package com.codechallenge.twitterapi.dto;
+
+public class TrendDTO {
+    private final String tag;
+
+    private final int count;
+
+    public TrendDTO(String tag, int count) {
+        this.tag = tag;
+        this.count = count;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,29 @@
+package com.codechallenge.twitterapi.dto;
+
+import java.util.List;
+
+public class TrendsDTO {
+    private final List<TrendDTO> last5Minutes;
+
+    private final List<TrendDTO> lastHour;
+
+    private final List<TrendDTO> last24Hours;
+
+    public TrendsDTO(List<TrendDTO> last5Minutes, List<TrendDTO> lastHour, List<TrendDTO> last24Hours) {
+        this.last5Minutes = last5Minutes;
+        this.lastHour = lastHour;
+        this.last24Hours = last24Hours;
+    }
+
+    public List<TrendDTO> getLast5Minutes() {
+        return last5Minutes;
+    }
+
+    public List<TrendDTO> getLastHour() {
+        return lastHour;
+    }
+
+    public List<TrendDTO> getLast24Hours() {
+        return last24Hours;
+    }
+}
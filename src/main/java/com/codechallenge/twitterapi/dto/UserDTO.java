@@ -2,10 +2,18 @@ package com.codechallenge.twitterapi.dto;
 
 import javax.validation.constraints.NotEmpty;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+@JsonInclude(Include.NON_NULL)
 public class UserDTO {
     @NotEmpty
     private String name;
 
+    private Integer followers;
+
+    private Integer following;
+
     private UserDTO() {
     }
 
@@ -13,6 +21,12 @@ public class UserDTO {
         this.name = name;
     }
 
+    public UserDTO(String name, int followers, int following) {
+        this.name = name;
+        this.followers = followers;
+        this.following = following;
+    }
+
     public String getName() {
         return name;
     }
@@ -20,4 +34,18 @@ public class UserDTO {
     public void setName(String name) {
         this.name = name;
     }
+
+    /**
+     * Number of users following this one; sent in responses only.
+     */
+    public Integer getFollowers() {
+        return followers;
+    }
+
+    /**
+     * Number of users this one follows; sent in responses only.
+     */
+    public Integer getFollowing() {
+        return following;
+    }
 }
@@ -0,0 +1,13 @@
+package com.codechallenge.twitterapi.exception;
+
+public class PaginationException extends RuntimeException {
+    private final String message;
+
+    public PaginationException(int limit, int maxLimit) {
+        message = "Limit [" + limit + "] must be between 1 and " + maxLimit;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -7,6 +7,10 @@ public class PostNotFoundException extends RuntimeException {
         message = "User [" + userName + "] has not yet published any post";
     }
 
+    public PostNotFoundException(String userName, long postId) {
+        message = "User [" + userName + "] has not published a post with id [" + postId + "]";
+    }
+
     public String getMessage() {
         return message;
     }
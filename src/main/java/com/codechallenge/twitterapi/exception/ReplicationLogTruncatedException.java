@@ -0,0 +1,13 @@
+package com.codechallenge.twitterapi.exception;
+
+public class ReplicationLogTruncatedException extends RuntimeException {
+    private final String message;
+
+    public ReplicationLogTruncatedException(long sequence) {
+        message = "Mutations after [" + sequence + "] are no longer in the replication log";
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
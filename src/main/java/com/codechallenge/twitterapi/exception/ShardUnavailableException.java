@@ -0,0 +1,14 @@
+package com.codechallenge.twitterapi.exception;
+
+public class ShardUnavailableException extends RuntimeException {
+    private final String message;
+
+    public ShardUnavailableException(String nodeUrl, Throwable cause) {
+        super(cause);
+        message = "Node [" + nodeUrl + "] is not available";
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
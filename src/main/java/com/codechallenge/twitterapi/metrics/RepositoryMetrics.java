@@ -0,0 +1,56 @@
+package com.codechallenge.twitterapi.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.service.FollowGraph;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostSearchIndex;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Sizes of the repositories. They are computed when the registry is scraped, never on the request path.
+ */
+@Component
+public class RepositoryMetrics implements MeterBinder {
+    private final UserRepository userRepository;
+
+    private final PostRepository postRepository;
+
+    private final FollowGraph followGraph;
+
+    private final PostSearchIndex searchIndex;
+
+    @Autowired
+    public RepositoryMetrics(UserRepository userRepository, PostRepository postRepository, FollowGraph followGraph,
+            PostSearchIndex searchIndex) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.followGraph = followGraph;
+        this.searchIndex = searchIndex;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("twitter.users", userRepository, UserRepository::count)
+                .description("Registered users")
+                .register(registry);
+        Gauge.builder("twitter.posts", postRepository, PostRepository::count)
+                .description("Stored posts")
+                .register(registry);
+        Gauge.builder("twitter.follows", followGraph, FollowGraph::edgeCount)
+                .description("Follow relations")
+                .register(registry);
+        Gauge.builder("twitter.search.words", searchIndex, PostSearchIndex::size)
+                .description("Distinct words in the search index")
+                .register(registry);
+        Gauge.builder("twitter.search.postings", searchIndex, PostSearchIndex::postingsSizeInBytes)
+                .description("Compressed size of the posting lists of the search index")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
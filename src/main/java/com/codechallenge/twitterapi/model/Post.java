@@ -3,18 +3,35 @@ package com.codechallenge.twitterapi.model;
 import java.time.LocalDateTime;
 
 public class Post {
+    private long id;
+
     private String text;
 
     private User user;
 
     private LocalDateTime dateTime;
 
+    private volatile byte[] json;
+
     public Post(String text, User user, LocalDateTime dateTime) {
+        this(0, text, user, dateTime);
+    }
+
+    public Post(long id, String text, User user, LocalDateTime dateTime) {
+        this.id = id;
         this.text = text;
         this.user = user;
         this.dateTime = dateTime;
     }
 
+    /**
+     * Identifier assigned when the post is saved. Identifiers grow in publishing order, so they double as
+     * pagination cursors.
+     */
+    public long getId() {
+        return id;
+    }
+
     public String getText() {
         return text;
     }
@@ -26,4 +43,16 @@ public class Post {
     public LocalDateTime getDateTime() {
         return dateTime;
     }
+
+    /**
+     * JSON representation of the post, or {@code null} until it is first written. Posts never change once saved, so
+     * it is encoded only once and reused by every later response that writes this instance.
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    public void setJson(byte[] json) {
+        this.json = json;
+    }
 }
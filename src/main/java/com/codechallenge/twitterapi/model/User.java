@@ -1,15 +1,8 @@
 package com.codechallenge.twitterapi.model;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
-
 public class User {
     private String name;
 
-    private Set<User> followedUsers = new HashSet<>();
-
     public void setName(String name) {
         this.name = name;
     }
@@ -25,22 +18,9 @@ public class User {
         return name;
     }
 
-    public void follow(User userToFollow) {
-        followedUsers.add(userToFollow);
-    }
-
-    public List<User> getFollowedUsers() {
-        return followedUsers.stream()
-                .collect(Collectors.toList());
-    }
-
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((followedUsers == null) ? 0 : followedUsers.hashCode());
-        result = prime * result + ((name == null) ? 0 : name.hashCode());
-        return result;
+        return (name == null) ? 0 : name.hashCode();
     }
 
     @Override
@@ -52,16 +32,9 @@ public class User {
         if (getClass() != obj.getClass())
             return false;
         User other = (User) obj;
-        if (followedUsers == null) {
-            if (other.followedUsers != null)
-                return false;
-        } else if (!followedUsers.equals(other.followedUsers))
-            return false;
         if (name == null) {
-            if (other.name != null)
-                return false;
-        } else if (!name.equals(other.name))
-            return false;
-        return true;
+            return other.name == null;
+        }
+        return name.equals(other.name);
     }
 }
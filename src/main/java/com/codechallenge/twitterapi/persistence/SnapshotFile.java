@@ -0,0 +1,268 @@
+package com.codechallenge.twitterapi.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.MutationListener;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+/**
+ * Binary image of the repositories:
+ * {@code [magic][version][long walSegmentIndex][int userCount][user names][int otherCount][other names]}, then the
+ * indexes of the followed users of every named user as {@code [int count][int index]...} and the posts of every
+ * user as {@code [int count]([long id][long epochSecond][int nano][text])...}. The other names are users that take
+ * part in follows without being registered here, the users of other nodes of a partitioned deployment; version 1
+ * has no such names. Strings are written as
+ * {@code [int length][UTF-8 bytes]}. The repositories are read through their immutable snapshots, so writers keep
+ * going while a snapshot is taken; mutations that happen meanwhile are replayed again from the write-ahead log,
+ * which the repositories apply idempotently.
+ */
+public final class SnapshotFile {
+    private static final int MAGIC = 0x54575453;
+
+    private static final int VERSION = 2;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot into a temporary file, forces it to disk and only then moves it to the target path, so the
+     * target is either absent or complete.
+     */
+    public static void write(Path file, long walSegmentIndex, UserRepository userRepository,
+            PostRepository postRepository) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Output output = new Output(FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            List<User> users = userRepository.findAll();
+            Map<User, Integer> indexes = new HashMap<>(users.size() * 2);
+            output.putInt(MAGIC);
+            output.putInt(VERSION);
+            output.putLong(walSegmentIndex);
+            output.putInt(users.size());
+            for (User user : users) {
+                indexes.put(user, indexes.size());
+                output.putString(user.getName());
+            }
+
+            List<User> namedUsers = new ArrayList<>(users);
+            for (User user : userRepository.findAllWithFollows()) {
+                if (!indexes.containsKey(user)) {
+                    indexes.put(user, indexes.size());
+                    namedUsers.add(user);
+                }
+            }
+            output.putInt(namedUsers.size() - users.size());
+            for (User user : namedUsers.subList(users.size(), namedUsers.size())) {
+                output.putString(user.getName());
+            }
+
+            for (User user : namedUsers) {
+                List<User> followedUsers = userRepository.findAllFollowedUsers(user.getName());
+                int count = 0;
+                for (User followedUser : followedUsers) {
+                    count += indexes.containsKey(followedUser) ? 1 : 0;
+                }
+                output.putInt(count);
+                for (User followedUser : followedUsers) {
+                    Integer index = indexes.get(followedUser);
+                    if (index != null) {
+                        output.putInt(index);
+                    }
+                }
+            }
+
+            for (User user : users) {
+                List<Post> posts = postRepository.findByUserName(user.getName());
+                output.putInt(posts.size());
+                for (Post post : posts) {
+                    output.putLong(post.getId());
+                    output.putLong(post.getDateTime()
+                            .toEpochSecond(ZoneOffset.UTC));
+                    output.putInt(post.getDateTime()
+                            .getNano());
+                    output.putString(post.getText());
+                }
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Memory-maps the snapshot, feeds its users, follows and posts to the target and returns the index of the first
+     * write-ahead log segment that is not covered by the snapshot.
+     */
+    public static long read(Path file, MutationListener target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Input input = new Input(channel);
+            int version = input.getInt() == MAGIC ? input.getInt() : 0;
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot format: " + file);
+            }
+            long walSegmentIndex = input.getLong();
+
+            int userCount = input.getInt();
+            User[] users = new User[userCount];
+            for (int i = 0; i < userCount; i++) {
+                users[i] = new User(input.getString());
+                target.onUserSaved(users[i]);
+            }
+            if (version > 1) {
+                int otherCount = input.getInt();
+                users = Arrays.copyOf(users, userCount + otherCount);
+                for (int i = userCount; i < users.length; i++) {
+                    users[i] = new User(input.getString());
+                }
+            }
+
+            for (User user : users) {
+                for (int count = input.getInt(); count > 0; count--) {
+                    target.onFollow(user, users[input.getInt()]);
+                }
+            }
+
+            for (User user : Arrays.asList(users)
+                    .subList(0, userCount)) {
+                for (int count = input.getInt(); count > 0; count--) {
+                    long id = input.getLong();
+                    LocalDateTime dateTime = LocalDateTime.ofEpochSecond(input.getLong(), input.getInt(),
+                            ZoneOffset.UTC);
+                    target.onPostSaved(new Post(id, input.getString(), user, dateTime));
+                }
+            }
+            return walSegmentIndex;
+        }
+    }
+
+    private static final class Output implements AutoCloseable {
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                writeFully(ByteBuffer.wrap(bytes));
+            } else {
+                ensureRemaining(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void ensureRemaining(int size) throws IOException {
+            if (buffer.remaining() < size) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads the file through a sliding memory-mapped window, so snapshots may be larger than a single mapping.
+     */
+    private static final class Input {
+        private final FileChannel channel;
+
+        private final long size;
+
+        private long windowStart;
+
+        private MappedByteBuffer window;
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        int getInt() throws IOException {
+            ensureAvailable(Integer.BYTES);
+            return window.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensureAvailable(Long.BYTES);
+            return window.getLong();
+        }
+
+        String getString() throws IOException {
+            byte[] bytes = new byte[getInt()];
+            ensureAvailable(bytes.length);
+            window.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void ensureAvailable(int length) throws IOException {
+            if (window.remaining() < length) {
+                long position = windowStart + window.position();
+                if (size - position < length) {
+                    throw new IOException("Truncated snapshot");
+                }
+                map(position);
+            }
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.codechallenge.twitterapi.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.MutationListener;
+
+/**
+ * Append-only log of repository mutations, written into memory-mapped segment files. Every record is framed as
+ * {@code [int length][int crc32][body]}; replay stops reading a segment at its first empty record. A truncated or
+ * corrupted record is only expected at the end of the last segment, torn by a crash: it is dropped and the segment
+ * is cut before it. Anywhere else replay fails, rather than apply later mutations on top of lost ones. Segments are
+ * forced to disk every {@code syncEveryRecords} records and/or every
+ * {@code syncIntervalMillis} milliseconds (0 disables either trigger). A record larger than {@code segmentSize} gets
+ * a segment of its own, as large as it needs.
+ */
+public class WriteAheadLog implements MutationListener, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    static final byte USER_SAVED = 1;
+
+    static final byte POST_SAVED = 2;
+
+    static final byte FOLLOW = 3;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int HEADER_SIZE = 8;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int syncEveryRecords;
+
+    private final long firstSegmentIndex;
+
+    private final ScheduledExecutorService syncScheduler;
+
+    private final CRC32 checksum = new CRC32();
+
+    private ByteBuffer body = ByteBuffer.allocate(512);
+
+    private long segmentIndex;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer segment;
+
+    private int unsyncedRecords;
+
+    public WriteAheadLog(Path directory, int segmentSize, int syncEveryRecords, long syncIntervalMillis)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.syncEveryRecords = syncEveryRecords;
+
+        List<Path> segments = listSegments();
+        segmentIndex = segments.isEmpty() ? 0 : indexOf(segments.get(segments.size() - 1));
+        openNextSegment(segmentSize);
+        firstSegmentIndex = segmentIndex;
+
+        if (syncIntervalMillis > 0) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncScheduler.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncScheduler = null;
+        }
+    }
+
+    /**
+     * Feeds every valid record written before this log was opened to the target, oldest first.
+     */
+    public void replay(MutationListener target) throws IOException {
+        replay(target, 0);
+    }
+
+    /**
+     * Feeds every valid record written before this log was opened, starting with the given segment, to the target.
+     */
+    public void replay(MutationListener target, long fromSegmentIndex) throws IOException {
+        List<Path> segments = listSegments().stream()
+                .filter(path -> indexOf(path) >= fromSegmentIndex && indexOf(path) < firstSegmentIndex)
+                .collect(Collectors.toList());
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            int invalidPosition = replaySegment(path, target);
+            if (invalidPosition < 0) {
+                continue;
+            }
+            if (i < segments.size() - 1) {
+                throw new IOException("Corrupted record at byte " + invalidPosition + " of " + path
+                        + ", which is followed by " + (segments.size() - 1 - i) + " more segments");
+            }
+            LOGGER.warn("Dropping the torn end of {} from byte {}", path, invalidPosition);
+            // later logs replay this segment as a middle one
+            try (FileChannel segmentChannel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                segmentChannel.truncate(invalidPosition);
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment and returns its index: every record appended from now on goes to this or a later segment.
+     */
+    public synchronized long roll() {
+        rollSegment(segmentSize);
+        return segmentIndex;
+    }
+
+    /**
+     * Deletes the segments older than the given one, once their records are covered by a snapshot.
+     */
+    public void deleteSegmentsBefore(long firstKeptSegmentIndex) throws IOException {
+        for (Path path : listSegments()) {
+            if (indexOf(path) < firstKeptSegmentIndex) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void onUserSaved(User user) {
+        synchronized (this) {
+            body.clear();
+            body.put(USER_SAVED);
+            putString(user.getName());
+            append();
+        }
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        synchronized (this) {
+            body.clear();
+            body.put(POST_SAVED);
+            body.putLong(post.getId());
+            body.putLong(post.getDateTime()
+                    .toEpochSecond(ZoneOffset.UTC));
+            body.putInt(post.getDateTime()
+                    .getNano());
+            putString(post.getUser()
+                    .getName());
+            putString(post.getText());
+            append();
+        }
+    }
+
+    @Override
+    public void onFollow(User user, User followedUser) {
+        synchronized (this) {
+            body.clear();
+            body.put(FOLLOW);
+            putString(user.getName());
+            putString(followedUser.getName());
+            append();
+        }
+    }
+
+    public synchronized void sync() {
+        if (unsyncedRecords > 0) {
+            segment.force();
+            unsyncedRecords = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+        synchronized (this) {
+            segment.force();
+            channel.close();
+        }
+    }
+
+    private void append() {
+        body.flip();
+        int length = body.remaining();
+        // the mutation is already visible, so a record too large for a segment is not rejected
+        if (segment.remaining() < HEADER_SIZE + length) {
+            rollSegment(Math.max(segmentSize, HEADER_SIZE + length));
+        }
+
+        checksum.reset();
+        checksum.update(body.array(), 0, length);
+        segment.putInt(length);
+        segment.putInt((int) checksum.getValue());
+        segment.put(body);
+
+        if (++unsyncedRecords >= syncEveryRecords && syncEveryRecords > 0) {
+            segment.force();
+            unsyncedRecords = 0;
+        }
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (body.remaining() < 4 + bytes.length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(body.capacity() * 2, body.position() + 4 + bytes.length));
+            body.flip();
+            larger.put(body);
+            body = larger;
+        }
+        body.putInt(bytes.length);
+        body.put(bytes);
+    }
+
+    private void rollSegment(int size) {
+        try {
+            segment.force();
+            unsyncedRecords = 0;
+            channel.close();
+            openNextSegment(size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll the write-ahead log", e);
+        }
+    }
+
+    private void openNextSegment(int size) throws IOException {
+        segmentIndex++;
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName()
+                    .toString()
+                    .startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long indexOf(Path segmentPath) {
+        String fileName = segmentPath.getFileName()
+                .toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Feeds the records of the segment to the target and returns -1 once it reaches the end of the segment or an
+     * empty record, or the position of the first truncated or corrupted record.
+     */
+    private static int replaySegment(Path path, MutationListener target) throws IOException {
+        try (FileChannel segmentChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer records = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+            CRC32 checksum = new CRC32();
+            while (records.remaining() >= HEADER_SIZE) {
+                int position = records.position();
+                int length = records.getInt();
+                int expectedChecksum = records.getInt();
+                if (length == 0 && expectedChecksum == 0) {
+                    return -1;
+                }
+                if (length < 0 || length > records.remaining()) {
+                    return position;
+                }
+                ByteBuffer record = records.slice();
+                record.limit(length);
+                checksum.reset();
+                checksum.update(record.duplicate());
+                if ((int) checksum.getValue() != expectedChecksum || !apply(record, target)) {
+                    return position;
+                }
+                records.position(records.position() + length);
+            }
+            return -1;
+        }
+    }
+
+    private static boolean apply(ByteBuffer record, MutationListener target) {
+        try {
+            byte type = record.get();
+            switch (type) {
+            case USER_SAVED:
+                target.onUserSaved(new User(getString(record)));
+                return true;
+            case POST_SAVED:
+                long id = record.getLong();
+                LocalDateTime dateTime = LocalDateTime.ofEpochSecond(record.getLong(), record.getInt(),
+                        ZoneOffset.UTC);
+                User author = new User(getString(record));
+                target.onPostSaved(new Post(id, getString(record), author, dateTime));
+                return true;
+            case FOLLOW:
+                User user = new User(getString(record));
+                target.onFollow(user, new User(getString(record)));
+                return true;
+            default:
+                return false;
+            }
+        } catch (BufferUnderflowException e) {
+            return false;
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
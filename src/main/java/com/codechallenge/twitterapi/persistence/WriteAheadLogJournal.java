@@ -0,0 +1,149 @@
+package com.codechallenge.twitterapi.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.service.MutationApplier;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+/**
+ * Restores the repositories from the latest snapshot and the write-ahead log once all beans are created (so every
+ * mutation listener sees the restored state) and then records every new mutation. Snapshots are taken in the
+ * background; each one rolls the log first, so only the segments written after the snapshot started are replayed.
+ */
+@Component
+@ConditionalOnProperty(name = "twitter.wal.enabled", havingValue = "true")
+public class WriteAheadLogJournal implements SmartInitializingSingleton {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLogJournal.class);
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final MutationPublisher mutations;
+
+    private final UserRepository userRepository;
+
+    private final PostRepository postRepository;
+
+    private final Path directory;
+
+    private final WriteAheadLog writeAheadLog;
+
+    private final long snapshotIntervalMillis;
+
+    private ScheduledExecutorService snapshotScheduler;
+
+    @Autowired
+    public WriteAheadLogJournal(MutationPublisher mutations, UserRepository userRepository,
+            PostRepository postRepository, @Value("${twitter.wal.directory}") String directory,
+            @Value("${twitter.wal.segment-size}") int segmentSize,
+            @Value("${twitter.wal.sync-every-records}") int syncEveryRecords,
+            @Value("${twitter.wal.sync-interval-ms}") long syncIntervalMillis,
+            @Value("${twitter.wal.snapshot-interval-ms:0}") long snapshotIntervalMillis) throws IOException {
+        this.mutations = mutations;
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.directory = Paths.get(directory);
+        this.writeAheadLog = new WriteAheadLog(this.directory, segmentSize, syncEveryRecords, syncIntervalMillis);
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            MutationApplier applier = new MutationApplier(userRepository, postRepository);
+            List<Path> snapshots = listSnapshots();
+            long firstSegmentIndex = 0;
+            if (!snapshots.isEmpty()) {
+                Path snapshot = snapshots.get(snapshots.size() - 1);
+                long start = System.nanoTime();
+                firstSegmentIndex = SnapshotFile.read(snapshot, applier);
+                LOGGER.info("Loaded {} in {} ms", snapshot, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            writeAheadLog.replay(applier, firstSegmentIndex);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot restore the repositories", e);
+        }
+        mutations.addListener(writeAheadLog);
+
+        if (snapshotIntervalMillis > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::takeSnapshotQuietly, snapshotIntervalMillis,
+                    snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the repositories and deletes the log segments and snapshots it supersedes.
+     */
+    public synchronized Path takeSnapshot() throws IOException {
+        long segmentIndex = writeAheadLog.roll();
+        Path snapshot = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, segmentIndex, SNAPSHOT_SUFFIX));
+        SnapshotFile.write(snapshot, segmentIndex, userRepository, postRepository);
+
+        writeAheadLog.deleteSegmentsBefore(segmentIndex);
+        for (Path oldSnapshot : listSnapshots()) {
+            if (!oldSnapshot.equals(snapshot)) {
+                Files.deleteIfExists(oldSnapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+        }
+        mutations.removeListener(writeAheadLog);
+        writeAheadLog.close();
+    }
+
+    private void takeSnapshotQuietly() {
+        try {
+            takeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Cannot take a snapshot", e);
+        }
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(WriteAheadLogJournal::isSnapshot)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isSnapshot(Path path) {
+        String fileName = path.getFileName()
+                .toString();
+        return fileName.startsWith(SNAPSHOT_PREFIX) && fileName.endsWith(SNAPSHOT_SUFFIX);
+    }
+}
@@ -0,0 +1,52 @@
+package com.codechallenge.twitterapi.replication;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Answers every write of the leader with a consistency token: the id of the replication log and its sequence once
+ * the write is applied, as {@code logId:sequence}. A read sent to a replica with the token sees the write. The log id
+ * tells apart the sequences of a leader that restarted and started its log over.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "twitter.replication.role", havingValue = "leader")
+public class ConsistencyTokenAdvice implements ResponseBodyAdvice<Object> {
+    public static final String CONSISTENCY_TOKEN_HEADER = "X-Twitter-Consistency-Token";
+
+    static final char TOKEN_SEPARATOR = ':';
+
+    private final ReplicationLog replicationLog;
+
+    @Autowired
+    public ConsistencyTokenAdvice(ReplicationLog replicationLog) {
+        this.replicationLog = replicationLog;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        if (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD) {
+            response.getHeaders()
+                    .set(CONSISTENCY_TOKEN_HEADER, replicationLog.getLogId() + TOKEN_SEPARATOR + replicationLog
+                            .getLastSequence());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,104 @@
+package com.codechallenge.twitterapi.replication;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.codechallenge.twitterapi.dto.ApiErrorDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps a replica read-only: writes are redirected to the leader with a 307, which clients repeat with the same
+ * method and body. A read carrying the {@link ConsistencyTokenAdvice#CONSISTENCY_TOKEN_HEADER} of a write waits up
+ * to {@code twitter.replication.read-wait-ms} for the replica to apply the write, and is redirected to the leader
+ * when the replica is still behind, or follows another log than the one of the token.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "twitter.replication.role", havingValue = "replica")
+public class ReplicaRequestFilter extends OncePerRequestFilter {
+    private final Replicator replicator;
+
+    private final ObjectMapper objectMapper;
+
+    private final String leaderUrl;
+
+    private final long readWaitMillis;
+
+    @Autowired
+    public ReplicaRequestFilter(Replicator replicator, ObjectMapper objectMapper,
+            @Value("${twitter.replication.leader-url}") String leaderUrl,
+            @Value("${twitter.replication.read-wait-ms:1000}") long readWaitMillis) {
+        this.replicator = replicator;
+        this.objectMapper = objectMapper;
+        this.leaderUrl = leaderUrl;
+        this.readWaitMillis = readWaitMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS) {
+            redirectToLeader(request, response);
+            return;
+        }
+
+        String token = request.getHeader(ConsistencyTokenAdvice.CONSISTENCY_TOKEN_HEADER);
+        if (token != null) {
+            int separator = token.lastIndexOf(ConsistencyTokenAdvice.TOKEN_SEPARATOR);
+            long sequence;
+            try {
+                sequence = Long.parseLong(token.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                sequence = -1;
+            }
+            if (separator <= 0 || sequence < 0) {
+                response.setStatus(HttpStatus.BAD_REQUEST.value());
+                response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+                objectMapper.writeValue(response.getOutputStream(), new ApiErrorDTO(HttpStatus.BAD_REQUEST.value(),
+                        "Consistency token [" + token + "] is not valid"));
+                return;
+            }
+            if (!isApplied(token.substring(0, separator), sequence)) {
+                redirectToLeader(request, response);
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private boolean isApplied(String logId, long sequence) {
+        try {
+            return replicator.awaitSequence(logId, sequence, readWaitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            return false;
+        }
+    }
+
+    private void redirectToLeader(HttpServletRequest request, HttpServletResponse response) {
+        String path = request.getRequestURI()
+                .substring(request.getContextPath()
+                        .length());
+        String query = request.getQueryString();
+        response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+        response.setHeader(HttpHeaders.LOCATION, leaderUrl + path + (query != null ? "?" + query : ""));
+    }
+}
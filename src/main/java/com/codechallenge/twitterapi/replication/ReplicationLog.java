@@ -0,0 +1,127 @@
+package com.codechallenge.twitterapi.replication;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.dto.MutationDTO;
+import com.codechallenge.twitterapi.exception.ReplicationLogTruncatedException;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.persistence.SnapshotFile;
+import com.codechallenge.twitterapi.service.MutationListener;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+/**
+ * Numbers the mutations of the leader and keeps the newest {@code twitter.replication.log-capacity} of them in
+ * memory for the replicas to pull. The sequences start over with every start of the leader, under a new log id; a
+ * replica that is too far behind, or that followed another log, starts again from a snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "twitter.replication.role", havingValue = "leader")
+public class ReplicationLog implements MutationListener {
+    private final String logId = UUID.randomUUID()
+            .toString();
+
+    private final UserRepository userRepository;
+
+    private final PostRepository postRepository;
+
+    private final MutationDTO[] mutations;
+
+    private long lastSequence;
+
+    @Autowired
+    public ReplicationLog(MutationPublisher mutations, UserRepository userRepository, PostRepository postRepository,
+            @Value("${twitter.replication.log-capacity:100000}") int capacity) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.mutations = new MutationDTO[capacity];
+        mutations.addListener(this);
+    }
+
+    public String getLogId() {
+        return logId;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void onUserSaved(User user) {
+        synchronized (this) {
+            append(new MutationDTO(lastSequence + 1, user.getName()));
+        }
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        synchronized (this) {
+            append(new MutationDTO(lastSequence + 1, post.getId(), post.getText(), post.getUser()
+                    .getName(), post.getDateTime()));
+        }
+    }
+
+    @Override
+    public void onFollow(User user, User followedUser) {
+        synchronized (this) {
+            append(new MutationDTO(lastSequence + 1, user.getName(), followedUser.getName()));
+        }
+    }
+
+    /**
+     * Returns at most {@code limit} mutations following the given sequence, waiting up to {@code waitMillis} for the
+     * first one when there is none yet.
+     *
+     * @throws ReplicationLogTruncatedException when some of the mutations following the sequence are dropped already
+     */
+    public synchronized List<MutationDTO> read(long after, int limit, long waitMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        for (long remaining = waitMillis; lastSequence <= after && remaining > 0; remaining = deadline - System
+                .currentTimeMillis()) {
+            wait(remaining);
+        }
+        if (lastSequence <= after) {
+            return Collections.emptyList();
+        }
+        if (after < lastSequence - mutations.length) {
+            throw new ReplicationLogTruncatedException(after);
+        }
+
+        long from = after + 1;
+        long to = Math.min(lastSequence, after + limit);
+        List<MutationDTO> batch = new ArrayList<>((int) (to - from + 1));
+        for (long sequence = from; sequence <= to; sequence++) {
+            batch.add(mutations[(int) (sequence % mutations.length)]);
+        }
+        return batch;
+    }
+
+    /**
+     * Writes a snapshot of the repositories for a new replica and returns the sequence the replica continues from.
+     * Mutations that happen while the snapshot is written may be both in the snapshot and after the sequence, which
+     * is harmless as the repositories apply them idempotently.
+     */
+    public long writeSnapshot(Path file) throws IOException {
+        long sequence = getLastSequence();
+        SnapshotFile.write(file, sequence, userRepository, postRepository);
+        return sequence;
+    }
+
+    private void append(MutationDTO mutation) {
+        lastSequence = mutation.getSequence();
+        mutations[(int) (lastSequence % mutations.length)] = mutation;
+        notifyAll();
+    }
+}
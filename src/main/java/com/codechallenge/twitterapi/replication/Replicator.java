@@ -0,0 +1,325 @@
+package com.codechallenge.twitterapi.replication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.codechallenge.twitterapi.controller.ReplicationController;
+import com.codechallenge.twitterapi.dto.MutationBatchDTO;
+import com.codechallenge.twitterapi.dto.MutationDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.persistence.SnapshotFile;
+import com.codechallenge.twitterapi.service.MutationApplier;
+import com.codechallenge.twitterapi.service.MutationListener;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostService;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Keeps the repositories of a replica in step with the leader at {@code twitter.replication.leader-url}: loads a
+ * snapshot first, then applies the mutations that follow it, pulled in batches of
+ * {@code twitter.replication.batch-size} by requests the leader holds for up to
+ * {@code twitter.replication.poll-wait-ms} while it has nothing new. The lag is reported in mutations behind the
+ * newest sequence the leader announced, and in milliseconds since the replica was last known to be up to date. When
+ * the leader starts a new log, after a restart, the replica empties its repositories before it loads the new
+ * snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "twitter.replication.role", havingValue = "replica")
+public class Replicator implements SmartInitializingSingleton, MeterBinder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Replicator.class);
+
+    private final String leaderUrl;
+
+    private final int batchSize;
+
+    private final long pollWaitMillis;
+
+    private final long retryIntervalMillis;
+
+    private final RestTemplate restTemplate;
+
+    private final UserRepository userRepository;
+
+    private final PostRepository postRepository;
+
+    private final MutationApplier applier;
+
+    private final MutationPublisher mutations;
+
+    private final PostService postService;
+
+    private final Thread thread = new Thread(this::replicate, "replication");
+
+    private volatile boolean running = true;
+
+    private String logId;
+
+    private boolean snapshotNeeded = true;
+
+    private long appliedSequence;
+
+    private volatile long leaderSequence;
+
+    private volatile long lastContactMillis;
+
+    private volatile long behindSinceMillis = System.currentTimeMillis();
+
+    @Autowired
+    public Replicator(UserRepository userRepository, PostRepository postRepository, PostService postService,
+            MutationPublisher mutations, RestTemplateBuilder restTemplateBuilder,
+            @Value("${twitter.replication.leader-url}") String leaderUrl,
+            @Value("${twitter.replication.batch-size:1000}") int batchSize,
+            @Value("${twitter.replication.poll-wait-ms:1000}") long pollWaitMillis,
+            @Value("${twitter.replication.retry-interval-ms:1000}") long retryIntervalMillis,
+            @Value("${twitter.replication.timeout-ms:2000}") int timeoutMillis) {
+        this.leaderUrl = leaderUrl;
+        this.batchSize = batchSize;
+        this.pollWaitMillis = pollWaitMillis;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.restTemplate = restTemplateBuilder.setConnectTimeout(timeoutMillis)
+                .setReadTimeout((int) (timeoutMillis + pollWaitMillis))
+                .build();
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.applier = new MutationApplier(userRepository, postRepository);
+        this.mutations = mutations;
+        this.postService = postService;
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts replicating once all beans are created, so every mutation listener sees the replicated state. Every
+     * mutation of a replica comes from the leader, so the timelines are updated from the repositories' notifications.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        mutations.addListener(new MutationListener() {
+            @Override
+            public void onPostSaved(Post post) {
+                postService.publishToFollowers(post);
+            }
+
+            @Override
+            public void onFollow(User user, User followedUser) {
+                postService.invalidateTimeline(user.getName());
+            }
+
+            @Override
+            public void onClear() {
+                postService.invalidateAllTimelines();
+            }
+        });
+        thread.start();
+    }
+
+    public synchronized long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public long getLagMutations() {
+        return Math.max(0, leaderSequence - getAppliedSequence());
+    }
+
+    public long getLagMillis() {
+        long behindSince = behindSinceMillis;
+        return behindSince == 0 ? 0 : System.currentTimeMillis() - behindSince;
+    }
+
+    /**
+     * Id of the replication log the replica follows, {@code null} until the first snapshot is loaded.
+     */
+    public synchronized String getLogId() {
+        return logId;
+    }
+
+    /**
+     * Waits until the mutation of the given sequence of the given log is applied and tells whether it is. A
+     * mutation of another log than the one followed is never applied; while a snapshot is being loaded, the log is
+     * not known yet.
+     */
+    public synchronized boolean awaitSequence(String sequenceLogId, long sequence, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (long remaining = timeoutMillis; (logId == null || sequenceLogId.equals(logId)
+                && appliedSequence < sequence) && remaining > 0; remaining = deadline - System.currentTimeMillis()) {
+            wait(remaining);
+        }
+        return sequenceLogId.equals(logId) && appliedSequence >= sequence;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("twitter.replication.sequence", this, Replicator::getAppliedSequence)
+                .description("Sequence of the last mutation of the leader applied")
+                .register(registry);
+        Gauge.builder("twitter.replication.lag", this, Replicator::getLagMutations)
+                .description("Mutations of the leader not applied yet")
+                .baseUnit("mutations")
+                .register(registry);
+        TimeGauge.builder("twitter.replication.lag.time", this, TimeUnit.MILLISECONDS, Replicator::getLagMillis)
+                .description("Time since the replica was last up to date")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void replicate() {
+        while (running) {
+            try {
+                if (snapshotNeeded) {
+                    loadSnapshot();
+                } else {
+                    pullMutations();
+                }
+            } catch (IOException | RestClientException e) {
+                if (behindSinceMillis == 0) {
+                    behindSinceMillis = lastContactMillis;
+                }
+                LOGGER.warn("Cannot replicate from {}: {}", leaderUrl, e.toString());
+                try {
+                    Thread.sleep(retryIntervalMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        URI uri = UriComponentsBuilder.fromHttpUrl(leaderUrl)
+                .path("/replication/snapshot")
+                .build()
+                .toUri();
+        Path snapshot = Files.createTempFile("replica-snapshot", ".bin");
+        try {
+            String snapshotLogId = restTemplate.execute(uri, HttpMethod.GET, null, response -> {
+                Files.copy(response.getBody(), snapshot, StandardCopyOption.REPLACE_EXISTING);
+                return response.getHeaders()
+                        .getFirst(ReplicationController.LOG_ID_HEADER);
+            });
+            if (logId != null && !logId.equals(snapshotLogId)) {
+                clearRepositories();
+            }
+            long sequence = SnapshotFile.read(snapshot, applier);
+            LOGGER.info("Loaded a snapshot of log {} up to mutation {}", snapshotLogId, sequence);
+            synchronized (this) {
+                logId = snapshotLogId;
+                appliedSequence = sequence;
+                snapshotNeeded = false;
+                notifyAll();
+            }
+            updateLag(sequence);
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Starts over from empty repositories: the snapshot of a new log, from a restarted leader, shares nothing with
+     * what was replicated so far, and its post ids may start over too.
+     */
+    private void clearRepositories() {
+        synchronized (this) {
+            logId = null;
+            appliedSequence = 0;
+        }
+        LOGGER.info("Clearing the replicated state before loading a snapshot of a new replication log");
+        userRepository.clear();
+        postRepository.clear();
+        mutations.onClear();
+    }
+
+    private void pullMutations() {
+        URI uri = UriComponentsBuilder.fromHttpUrl(leaderUrl)
+                .path("/replication/mutations")
+                .queryParam("after", getAppliedSequence())
+                .queryParam("limit", batchSize)
+                .queryParam("wait", pollWaitMillis)
+                .build()
+                .toUri();
+        MutationBatchDTO batch;
+        try {
+            batch = restTemplate.getForObject(uri, MutationBatchDTO.class);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.GONE) {
+                throw e;
+            }
+            LOGGER.info("Replica is behind the replication log, loading a new snapshot");
+            snapshotNeeded = true;
+            return;
+        }
+        if (!batch.getLogId()
+                .equals(logId)) {
+            LOGGER.info("Leader started a new replication log, loading a new snapshot");
+            snapshotNeeded = true;
+            return;
+        }
+
+        for (MutationDTO mutation : batch.getMutations()) {
+            apply(mutation);
+            synchronized (this) {
+                appliedSequence = mutation.getSequence();
+                notifyAll();
+            }
+        }
+        updateLag(batch.getLastSequence());
+    }
+
+    private void apply(MutationDTO mutation) {
+        switch (mutation.getType()) {
+        case USER_SAVED:
+            applier.onUserSaved(new User(mutation.getUserName()));
+            break;
+        case POST_SAVED:
+            applier.onPostSaved(new Post(mutation.getPostId(), mutation.getText(), new User(mutation.getUserName()),
+                    mutation.getDateTime()));
+            break;
+        case FOLLOW:
+            applier.onFollow(new User(mutation.getUserName()), new User(mutation.getFollowedUserName()));
+            break;
+        }
+    }
+
+    private void updateLag(long lastSequence) {
+        long now = System.currentTimeMillis();
+        leaderSequence = lastSequence;
+        lastContactMillis = now;
+        if (getAppliedSequence() >= lastSequence) {
+            behindSinceMillis = 0;
+        } else if (behindSinceMillis == 0) {
+            behindSinceMillis = now;
+        }
+    }
+}
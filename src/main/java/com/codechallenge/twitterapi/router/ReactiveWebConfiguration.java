@@ -0,0 +1,94 @@
+package com.codechallenge.twitterapi.router;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.springframework.boot.actuate.metrics.web.reactive.server.WebFluxTags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.web.reactive.server.WebFluxTagsProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.server.ServerWebExchange;
+
+import io.micrometer.core.instrument.Tag;
+
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveWebConfiguration {
+
+    /**
+     * Partitioning and replication route, redirect and tag the requests in servlet filters and controllers, which
+     * the reactive mode does not run. Without them a node would keep users it does not own and a replica would
+     * accept writes, so such a node refuses to start.
+     */
+    public ReactiveWebConfiguration(@Value("${twitter.cluster.enabled:false}") boolean clusterEnabled,
+            @Value("${twitter.replication.role:none}") String replicationRole) {
+        if (clusterEnabled) {
+            throw new IllegalStateException("twitter.cluster.enabled is not supported in the reactive mode");
+        }
+        if (!"none".equals(replicationRole)) {
+            throw new IllegalStateException("twitter.replication.role [" + replicationRole
+                    + "] is not supported in the reactive mode");
+        }
+    }
+
+    /**
+     * Tomcat is on the classpath for the servlet mode and would be picked first; the reactive mode runs on the Netty
+     * event loop instead.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public WebFluxTagsProvider webFluxTagsProvider() {
+        return (exchange, exception) -> Arrays.asList(WebFluxTags.method(exchange), uri(exchange),
+                WebFluxTags.exception(exception), WebFluxTags.status(exchange));
+    }
+
+    /**
+     * Router functions do not expose the pattern they matched, which makes the default {@code uri} tag the full
+     * request URI. The path variables are put back into the path instead, so {@code /users/bob/posts} is tagged as
+     * {@code /users/{userName}/posts}.
+     */
+    static Tag uri(ServerWebExchange exchange) {
+        if (exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) != null) {
+            return WebFluxTags.uri(exchange);
+        }
+        Map<String, String> variables = exchange.getAttribute(RouterFunctions.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null) {
+            return Tag.of("uri", exchange.getResponse()
+                    .getStatusCode() == HttpStatus.NOT_FOUND ? "NOT_FOUND"
+                            : exchange.getRequest()
+                                    .getPath()
+                                    .value());
+        }
+
+        StringJoiner pattern = new StringJoiner("/");
+        for (String segment : exchange.getRequest()
+                .getPath()
+                .value()
+                .split("/", -1)) {
+            pattern.add(templateOf(segment, variables));
+        }
+        return Tag.of("uri", pattern.toString());
+    }
+
+    private static String templateOf(String segment, Map<String, String> variables) {
+        for (Map.Entry<String, String> variable : variables.entrySet()) {
+            if (variable.getValue()
+                    .equals(segment)) {
+                return "{" + variable.getKey() + "}";
+            }
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,406 @@
+package com.codechallenge.twitterapi.router;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.codechallenge.twitterapi.dto.ApiErrorDTO;
+import com.codechallenge.twitterapi.dto.CommentDTO;
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.dto.UserDTO;
+import com.codechallenge.twitterapi.exception.EmptyTimelineException;
+import com.codechallenge.twitterapi.exception.FollowingException;
+import com.codechallenge.twitterapi.exception.PaginationException;
+import com.codechallenge.twitterapi.exception.PostNotFoundException;
+import com.codechallenge.twitterapi.exception.UserNotFoundException;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.PostService;
+import com.codechallenge.twitterapi.service.TimelineSink;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions;
+import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserVersions;
+import com.codechallenge.twitterapi.utils.UserPojoToDtoConverter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import static com.codechallenge.twitterapi.controller.MediaTypes.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
+
+/**
+ * Reactive counterpart of {@link com.codechallenge.twitterapi.controller.UserController}, backed by the same
+ * repositories and services. The repositories are in memory, so they are called on the event loop. Lists are emitted
+ * as {@link Flux}es pulled from the underlying iterators on demand; with {@code Accept: application/x-ndjson} posts
+ * and users are streamed without pagination.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class UserHandler {
+    static final int DEFAULT_PAGE_SIZE = 20;
+
+    static final int MAX_PAGE_SIZE = 200;
+
+    private static final DataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+
+    private final UserRepository userRepository;
+
+    private final PostService postService;
+
+    private final UserVersions userVersions;
+
+    private final Validator validator;
+
+    private final ObjectWriter ndjsonWriter;
+
+    @Autowired
+    public UserHandler(UserRepository userRepository, PostService postService, UserVersions userVersions,
+            Validator validator, ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.postService = postService;
+        this.userVersions = userVersions;
+        this.validator = validator;
+        this.ndjsonWriter = objectMapper.writer();
+    }
+
+    public Mono<ServerResponse> retrieveAllRegistredUsers(ServerRequest request) {
+        Flux<UserDTO> users = Flux.fromIterable(
+                () -> UserPojoToDtoConverter.convert(userRepository.iterateAll(), userRepository));
+        if (acceptsNdjson(request)) {
+            return streamOf(users);
+        }
+        return ServerResponse.ok()
+                .contentType(APPLICATION_JSON_UTF8)
+                .body(users, UserDTO.class);
+    }
+
+    public Mono<ServerResponse> createUser(ServerRequest request) {
+        return request.bodyToMono(UserDTO.class)
+                .flatMap(userDto -> {
+                    User newUser = userRepository.save(new User(userDto.getName()));
+                    return ServerResponse.created(buildLocation(request, newUser.getName()))
+                            .contentType(APPLICATION_JSON_UTF8)
+                            .syncBody(UserPojoToDtoConverter.convert(newUser, userRepository));
+                });
+    }
+
+    public Mono<ServerResponse> retrieveUserDetails(ServerRequest request) {
+        User user = retrieveUserByName(request.pathVariable("userName"));
+        return ServerResponse.ok()
+                .contentType(APPLICATION_JSON_UTF8)
+                .syncBody(UserPojoToDtoConverter.convert(user, userRepository));
+    }
+
+    public Mono<ServerResponse> retrievePostsByUser(ServerRequest request) {
+        String userName = request.pathVariable("userName");
+        User user = retrieveUserByName(userName);
+        Long before = longParam(request, "before");
+        Long after = longParam(request, "after");
+        String eTag = eTag(userVersions.postsVersion(user.getName()));
+        if (isNotModified(request, eTag)) {
+            return notModified(eTag);
+        }
+        if (acceptsNdjson(request)) {
+            return streamOf(ServerResponse.ok()
+                    .eTag(eTag), Flux.fromIterable(() -> postService.iterateByUserName(user.getName(), before, after)));
+        }
+
+        List<PostDTO> posts = postService.findByUserName(user.getName(), limitParam(request, "limit"), before, after);
+        if (posts.isEmpty() && before == null && after == null) {
+            throw new PostNotFoundException(userName);
+        }
+        return pageOf(ServerResponse.ok()
+                .eTag(eTag), posts);
+    }
+
+    public Mono<ServerResponse> retrievePost(ServerRequest request) {
+        String userName = request.pathVariable("userName");
+        long postId = Long.parseLong(request.pathVariable("postId"));
+        User user = retrieveUserByName(userName);
+        PostDTO post = postService.findPost(user.getName(), postId)
+                .orElseThrow(() -> new PostNotFoundException(userName, postId));
+        return ServerResponse.ok()
+                .contentType(APPLICATION_JSON_UTF8)
+                .syncBody(post);
+    }
+
+    public Mono<ServerResponse> addNewPost(ServerRequest request) {
+        String userName = request.pathVariable("userName");
+        return validComment(request).flatMap(comment -> {
+            PostDTO newPost = postService.addNewPost(comment.getText(), userName);
+            return ServerResponse.created(buildLocation(request, String.valueOf(newPost.getId())))
+                    .contentType(APPLICATION_JSON_UTF8)
+                    .syncBody(newPost);
+        });
+    }
+
+    public Mono<ServerResponse> addNewPostAndRetrieveRecentPosts(ServerRequest request) {
+        String userName = request.pathVariable("userName");
+        int recent = limitParam(request, "recent");
+        return validComment(request).flatMap(comment -> {
+            postService.addNewPost(comment.getText(), userName);
+            return ServerResponse.status(HttpStatus.CREATED)
+                    .contentType(APPLICATION_JSON_UTF8)
+                    .body(Flux.fromIterable(postService.findByUserName(userName, recent, null, null)), PostDTO.class);
+        });
+    }
+
+    public Mono<ServerResponse> retrieveFollowedUsers(ServerRequest request) {
+        User user = retrieveUserByName(request.pathVariable("userName"));
+        String eTag = eTag(userVersions.followedUsersVersion(user.getName()));
+        if (isNotModified(request, eTag)) {
+            return notModified(eTag);
+        }
+        List<User> users = userRepository.findAllFollowedUsers(user.getName());
+        if (users.isEmpty()) {
+            throw new EmptyTimelineException(user.getName());
+        }
+        return ServerResponse.ok()
+                .eTag(eTag)
+                .contentType(APPLICATION_JSON_UTF8)
+                .body(Flux.fromIterable(UserPojoToDtoConverter.convert(users, userRepository)), UserDTO.class);
+    }
+
+    public Mono<ServerResponse> startFollowingUser(ServerRequest request) {
+        User user = retrieveUserByName(request.pathVariable("userName"));
+        return request.bodyToMono(UserDTO.class)
+                .flatMap(userToFollowDto -> {
+                    User userToFollow = retrieveUserByName(userToFollowDto.getName());
+                    if (user.equals(userToFollow)) {
+                        throw new FollowingException(user.getName(), userToFollow.getName());
+                    }
+                    if (userRepository.follow(user, userToFollow)) {
+                        postService.invalidateTimeline(user.getName());
+                    }
+                    return ServerResponse.status(HttpStatus.CREATED)
+                            .contentType(APPLICATION_JSON_UTF8)
+                            .body(Flux.fromIterable(UserPojoToDtoConverter.convert(userRepository
+                                    .findAllFollowedUsers(user.getName()), userRepository)), UserDTO.class);
+                });
+    }
+
+    public Mono<ServerResponse> retrieveFollowers(ServerRequest request) {
+        User user = retrieveUserByName(request.pathVariable("userName"));
+        int limit = limitParam(request, "limit");
+        String after = request.queryParam("after")
+                .map(this::retrieveUserByName)
+                .map(User::getName)
+                .orElse(null);
+        List<User> followers = userRepository.findFollowers(user.getName(), after, limit);
+        return ServerResponse.ok()
+                .contentType(APPLICATION_JSON_UTF8)
+                .body(Flux.fromIterable(UserPojoToDtoConverter.convert(followers, userRepository)), UserDTO.class);
+    }
+
+    public Mono<ServerResponse> retrievePostsByOtherUsers(ServerRequest request) {
+        User user = retrieveUserByName(request.pathVariable("userName"));
+        if (userRepository.findAllFollowedUsers(user.getName())
+                .isEmpty()) {
+            throw new EmptyTimelineException(user.getName());
+        }
+        Long before = longParam(request, "before");
+        Long after = longParam(request, "after");
+        String eTag = eTag(userVersions.timelineVersion(user.getName()));
+        if (isNotModified(request, eTag)) {
+            return notModified(eTag);
+        }
+        if (acceptsNdjson(request)) {
+            return streamOf(ServerResponse.ok()
+                    .eTag(eTag), Flux.fromIterable(() -> postService.iterateTimeline(user.getName(), before, after)));
+        }
+        return pageOf(ServerResponse.ok()
+                .eTag(eTag), postService.findTimeline(user.getName(), limitParam(request, "limit"), before, after));
+    }
+
+    /**
+     * Live timeline as server-sent events. The subscription does not block on the sink, so a client that does not
+     * keep up with the posts fails the stream and has to reconnect with its {@code Last-Event-ID}.
+     */
+    public Mono<ServerResponse> streamNewPostsByOtherUsers(ServerRequest request) {
+        User user = retrieveUserByName(request.pathVariable("userName"));
+        Long lastEventId = request.headers()
+                .header("Last-Event-ID")
+                .stream()
+                .findFirst()
+                .map(Long::valueOf)
+                .orElse(null);
+        Flux<ServerSentEvent<PostDTO>> events = Flux.create(emitter -> {
+            TimelineSubscriptions.Subscription subscription = postService.subscribeToTimeline(user.getName(),
+                    lastEventId, new TimelineSink() {
+                        @Override
+                        public void send(PostDTO post) {
+                            emitter.next(ServerSentEvent.builder(post)
+                                    .id(String.valueOf(post.getId()))
+                                    .event("post")
+                                    .build());
+                        }
+
+                        @Override
+                        public void close() {
+                            emitter.complete();
+                        }
+                    });
+            emitter.onDispose(subscription::cancel);
+        }, FluxSink.OverflowStrategy.ERROR);
+        return ServerResponse.ok()
+                .contentType(TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromServerSentEvents(events));
+    }
+
+    /**
+     * Maps the exceptions of the handlers to the same statuses and bodies as the servlet controllers do.
+     */
+    static Mono<ServerResponse> reportErrors(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        return Mono.defer(() -> next.handle(request))
+                .onErrorResume(e -> e instanceof UserNotFoundException || e instanceof FollowingException
+                        || e instanceof PaginationException || e instanceof NumberFormatException
+                        || e instanceof IllegalCommentException,
+                        e -> error(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .onErrorResume(e -> e instanceof PostNotFoundException || e instanceof EmptyTimelineException,
+                        e -> error(HttpStatus.NOT_FOUND, e.getMessage()));
+    }
+
+    private User retrieveUserByName(String userName) {
+        Optional<User> user = userRepository.findByName(userName);
+
+        if (!user.isPresent()) {
+            throw new UserNotFoundException(userName);
+        }
+        return user.get();
+    }
+
+    private Mono<CommentDTO> validComment(ServerRequest request) {
+        return request.bodyToMono(CommentDTO.class)
+                .flatMap(comment -> {
+                    Set<ConstraintViolation<CommentDTO>> violations = validator.validate(comment);
+                    if (violations.isEmpty()) {
+                        return Mono.just(comment);
+                    }
+                    return Mono.error(new IllegalCommentException(violations));
+                });
+    }
+
+    private Mono<ServerResponse> streamOf(Flux<?> records) {
+        return streamOf(ServerResponse.ok(), records);
+    }
+
+    private Mono<ServerResponse> streamOf(ServerResponse.BodyBuilder response, Flux<?> records) {
+        return response.contentType(APPLICATION_NDJSON)
+                .body(records.map(this::toLine), DataBuffer.class);
+    }
+
+    private DataBuffer toLine(Object record) {
+        try {
+            byte[] json = ndjsonWriter.writeValueAsBytes(record);
+            DataBuffer line = BUFFER_FACTORY.allocateBuffer(json.length + 1);
+            return line.write(json)
+                    .write((byte) '\n');
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Mono<ServerResponse> pageOf(ServerResponse.BodyBuilder response, List<PostDTO> posts) {
+        return response.contentType(APPLICATION_JSON_UTF8)
+                .body(Flux.fromIterable(posts), PostDTO.class);
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status)
+                .contentType(APPLICATION_JSON_UTF8)
+                .syncBody(new ApiErrorDTO(status.value(), message));
+    }
+
+    /**
+     * Same weak ETags as the servlet controllers.
+     */
+    private static String eTag(String version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * Weak comparison of {@code If-None-Match}, as a GET allows.
+     */
+    private static boolean isNotModified(ServerRequest request, String eTag) {
+        String opaqueTag = eTag.substring(2);
+        return request.headers()
+                .header(HttpHeaders.IF_NONE_MATCH)
+                .stream()
+                .flatMap(value -> Arrays.stream(StringUtils.commaDelimitedListToStringArray(value)))
+                .map(String::trim)
+                .anyMatch(tag -> "*".equals(tag) || opaqueTag.equals(tag.startsWith("W/") ? tag.substring(2) : tag));
+    }
+
+    private static Mono<ServerResponse> notModified(String eTag) {
+        return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .build();
+    }
+
+    private static boolean acceptsNdjson(ServerRequest request) {
+        return request.headers()
+                .accept()
+                .stream()
+                .anyMatch(APPLICATION_NDJSON::includes);
+    }
+
+    private static Long longParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .map(Long::valueOf)
+                .orElse(null);
+    }
+
+    private static int limitParam(ServerRequest request, String name) {
+        int limit = request.queryParam(name)
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_PAGE_SIZE);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new PaginationException(limit, MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    private static URI buildLocation(ServerRequest request, String resourceId) {
+        return UriComponentsBuilder.fromUri(request.uri())
+                .replaceQuery(null)
+                .path("/{resourceId}")
+                .buildAndExpand(resourceId)
+                .toUri();
+    }
+
+    private static final class IllegalCommentException extends RuntimeException {
+        IllegalCommentException(Set<ConstraintViolation<CommentDTO>> violations) {
+            super(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+}
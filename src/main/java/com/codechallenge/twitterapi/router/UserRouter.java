@@ -0,0 +1,45 @@
+package com.codechallenge.twitterapi.router;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.path;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.nest;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Routes of the reactive mode (profile {@code reactive}), mirroring the {@code /users} endpoints of
+ * {@link com.codechallenge.twitterapi.controller.UserController}. WebFlux has no context path, so the servlet one is
+ * prepended to the routes.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class UserRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> userRoutes(UserHandler userHandler,
+            @Value("${server.servlet.context-path:}") String contextPath) {
+        return nest(path(contextPath + "/users"),
+                route(GET("/{userName}/posts/{postId}"), userHandler::retrievePost)
+                        .andRoute(GET("/{userName}/posts"), userHandler::retrievePostsByUser)
+                        .andRoute(POST("/{userName}/posts").and(queryParam("recent", recent -> true)),
+                                userHandler::addNewPostAndRetrieveRecentPosts)
+                        .andRoute(POST("/{userName}/posts"), userHandler::addNewPost)
+                        .andRoute(GET("/{userName}/followed-users"), userHandler::retrieveFollowedUsers)
+                        .andRoute(POST("/{userName}/followed-users"), userHandler::startFollowingUser)
+                        .andRoute(GET("/{userName}/followers"), userHandler::retrieveFollowers)
+                        .andRoute(GET("/{userName}/timelines"), userHandler::retrievePostsByOtherUsers)
+                        .andRoute(GET("/{userName}/timelines/stream"), userHandler::streamNewPostsByOtherUsers)
+                        .andRoute(GET("/{userName}"), userHandler::retrieveUserDetails)
+                        .andRoute(GET("/"), userHandler::retrieveAllRegistredUsers)
+                        .andRoute(POST("/"), userHandler::createUser)).filter(UserHandler::reportErrors);
+    }
+}
@@ -0,0 +1,260 @@
+package com.codechallenge.twitterapi.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+/**
+ * Immutable file of compressed blocks of posts, read through a memory mapping. A block holds consecutive posts of one
+ * user, deflated; the file has no index of its own, the {@link Block}s referring to it are kept in memory.
+ */
+final class ColdSegment {
+    static final String PREFIX = "cold-";
+
+    static final String SUFFIX = ".seg";
+
+    private final Path path;
+
+    private MappedByteBuffer mapping;
+
+    private ColdSegment(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Posts of one user as variable-length integers, deflated: the id and epoch second as differences to the previous
+     * post, the nanoseconds and the length of the UTF-8 text, followed by the text.
+     */
+    static final class Block {
+        private final ColdSegment segment;
+
+        private final int offset;
+
+        private final int length;
+
+        private final int rawLength;
+
+        private final long firstId;
+
+        private final long lastId;
+
+        private final int size;
+
+        private Block(ColdSegment segment, int offset, int length, int rawLength, long firstId, long lastId,
+                int size) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.rawLength = rawLength;
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.size = size;
+        }
+
+        long firstId() {
+            return firstId;
+        }
+
+        long lastId() {
+            return lastId;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Post[] read(User author) {
+            byte[] compressed = new byte[length];
+            ByteBuffer source = segment.mapping.duplicate();
+            source.position(offset);
+            source.get(compressed);
+            byte[] raw = new byte[rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                inflater.inflate(raw);
+            } catch (DataFormatException e) {
+                throw new UncheckedIOException(new IOException("Corrupt block in " + segment.path, e));
+            } finally {
+                inflater.end();
+            }
+
+            ByteBuffer in = ByteBuffer.wrap(raw);
+            Post[] posts = new Post[size];
+            long id = 0;
+            long epochSecond = 0;
+            for (int i = 0; i < size; i++) {
+                id += readVarLong(in);
+                epochSecond += zigZagDecode(readVarLong(in));
+                int nano = (int) readVarLong(in);
+                byte[] text = new byte[(int) readVarLong(in)];
+                in.get(text);
+                posts[i] = new Post(id, new String(text, StandardCharsets.UTF_8), author,
+                        LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+            }
+            return posts;
+        }
+    }
+
+    /**
+     * Writes blocks into new segment files of about {@code segmentSize} bytes. The blocks can be read once
+     * {@link #finish()} has synced and mapped the files.
+     */
+    static final class Writer implements Closeable {
+        private final Path directory;
+
+        private final int segmentSize;
+
+        private final List<ColdSegment> segments = new ArrayList<>();
+
+        private final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+
+        private final Deflater deflater = new Deflater();
+
+        private byte[] compressed = new byte[4096];
+
+        private long nextSegmentIndex;
+
+        private FileChannel channel;
+
+        private int position;
+
+        Writer(Path directory, long firstSegmentIndex, int segmentSize) {
+            this.directory = directory;
+            this.nextSegmentIndex = firstSegmentIndex;
+            this.segmentSize = segmentSize;
+        }
+
+        /**
+         * Writes the posts, in ascending id order, as one block.
+         */
+        Block write(Post[] posts, int from, int to) throws IOException {
+            raw.reset();
+            long previousId = 0;
+            long previousEpochSecond = 0;
+            for (int i = from; i < to; i++) {
+                Post post = posts[i];
+                long epochSecond = post.getDateTime()
+                        .toEpochSecond(ZoneOffset.UTC);
+                byte[] text = post.getText()
+                        .getBytes(StandardCharsets.UTF_8);
+                writeVarLong(raw, post.getId() - previousId);
+                writeVarLong(raw, zigZagEncode(epochSecond - previousEpochSecond));
+                writeVarLong(raw, post.getDateTime()
+                        .getNano());
+                writeVarLong(raw, text.length);
+                raw.write(text, 0, text.length);
+                previousId = post.getId();
+                previousEpochSecond = epochSecond;
+            }
+
+            deflater.reset();
+            deflater.setInput(raw.toByteArray());
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+
+            if (channel == null || position + length > segmentSize && position > 0) {
+                startSegment();
+            }
+            ByteBuffer block = ByteBuffer.wrap(compressed, 0, length);
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+            ColdSegment segment = segments.get(segments.size() - 1);
+            Block written = new Block(segment, position, length, raw.size(), posts[from].getId(), posts[to - 1]
+                    .getId(), to - from);
+            position += length;
+            return written;
+        }
+
+        /**
+         * Syncs and maps the written segments and returns them.
+         */
+        List<ColdSegment> finish() throws IOException {
+            closeSegment();
+            for (ColdSegment segment : segments) {
+                try (FileChannel file = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                    segment.mapping = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                }
+            }
+            return segments;
+        }
+
+        long nextSegmentIndex() {
+            return nextSegmentIndex;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            closeSegment();
+        }
+
+        private void startSegment() throws IOException {
+            closeSegment();
+            Path path = directory.resolve(String.format("%s%020d%s", PREFIX, nextSegmentIndex++, SUFFIX));
+            channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            segments.add(new ColdSegment(path));
+            position = 0;
+        }
+
+        private void closeSegment() throws IOException {
+            if (channel != null) {
+                channel.force(true);
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,297 @@
+package com.codechallenge.twitterapi.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.cluster.PostIdGenerator;
+import com.codechallenge.twitterapi.cluster.ShardRing;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+/**
+ * Post storage selected with {@code twitter.storage.mode=columnar}. Instead of one object graph per post, every
+ * post is a row of primitive columns: the id, the publishing time in epoch milliseconds (UTC), the dictionary id of
+ * the author and an offset into a byte arena holding the UTF-8 text. The arena lives off-heap when
+ * {@code twitter.storage.off-heap=true}. {@link Post} objects are only created when a row is read.
+ * <p>
+ * The rows are kept in chunks of {@value #ROWS_PER_CHUNK}, each with an arena of its own, and a chunk never moves
+ * once allocated. Writers only share a short lock to reserve a row and the room for its text, and fill the row under
+ * the lock of its author, so posts of different users are written side by side.
+ */
+@Component
+@ConditionalOnProperty(name = "twitter.storage.mode", havingValue = "columnar")
+public class ColumnarPostRepository implements PostRepository {
+    private static final int ROWS_PER_CHUNK = 1024;
+
+    private static final int ARENA_BYTES_PER_CHUNK = ROWS_PER_CHUNK * 64;
+
+    private final UserNameDictionary userNames;
+
+    private final boolean offHeap;
+
+    private final MutationListener mutations;
+
+    private final Object layoutLock = new Object();
+
+    private volatile Chunk[] chunks;
+
+    private volatile AuthorRows[] rowsByAuthor = new AuthorRows[16];
+
+    private volatile User[] authors = new User[16];
+
+    private final AtomicLong postCount = new AtomicLong();
+
+    private final PostIds ids;
+
+    public ColumnarPostRepository(UserNameDictionary userNames, MutationPublisher mutations, boolean offHeap) {
+        this(userNames, mutations, new PostIdGenerator(ShardRing.singleNode()), offHeap);
+    }
+
+    @Autowired
+    public ColumnarPostRepository(UserNameDictionary userNames, MutationPublisher mutations, PostIdGenerator postIds,
+            @Value("${twitter.storage.off-heap:false}") boolean offHeap) {
+        this.ids = new PostIds(postIds);
+        this.userNames = userNames;
+        this.mutations = mutations;
+        this.offHeap = offHeap;
+        this.chunks = new Chunk[] { new Chunk(allocate(ARENA_BYTES_PER_CHUNK)) };
+    }
+
+    @Override
+    public Post save(Post post) {
+        int author = userNames.intern(post.getUser()
+                .getName());
+        AuthorRows authorRows = rowsOf(author, post.getUser());
+        synchronized (authorRows) {
+            return add(authorRows, author, ids.next(), post);
+        }
+    }
+
+    @Override
+    public Post restore(Post post) {
+        int author = userNames.intern(post.getUser()
+                .getName());
+        AuthorRows authorRows = rowsOf(author, post.getUser());
+        synchronized (authorRows) {
+            if (lastId(authorRows) >= post.getId()) {
+                return post;
+            }
+            ids.restored(post.getId());
+            return add(authorRows, author, post.getId(), post);
+        }
+    }
+
+    @Override
+    public List<Post> findByUserName(String userName) {
+        int author = userNames.findId(userName);
+        AuthorRows[] allRows = rowsByAuthor;
+        if (author < 0 || author >= allRows.length || allRows[author] == null) {
+            return Collections.emptyList();
+        }
+        // the size is read first: the rows and chunks published before it are at least as recent
+        int size = allRows[author].size;
+        int[] rows = allRows[author].rows;
+        return new PostView(chunks, rows, size, authors[author]);
+    }
+
+    @Override
+    public long count() {
+        return postCount.get();
+    }
+
+    @Override
+    public void clear() {
+        synchronized (layoutLock) {
+            rowsByAuthor = new AuthorRows[16];
+            authors = new User[16];
+            chunks = new Chunk[] { new Chunk(allocate(ARENA_BYTES_PER_CHUNK)) };
+            postCount.set(0);
+        }
+    }
+
+    private Post add(AuthorRows authorRows, int author, long id, Post post) {
+        byte[] text = post.getText()
+                .getBytes(StandardCharsets.UTF_8);
+        int row = reserveRow(text.length);
+        chunks[row / ROWS_PER_CHUNK].write(row % ROWS_PER_CHUNK, id, post.getDateTime()
+                .toInstant(ZoneOffset.UTC)
+                .toEpochMilli(), author, text);
+        authorRows.append(row);
+        postCount.incrementAndGet();
+
+        Post savedPost = new Post(id, post.getText(), post.getUser(), post.getDateTime());
+        mutations.onPostSaved(savedPost);
+        return savedPost;
+    }
+
+    /**
+     * Reserves the next row and the room for its text, in a new chunk when the last one is full. A text larger than
+     * the arena of a chunk gets a chunk of its own.
+     */
+    private int reserveRow(int textLength) {
+        synchronized (layoutLock) {
+            Chunk[] allChunks = chunks;
+            Chunk last = allChunks[allChunks.length - 1];
+            if (!last.fits(textLength)) {
+                last = new Chunk(allocate(Math.max(ARENA_BYTES_PER_CHUNK, textLength)));
+                allChunks = Arrays.copyOf(allChunks, allChunks.length + 1);
+                allChunks[allChunks.length - 1] = last;
+                chunks = allChunks;
+            }
+            return (allChunks.length - 1) * ROWS_PER_CHUNK + last.reserve(textLength);
+        }
+    }
+
+    private long lastId(AuthorRows authorRows) {
+        int size = authorRows.size;
+        if (size == 0) {
+            return 0;
+        }
+        int row = authorRows.rows[size - 1];
+        return chunks[row / ROWS_PER_CHUNK].ids[row % ROWS_PER_CHUNK];
+    }
+
+    private AuthorRows rowsOf(int author, User user) {
+        AuthorRows[] allRows = rowsByAuthor;
+        if (author < allRows.length && allRows[author] != null) {
+            return allRows[author];
+        }
+        synchronized (layoutLock) {
+            allRows = rowsByAuthor;
+            User[] allAuthors = authors;
+            if (author >= allRows.length) {
+                int capacity = Math.max(allRows.length * 2, author + 1);
+                allRows = Arrays.copyOf(allRows, capacity);
+                allAuthors = Arrays.copyOf(allAuthors, capacity);
+            }
+            if (allRows[author] == null) {
+                allRows[author] = new AuthorRows();
+                allAuthors[author] = user;
+            }
+            authors = allAuthors;
+            rowsByAuthor = allRows;
+            return allRows[author];
+        }
+    }
+
+    private ByteBuffer allocate(int size) {
+        return offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    /**
+     * Columns of up to {@value ColumnarPostRepository#ROWS_PER_CHUNK} rows and the arena of their texts. Rows are
+     * reserved under the layout lock and written under the lock of their author, each writer on its own duplicate
+     * of the arena.
+     */
+    private static final class Chunk {
+        private final long[] ids = new long[ROWS_PER_CHUNK];
+
+        private final long[] epochMillis = new long[ROWS_PER_CHUNK];
+
+        private final int[] authors = new int[ROWS_PER_CHUNK];
+
+        private final int[] textOffsets = new int[ROWS_PER_CHUNK + 1];
+
+        private final ByteBuffer arena;
+
+        private int reservedRows;
+
+        Chunk(ByteBuffer arena) {
+            this.arena = arena;
+        }
+
+        boolean fits(int textLength) {
+            return reservedRows < ROWS_PER_CHUNK && textOffsets[reservedRows] + textLength <= arena.capacity();
+        }
+
+        int reserve(int textLength) {
+            int row = reservedRows++;
+            textOffsets[row + 1] = textOffsets[row] + textLength;
+            return row;
+        }
+
+        void write(int row, long id, long millis, int author, byte[] text) {
+            ids[row] = id;
+            epochMillis[row] = millis;
+            authors[row] = author;
+            ByteBuffer target = arena.duplicate();
+            target.position(textOffsets[row]);
+            target.put(text);
+        }
+
+        Post read(int row, User author) {
+            int offset = textOffsets[row];
+            byte[] text = new byte[textOffsets[row + 1] - offset];
+            ByteBuffer source = arena.duplicate();
+            source.position(offset);
+            source.get(text);
+            LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis[row]), ZoneOffset.UTC);
+            return new Post(ids[row], new String(text, StandardCharsets.UTF_8), author, dateTime);
+        }
+    }
+
+    /**
+     * Rows of one author in publishing order. Only written under its own lock, which also keeps the ids of the
+     * author in order.
+     */
+    private static final class AuthorRows {
+        private volatile int[] rows = new int[4];
+
+        private volatile int size;
+
+        void append(int row) {
+            int[] current = rows;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = row;
+            rows = current;
+            size = size + 1;
+        }
+    }
+
+    private static final class PostView extends AbstractList<Post> implements RandomAccess {
+        private final Chunk[] chunks;
+
+        private final int[] rows;
+
+        private final int size;
+
+        private final User author;
+
+        PostView(Chunk[] chunks, int[] rows, int size, User author) {
+            this.chunks = chunks;
+            this.rows = rows;
+            this.size = size;
+            this.author = author;
+        }
+
+        @Override
+        public Post get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            int row = rows[index];
+            return chunks[row / ROWS_PER_CHUNK].read(row % ROWS_PER_CHUNK, author);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
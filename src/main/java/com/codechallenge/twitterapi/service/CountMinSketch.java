@@ -0,0 +1,66 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.Arrays;
+
+/**
+ * Approximate counts of strings in a fixed amount of memory. A count is never underestimated; it is overestimated by
+ * the collisions of the key in the least loaded of the {@link #DEPTH} rows. Sketches of the same width can be
+ * subtracted, which is how an expired time bucket is taken out of a total.
+ */
+class CountMinSketch {
+    static final int DEPTH = 4;
+
+    private final int[] counters;
+
+    private final int mask;
+
+    CountMinSketch(int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Width [" + width + "] must be a power of two");
+        }
+        this.counters = new int[DEPTH * width];
+        this.mask = width - 1;
+    }
+
+    void add(String key) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash) | 1;
+        for (int row = 0; row < DEPTH; row++) {
+            counters[cell(row, hash, step)]++;
+        }
+    }
+
+    int estimate(String key) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash) | 1;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[cell(row, hash, step)]);
+        }
+        return estimate;
+    }
+
+    void subtract(CountMinSketch other) {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] -= other.counters[i];
+        }
+    }
+
+    void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    /**
+     * Double hashing: row {@code i} uses {@code hash + i * step}, the step being odd.
+     */
+    private int cell(int row, int hash, int step) {
+        return row * (mask + 1) + ((hash + row * step) & mask);
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ h >>> 13;
+    }
+}
@@ -0,0 +1,133 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Who-follows-whom, keyed by the ids of {@link UserNameDictionary}. The followed users and the followers of every
+ * user are kept in sorted {@code int[]}s that are replaced on every change, so readers never lock and never see a
+ * half-updated set. Every set is published on its own through an {@link AtomicReferenceArray}, which is itself
+ * replaced by a larger copy when new ids need room.
+ */
+@Component
+public class FollowGraph {
+    private static final int[] NO_USERS = new int[0];
+
+    private final UserNameDictionary userNames;
+
+    private volatile AtomicReferenceArray<int[]> followedUsers = new AtomicReferenceArray<>(16);
+
+    private volatile AtomicReferenceArray<int[]> followers = new AtomicReferenceArray<>(16);
+
+    private volatile long edgeCount;
+
+    @Autowired
+    public FollowGraph(UserNameDictionary userNames) {
+        this.userNames = userNames;
+    }
+
+    public int intern(String userName) {
+        return userNames.intern(userName);
+    }
+
+    public int findId(String userName) {
+        return userNames.findId(userName);
+    }
+
+    public String nameOf(int id) {
+        return userNames.nameOf(id);
+    }
+
+    public int size() {
+        return userNames.size();
+    }
+
+    public boolean follow(String userName, String userNameToFollow) {
+        int id = intern(userName);
+        int idToFollow = intern(userNameToFollow);
+
+        synchronized (this) {
+            followedUsers = ensureCapacity(followedUsers, id);
+            int[] followed = followedIds(id);
+            int index = Arrays.binarySearch(followed, idToFollow);
+            if (index >= 0) {
+                return false;
+            }
+
+            // the reverse edge goes first, so whoever sees the follow sees the follower too
+            followers = ensureCapacity(followers, idToFollow);
+            int[] followersOfFollowed = followerIds(idToFollow);
+            followers.set(idToFollow, insert(followersOfFollowed, -Arrays.binarySearch(followersOfFollowed, id) - 1,
+                    id));
+
+            followedUsers.set(id, insert(followed, -index - 1, idToFollow));
+            edgeCount++;
+            return true;
+        }
+    }
+
+    public synchronized void clear() {
+        followedUsers = new AtomicReferenceArray<>(16);
+        followers = new AtomicReferenceArray<>(16);
+        edgeCount = 0;
+    }
+
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    public boolean isFollowing(String userName, String followedUserName) {
+        int id = findId(userName);
+        int followedId = findId(followedUserName);
+        return id >= 0 && followedId >= 0 && isFollowing(id, followedId);
+    }
+
+    public boolean isFollowing(int id, int followedId) {
+        return Arrays.binarySearch(followedIds(id), followedId) >= 0;
+    }
+
+    /**
+     * Returns the sorted ids of the users followed by the given user. The array must not be modified.
+     */
+    public int[] followedIds(int id) {
+        return row(followedUsers, id);
+    }
+
+    /**
+     * Returns the sorted ids of the users following the given user. The array must not be modified.
+     */
+    public int[] followerIds(int id) {
+        return row(followers, id);
+    }
+
+    private static int[] row(AtomicReferenceArray<int[]> adjacency, int id) {
+        int[] ids = id >= 0 && id < adjacency.length() ? adjacency.get(id) : null;
+        return ids != null ? ids : NO_USERS;
+    }
+
+    /**
+     * Returns the adjacency itself when it has room for the id, otherwise a larger copy; only called under the lock,
+     * so no set is published into the old one meanwhile.
+     */
+    private static AtomicReferenceArray<int[]> ensureCapacity(AtomicReferenceArray<int[]> adjacency, int id) {
+        if (id < adjacency.length()) {
+            return adjacency;
+        }
+        AtomicReferenceArray<int[]> larger = new AtomicReferenceArray<>(Math.max(adjacency.length() * 2, id + 1));
+        for (int i = 0; i < adjacency.length(); i++) {
+            larger.set(i, adjacency.get(i));
+        }
+        return larger;
+    }
+
+    private static int[] insert(int[] sortedIds, int index, int id) {
+        int[] result = new int[sortedIds.length + 1];
+        System.arraycopy(sortedIds, 0, result, 0, index);
+        result[index] = id;
+        System.arraycopy(sortedIds, index, result, index + 1, sortedIds.length - index);
+        return result;
+    }
+}
@@ -0,0 +1,12 @@
+package com.codechallenge.twitterapi.service;
+
+/**
+ * List of posts in ascending id order that locates an id without reading the posts a binary search would visit.
+ */
+interface IndexedPostList {
+
+    /**
+     * Returns the index of the first post whose id is not lower than {@code before}, the size if there is none.
+     */
+    int indexOfFirstNotBefore(long before);
+}
@@ -0,0 +1,56 @@
+package com.codechallenge.twitterapi.service;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+/**
+ * Applies mutations recorded elsewhere (a log, a snapshot, another node) to the repositories. Users are resolved
+ * by name, so restored posts and follows share the repository's user instances. An applier is meant to be used by
+ * a single thread.
+ */
+public class MutationApplier implements MutationListener {
+    private final UserRepository userRepository;
+
+    private final PostRepository postRepository;
+
+    private User lastUser;
+
+    private User lastResolvedUser;
+
+    public MutationApplier(UserRepository userRepository, PostRepository postRepository) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+    }
+
+    @Override
+    public void onUserSaved(User user) {
+        if (!userRepository.userExists(user.getName())) {
+            userRepository.save(user);
+        }
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        User author = resolve(post.getUser());
+        postRepository.restore(author == post.getUser() ? post
+                : new Post(post.getId(), post.getText(), author, post.getDateTime()));
+    }
+
+    @Override
+    public void onFollow(User user, User followedUser) {
+        // a user of another node is not registered by a follow
+        userRepository.follow(userRepository.findByName(user.getName())
+                .orElse(user), userRepository.findByName(followedUser.getName())
+                        .orElse(followedUser));
+    }
+
+    // restored posts come grouped by author, so remembering the last author saves most of the lookups
+    private User resolve(User user) {
+        if (user != lastUser) {
+            lastResolvedUser = userRepository.findByName(user.getName())
+                    .orElseGet(() -> userRepository.save(user));
+            lastUser = user;
+        }
+        return lastResolvedUser;
+    }
+}
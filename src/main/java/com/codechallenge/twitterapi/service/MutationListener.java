@@ -0,0 +1,25 @@
+package com.codechallenge.twitterapi.service;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+/**
+ * Receives every change applied to the repositories. Post notifications of one user arrive in publishing order.
+ */
+public interface MutationListener {
+
+    default void onUserSaved(User user) {
+    }
+
+    default void onPostSaved(Post post) {
+    }
+
+    default void onFollow(User user, User followedUser) {
+    }
+
+    /**
+     * Every repository was emptied, by a replica starting over from the snapshot of a new replication log.
+     */
+    default void onClear() {
+    }
+}
@@ -0,0 +1,50 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+@Component
+public class MutationPublisher implements MutationListener {
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(MutationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MutationListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void onUserSaved(User user) {
+        for (MutationListener listener : listeners) {
+            listener.onUserSaved(user);
+        }
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        for (MutationListener listener : listeners) {
+            listener.onPostSaved(post);
+        }
+    }
+
+    @Override
+    public void onFollow(User user, User followedUser) {
+        for (MutationListener listener : listeners) {
+            listener.onFollow(user, followedUser);
+        }
+    }
+
+    @Override
+    public void onClear() {
+        for (MutationListener listener : listeners) {
+            listener.onClear();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codechallenge.twitterapi.cluster.PostIdGenerator;
+
+/**
+ * Draws the ids of the new posts of a repository: from the {@link PostIdGenerator} in a partitioned deployment,
+ * otherwise one after the other. New ids are drawn above every restored one. Repositories draw them under the lock
+ * of the author, so the posts of a user are stored in id order.
+ */
+final class PostIds {
+    private final PostIdGenerator generator;
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    PostIds(PostIdGenerator generator) {
+        this.generator = generator;
+    }
+
+    long next() {
+        long id = generator.nextId();
+        if (id == 0) {
+            return lastId.incrementAndGet();
+        }
+        lastId.accumulateAndGet(id, Math::max);
+        return id;
+    }
+
+    void restored(long id) {
+        lastId.accumulateAndGet(id, Math::max);
+        generator.advancePast(id);
+    }
+}
@@ -0,0 +1,136 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.codechallenge.twitterapi.model.Post;
+
+/**
+ * Heap-based k-way merge of per-user post lists. Every list has to be in publishing (ascending id) order; posts are
+ * returned newest first, restricted to ids between {@code after} and {@code before} (both exclusive). Posts that are
+ * fetched as they are needed come as iterators in the opposite, newest first, order.
+ */
+public class PostMergeIterator implements Iterator<Post> {
+    private final PriorityQueue<Cursor> heads;
+
+    private final long after;
+
+    public PostMergeIterator(List<List<Post>> postLists, long before, long after) {
+        this(postLists, Collections.emptyList(), before, after);
+    }
+
+    public PostMergeIterator(List<List<Post>> postLists, List<Iterator<Post>> newestFirstPosts, long before,
+            long after) {
+        this.heads = new PriorityQueue<>(Math.max(1, postLists.size() + newestFirstPosts.size()),
+                (cursor1, cursor2) -> Long.compare(cursor2.current.getId(), cursor1.current.getId()));
+        this.after = after;
+
+        for (List<Post> posts : postLists) {
+            int index = indexOfFirstNotBefore(posts, before) - 1;
+            if (index >= 0) {
+                Cursor cursor = new ListCursor(posts, index);
+                if (cursor.current.getId() > after) {
+                    heads.add(cursor);
+                }
+            }
+        }
+        for (Iterator<Post> posts : newestFirstPosts) {
+            Cursor cursor = new IteratorCursor(posts);
+            while (cursor.moveToPrevious()) {
+                if (cursor.current.getId() < before) {
+                    if (cursor.current.getId() > after) {
+                        heads.add(cursor);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    public static PostMergeIterator newestFirst(List<List<Post>> postLists) {
+        return new PostMergeIterator(postLists, Long.MAX_VALUE, Long.MIN_VALUE);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public Post next() {
+        Cursor cursor = heads.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        Post post = cursor.current;
+        if (cursor.moveToPrevious() && cursor.current.getId() > after) {
+            heads.add(cursor);
+        }
+        return post;
+    }
+
+    static int indexOfFirstNotBefore(List<Post> posts, long before) {
+        if (posts instanceof IndexedPostList) {
+            return ((IndexedPostList) posts).indexOfFirstNotBefore(before);
+        }
+        int low = 0;
+        int high = posts.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (posts.get(middle)
+                    .getId() < before) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private abstract static class Cursor {
+        Post current;
+
+        abstract boolean moveToPrevious();
+    }
+
+    private static class ListCursor extends Cursor {
+        private final List<Post> posts;
+
+        private int index;
+
+        ListCursor(List<Post> posts, int index) {
+            this.posts = posts;
+            this.index = index;
+            this.current = posts.get(index);
+        }
+
+        @Override
+        boolean moveToPrevious() {
+            if (--index < 0) {
+                return false;
+            }
+            current = posts.get(index);
+            return true;
+        }
+    }
+
+    private static class IteratorCursor extends Cursor {
+        private final Iterator<Post> newestFirst;
+
+        IteratorCursor(Iterator<Post> newestFirst) {
+            this.newestFirst = newestFirst;
+        }
+
+        @Override
+        boolean moveToPrevious() {
+            if (!newestFirst.hasNext()) {
+                return false;
+            }
+            current = newestFirst.next();
+            return true;
+        }
+    }
+}
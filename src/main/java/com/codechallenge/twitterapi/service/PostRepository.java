@@ -1,12 +1,45 @@
 package com.codechallenge.twitterapi.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.codechallenge.twitterapi.model.Post;
-import com.codechallenge.twitterapi.model.User;
 
 public interface PostRepository {
+
+    /**
+     * Saves a new post and returns it with its id, drawn when the post is stored, so the ids of a user grow in
+     * publishing order. The id of the given post is ignored.
+     */
     Post save(Post post);
 
+    /**
+     * Saves a post restored with its id, from a log, a snapshot or another node, and returns it. It is ignored if
+     * the user already has a post with the same or a higher id, which makes restoring posts idempotent.
+     */
+    Post restore(Post post);
+
+    /**
+     * Saves the new posts in the given order and returns them with their ids, like {@link #save(Post)} does.
+     * Implementations may save consecutive posts of the same user in one step.
+     */
+    default List<Post> saveAll(List<Post> posts) {
+        List<Post> savedPosts = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            savedPosts.add(save(post));
+        }
+        return savedPosts;
+    }
+
+    /**
+     * Returns an immutable snapshot of the posts of the user in publishing order.
+     */
     List<Post> findByUserName(String userName);
+
+    long count();
+
+    /**
+     * Removes all posts, without notifying the mutation listeners.
+     */
+    void clear();
 }
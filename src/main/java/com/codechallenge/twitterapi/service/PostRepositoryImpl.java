@@ -2,45 +2,95 @@ package com.codechallenge.twitterapi.service;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import com.codechallenge.twitterapi.cluster.PostIdGenerator;
+import com.codechallenge.twitterapi.cluster.ShardRing;
 import com.codechallenge.twitterapi.model.Post;
 import com.codechallenge.twitterapi.model.User;
 
 @Component
+@ConditionalOnProperty(name = "twitter.storage.mode", havingValue = "heap", matchIfMissing = true)
 public class PostRepositoryImpl implements PostRepository {
-    private Map<String, List<Post>> allPosts = new HashMap<>();
+    private final Map<String, PostSegment> allPosts = new ConcurrentHashMap<>();
+
+    private final PostIds ids;
+
+    private final UserNameDictionary userNames;
+
+    private final MutationListener mutations;
+
+    public PostRepositoryImpl(UserNameDictionary userNames, MutationPublisher mutations) {
+        this(userNames, mutations, new PostIdGenerator(ShardRing.singleNode()));
+    }
+
+    @Autowired
+    public PostRepositoryImpl(UserNameDictionary userNames, MutationPublisher mutations, PostIdGenerator postIds) {
+        this.userNames = userNames;
+        this.mutations = mutations;
+        this.ids = new PostIds(postIds);
+    }
 
     @Override
     public Post save(Post post) {
-        List<Post> userPosts = getAllUserPosts(post.getUser());
-        userPosts.add(post);
-        return getLatestPost(userPosts);
+        PostSegment userPosts = getAllUserPosts(post.getUser());
+        return userPosts.append(post, ids, mutations);
+    }
+
+    @Override
+    public Post restore(Post post) {
+        return getAllUserPosts(post.getUser()).restore(post, ids, mutations);
+    }
+
+    @Override
+    public List<Post> saveAll(List<Post> posts) {
+        List<Post> savedPosts = new ArrayList<>(posts.size());
+        int from = 0;
+        while (from < posts.size()) {
+            User user = posts.get(from)
+                    .getUser();
+            int to = from + 1;
+            while (to < posts.size() && posts.get(to)
+                    .getUser()
+                    .equals(user)) {
+                to++;
+            }
+            savedPosts.addAll(getAllUserPosts(user).appendAll(posts.subList(from, to), ids, mutations));
+            from = to;
+        }
+        return savedPosts;
     }
 
     @Override
     public List<Post> findByUserName(String userName) {
-        List<Post> userPosts = allPosts.get(userName.toLowerCase());
+        PostSegment userPosts = allPosts.get(userNames.canonicalName(userName));
 
-        return userPosts != null ? userPosts : Collections.emptyList();
+        return userPosts != null ? userPosts.snapshot() : Collections.emptyList();
     }
 
-    private List<Post> getAllUserPosts(User user) {
-        List<Post> userPosts = allPosts.get(user.getName()
-                .toLowerCase());
-        if (userPosts == null) {
-            userPosts = new ArrayList<>();
-            allPosts.put(user.getName()
-                    .toLowerCase(), userPosts);
+    @Override
+    public long count() {
+        long count = 0;
+        for (PostSegment userPosts : allPosts.values()) {
+            count += userPosts.snapshot()
+                    .size();
         }
-        return userPosts;
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        allPosts.clear();
     }
 
-    private Post getLatestPost(List<Post> userPosts) {
-        return userPosts.get(userPosts.size() - 1);
+    private PostSegment getAllUserPosts(User user) {
+        String userName = userNames.nameOf(userNames.intern(user.getName()));
+        return allPosts.computeIfAbsent(userName, key -> new PostSegment());
     }
 }
@@ -0,0 +1,145 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.model.Post;
+
+/**
+ * Inverted index of the words of the posts, updated as posts are saved. A word is a run of letters and digits, so
+ * {@code #java} and {@code @java} are found as {@code java}; case is ignored. Each word maps to a {@link PostingList}
+ * of the ids of the posts containing it, which is what lets a search walk from the newest matching post down and stop
+ * as soon as it has a page.
+ */
+@Component
+public class PostSearchIndex implements MutationListener {
+    private final Map<String, PostingList> postingsByWord = new ConcurrentHashMap<>();
+
+    private final PostRepository postRepository;
+
+    private final UserNameDictionary userNames;
+
+    @Autowired
+    public PostSearchIndex(PostRepository postRepository, UserNameDictionary userNames, MutationPublisher mutations) {
+        this.postRepository = postRepository;
+        this.userNames = userNames;
+        mutations.addListener(this);
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        int authorId = userNames.intern(post.getUser()
+                .getName());
+        for (String word : words(post.getText())) {
+            postingsByWord.computeIfAbsent(word, key -> new PostingList())
+                    .add(post.getId(), authorId);
+        }
+    }
+
+    @Override
+    public void onClear() {
+        postingsByWord.clear();
+    }
+
+    /**
+     * Returns the newest posts containing all words of the query, older than the {@code before} cursor if given. A
+     * query without any word matches nothing.
+     */
+    public List<Post> search(String query, int limit, Long before) {
+        Set<String> words = words(query);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        PostingList[] postingLists = new PostingList[words.size()];
+        int i = 0;
+        for (String word : words) {
+            postingLists[i] = postingsByWord.get(word);
+            if (postingLists[i++] == null) {
+                return Collections.emptyList();
+            }
+        }
+        Arrays.sort(postingLists, Comparator.comparingInt(PostingList::size));
+        PostingList.Cursor[] cursors = new PostingList.Cursor[postingLists.length];
+        for (i = 0; i < cursors.length; i++) {
+            cursors[i] = postingLists[i].newestFirst();
+        }
+
+        List<Post> posts = new ArrayList<>(Math.min(limit, 64));
+        long bound = before != null ? before - 1 : Long.MAX_VALUE;
+        matches: while (posts.size() < limit) {
+            long postId = cursors[0].advanceTo(bound);
+            if (postId < 0) {
+                break;
+            }
+            for (i = 1; i < cursors.length; i++) {
+                long otherPostId = cursors[i].advanceTo(postId);
+                if (otherPostId < 0) {
+                    break matches;
+                }
+                if (otherPostId != postId) {
+                    bound = otherPostId;
+                    continue matches;
+                }
+            }
+            Post post = findPost(cursors[0].authorId(), postId);
+            if (post != null) {
+                posts.add(post);
+            }
+            bound = postId - 1;
+        }
+        return posts;
+    }
+
+    /**
+     * Number of distinct words in the index.
+     */
+    public int size() {
+        return postingsByWord.size();
+    }
+
+    /**
+     * Compressed size of all posting lists in bytes, without the words themselves.
+     */
+    public long postingsSizeInBytes() {
+        long bytes = 0;
+        for (PostingList postings : postingsByWord.values()) {
+            bytes += postings.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private Post findPost(int authorId, long postId) {
+        List<Post> posts = postRepository.findByUserName(userNames.nameOf(authorId));
+        int index = PostMergeIterator.indexOfFirstNotBefore(posts, postId);
+        return index < posts.size() && posts.get(index)
+                .getId() == postId ? posts.get(index) : null;
+    }
+
+    static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                words.add(text.substring(start, i)
+                        .toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
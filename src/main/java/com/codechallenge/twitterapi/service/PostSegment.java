@@ -0,0 +1,114 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.codechallenge.twitterapi.model.Post;
+
+/**
+ * Append-only list of the posts of one user. Writers of the same segment are serialized on the segment itself,
+ * readers never lock: they get an immutable snapshot of the posts published so far.
+ */
+class PostSegment {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Object lock = new Object();
+
+    private volatile Snapshot snapshot = new Snapshot(new Post[INITIAL_CAPACITY], 0);
+
+    /**
+     * Appends a new post with the next id, drawn under the segment lock, so ids stay in ascending order within the
+     * segment. The listener is notified under the lock as well, so it sees the posts of the user in publishing order.
+     */
+    Post append(Post post, PostIds ids, MutationListener listener) {
+        synchronized (lock) {
+            return add(withNewId(post, ids), listener);
+        }
+    }
+
+    /**
+     * Appends a post restored with its id, unless the segment already holds a post at least as new.
+     */
+    Post restore(Post post, PostIds ids, MutationListener listener) {
+        synchronized (lock) {
+            Snapshot current = snapshot;
+            if (current.size > 0 && current.posts[current.size - 1].getId() >= post.getId()) {
+                return post;
+            }
+            ids.restored(post.getId());
+            return add(post, listener);
+        }
+    }
+
+    /**
+     * Appends new posts like {@link #append(Post, PostIds, MutationListener)} does, but takes the lock and publishes
+     * the new snapshot only once.
+     */
+    List<Post> appendAll(List<Post> newPosts, PostIds ids, MutationListener listener) {
+        synchronized (lock) {
+            Snapshot current = snapshot;
+            Post[] posts = ensureCapacity(current.posts, current.size + newPosts.size());
+            int size = current.size;
+            List<Post> savedPosts = new ArrayList<>(newPosts.size());
+            for (Post post : newPosts) {
+                Post savedPost = withNewId(post, ids);
+                posts[size++] = savedPost;
+                savedPosts.add(savedPost);
+            }
+
+            snapshot = new Snapshot(posts, size);
+            for (int i = current.size; i < size; i++) {
+                listener.onPostSaved(posts[i]);
+            }
+            return savedPosts;
+        }
+    }
+
+    List<Post> snapshot() {
+        return snapshot;
+    }
+
+    static Post withNewId(Post post, PostIds ids) {
+        return new Post(ids.next(), post.getText(), post.getUser(), post.getDateTime());
+    }
+
+    private Post add(Post savedPost, MutationListener listener) {
+        Snapshot current = snapshot;
+        Post[] posts = ensureCapacity(current.posts, current.size + 1);
+        posts[current.size] = savedPost;
+        snapshot = new Snapshot(posts, current.size + 1);
+        listener.onPostSaved(savedPost);
+        return savedPost;
+    }
+
+    private static Post[] ensureCapacity(Post[] posts, int size) {
+        return size <= posts.length ? posts : Arrays.copyOf(posts, Math.max(posts.length * 2, size));
+    }
+
+    private static final class Snapshot extends AbstractList<Post> implements RandomAccess {
+        private final Post[] posts;
+
+        private final int size;
+
+        Snapshot(Post[] posts, int size) {
+            this.posts = posts;
+            this.size = size;
+        }
+
+        @Override
+        public Post get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return posts[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
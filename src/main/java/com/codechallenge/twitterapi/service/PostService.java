@@ -1,14 +1,68 @@
 package com.codechallenge.twitterapi.service;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
+import com.codechallenge.twitterapi.dto.NewPostDTO;
 import com.codechallenge.twitterapi.dto.PostDTO;
 import com.codechallenge.twitterapi.dto.UserDTO;
+import com.codechallenge.twitterapi.model.Post;
 
 public interface PostService {
     PostDTO addNewPost(String text, String userName);
 
-    List<PostDTO> findByUserName(String userName);
+    /**
+     * Adds the posts of possibly many users at once and returns them in the given order.
+     */
+    List<PostDTO> addNewPosts(List<NewPostDTO> newPosts);
+
+    List<PostDTO> findByUserName(String userName, int limit, Long before, Long after);
+
+    /**
+     * Returns the same page as {@link #findByUserName(String, int, Long, Long)}, made of the saved posts themselves.
+     */
+    List<Post> findPostsByUserName(String userName, int limit, Long before, Long after);
+
+    /**
+     * Iterates lazily over the posts of the user between the cursors, newest first.
+     */
+    Iterator<PostDTO> iterateByUserName(String userName, Long before, Long after);
+
+    /**
+     * Returns the newest posts of the users between the cursors, merged into one page.
+     */
+    List<Post> findPostsByUserNames(List<String> userNames, int limit, long before, long after);
+
+    Optional<PostDTO> findPost(String userName, long postId);
 
     List<PostDTO> findPostsByUsers(List<UserDTO> users);
+
+    List<PostDTO> findTimeline(String userName, int limit, Long before, Long after);
+
+    /**
+     * Returns the same page as {@link #findTimeline(String, int, Long, Long)}, made of the saved posts themselves.
+     */
+    List<Post> findTimelinePosts(String userName, int limit, Long before, Long after);
+
+    /**
+     * Iterates lazily over the posts of the users followed by the user between the cursors, newest first.
+     */
+    Iterator<PostDTO> iterateTimeline(String userName, Long before, Long after);
+
+    /**
+     * Sends the posts of the users followed by the user to the sink as they are published. With a last event id, the
+     * posts published after it are sent first, so a subscriber can resume where it stopped.
+     */
+    TimelineSubscriptions.Subscription subscribeToTimeline(String userName, Long lastEventId, TimelineSink sink);
+
+    void invalidateTimeline(String userName);
+
+    void invalidateAllTimelines();
+
+    /**
+     * Pushes a post that reached the repository without this service, a replicated one, to the timelines of its
+     * followers.
+     */
+    void publishToFollowers(Post post);
 }
@@ -1,21 +1,39 @@
 package com.codechallenge.twitterapi.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import com.codechallenge.twitterapi.cluster.ShardClient;
+import com.codechallenge.twitterapi.cluster.ShardRing;
+import com.codechallenge.twitterapi.dto.NewPostDTO;
 import com.codechallenge.twitterapi.dto.PostDTO;
 import com.codechallenge.twitterapi.dto.UserDTO;
 import com.codechallenge.twitterapi.model.Post;
 import com.codechallenge.twitterapi.model.User;
 import com.codechallenge.twitterapi.utils.PostPojo2DtoConverter;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * In a partitioned deployment the posts of a user are saved on the node owning the user, and timelines gather the
+ * posts of the followed users from every node owning some of them.
+ */
 @Service
 public class PostServiceImpl implements PostService {
 
@@ -23,36 +41,324 @@ public class PostServiceImpl implements PostService {
 
     private UserRepository userRepository;
 
+    private TimelineRepository timelineRepository;
+
+    private TimelineSubscriptions timelineSubscriptions;
+
+    private final Counter ingestedPosts;
+
+    private final MergeMetrics postsByUsersMerges;
+
+    private final MergeMetrics timelineMerges;
+
+    private final ShardRing shardRing;
+
+    private final ShardClient shardClient;
+
+    /**
+     * Service of a node that is the only one.
+     */
+    public PostServiceImpl(PostRepository postRepository, UserRepository userRepository,
+            TimelineRepository timelineRepository, TimelineSubscriptions timelineSubscriptions,
+            MeterRegistry meterRegistry) {
+        this(postRepository, userRepository, timelineRepository, timelineSubscriptions, meterRegistry, ShardRing
+                .singleNode(), null);
+    }
+
     @Autowired
-    public PostServiceImpl(PostRepository postRepository, UserRepository userRepository) {
+    public PostServiceImpl(PostRepository postRepository, UserRepository userRepository,
+            TimelineRepository timelineRepository, TimelineSubscriptions timelineSubscriptions,
+            MeterRegistry meterRegistry, ShardRing shardRing, ShardClient shardClient) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
+        this.timelineRepository = timelineRepository;
+        this.timelineSubscriptions = timelineSubscriptions;
+        this.shardRing = shardRing;
+        this.shardClient = shardClient;
+        this.ingestedPosts = Counter.builder("twitter.posts.ingested")
+                .description("Posts added through the service")
+                .register(meterRegistry);
+        this.postsByUsersMerges = new MergeMetrics(meterRegistry, "posts-by-users");
+        this.timelineMerges = new MergeMetrics(meterRegistry, "timeline");
     }
 
     @Override
     public PostDTO addNewPost(String text, String userName) {
         User user = addOrGetUser(userName);
         Post post = postRepository.save(new Post(text, user, LocalDateTime.now()));
+        ingestedPosts.increment();
+        fanOut(post);
 
         return PostPojo2DtoConverter.convert(post);
     }
 
     @Override
-    public List<PostDTO> findByUserName(String userName) {
+    public List<PostDTO> addNewPosts(List<NewPostDTO> newPosts) {
+        Map<String, List<Integer>> indexesByAuthor = new LinkedHashMap<>();
+        for (int i = 0; i < newPosts.size(); i++) {
+            indexesByAuthor.computeIfAbsent(newPosts.get(i)
+                    .getUserName()
+                    .toLowerCase(), key -> new ArrayList<>())
+                    .add(i);
+        }
+
+        PostDTO[] result = new PostDTO[newPosts.size()];
+        Map<Integer, List<Integer>> remoteIndexesByNode = new TreeMap<>();
+        for (List<Integer> indexes : indexesByAuthor.values()) {
+            int node = shardRing.ownerOf(newPosts.get(indexes.get(0))
+                    .getUserName());
+            if (node != shardRing.nodeIndex()) {
+                remoteIndexesByNode.computeIfAbsent(node, key -> new ArrayList<>())
+                        .addAll(indexes);
+                continue;
+            }
+            User user = addOrGetUser(newPosts.get(indexes.get(0))
+                    .getUserName());
+            List<Post> posts = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                posts.add(new Post(newPosts.get(index)
+                        .getText(), user, LocalDateTime.now()));
+            }
+
+            List<Post> savedPosts = postRepository.saveAll(posts);
+            ingestedPosts.increment(savedPosts.size());
+            List<User> followers = localUsers(userRepository.findAllFollowers(user.getName()));
+            for (int i = 0; i < savedPosts.size(); i++) {
+                Post post = savedPosts.get(i);
+                for (User follower : followers) {
+                    timelineRepository.push(follower.getName(), post);
+                    timelineSubscriptions.publish(follower.getName(), post);
+                }
+                result[indexes.get(i)] = PostPojo2DtoConverter.convert(post);
+            }
+        }
+
+        remoteIndexesByNode.forEach((node, indexes) -> {
+            List<NewPostDTO> remotePosts = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                remotePosts.add(newPosts.get(index));
+            }
+            List<PostDTO> savedPosts = shardClient.addPosts(node, remotePosts);
+            for (int i = 0; i < indexes.size(); i++) {
+                result[indexes.get(i)] = savedPosts.get(i);
+            }
+        });
+        return Arrays.asList(result);
+    }
+
+    @Override
+    public List<PostDTO> findByUserName(String userName, int limit, Long before, Long after) {
+        return PostPojo2DtoConverter.convert(findPostsByUserName(userName, limit, before, after));
+    }
+
+    @Override
+    public List<Post> findPostsByUserName(String userName, int limit, Long before, Long after) {
         List<Post> posts = postRepository.findByUserName(userName);
-        sortDescendingByDateTime(posts);
+        Iterator<Post> newestFirst = new PostMergeIterator(Collections.singletonList(posts),
+                before != null ? before : Long.MAX_VALUE, after != null ? after : Long.MIN_VALUE);
 
-        return PostPojo2DtoConverter.convert(posts);
+        return firstPosts(newestFirst, Math.min(limit, posts.size()));
+    }
+
+    @Override
+    public Iterator<PostDTO> iterateByUserName(String userName, Long before, Long after) {
+        List<Post> posts = postRepository.findByUserName(userName);
+        return PostPojo2DtoConverter.convert(new PostMergeIterator(Collections.singletonList(posts),
+                before != null ? before : Long.MAX_VALUE, after != null ? after : Long.MIN_VALUE));
+    }
+
+    @Override
+    public List<Post> findPostsByUserNames(List<String> userNames, int limit, long before, long after) {
+        List<List<Post>> postLists = new ArrayList<>(userNames.size());
+        for (String userName : userNames) {
+            postLists.add(postRepository.findByUserName(userName));
+        }
+        return firstPosts(new PostMergeIterator(postLists, before, after), limit);
+    }
+
+    @Override
+    public Optional<PostDTO> findPost(String userName, long postId) {
+        List<Post> posts = postRepository.findByUserName(userName);
+        int index = PostMergeIterator.indexOfFirstNotBefore(posts, postId);
+        if (index == posts.size() || posts.get(index)
+                .getId() != postId) {
+            return Optional.empty();
+        }
+        return Optional.of(PostPojo2DtoConverter.convert(posts.get(index)));
     }
 
     @Override
     public List<PostDTO> findPostsByUsers(List<UserDTO> users) {
         List<Post> posts = mergePostsOfAllUsers(users);
-        sortDescendingByDateTime(posts);
 
         return PostPojo2DtoConverter.convert(posts);
     }
 
+    @Override
+    public List<PostDTO> findTimeline(String userName, int limit, Long before, Long after) {
+        return PostPojo2DtoConverter.convert(findTimelinePosts(userName, limit, before, after));
+    }
+
+    @Override
+    public List<Post> findTimelinePosts(String userName, int limit, Long before, Long after) {
+        long upperBound = before != null ? before : Long.MAX_VALUE;
+        long lowerBound = after != null ? after : Long.MIN_VALUE;
+        if (followsUsersOfOtherNodes(userName)) {
+            // the inbox only receives the posts published on this node
+            return mergePostsOfFollowedUsers(userName, limit, upperBound, lowerBound);
+        }
+        List<Post> timeline = timelineRepository.findByUserName(userName, () -> buildTimeline(userName));
+
+        // a full inbox only holds the newest part of the timeline, older pages come from the followed users' posts
+        boolean complete = timeline.size() < timelineRepository.getInboxCapacity();
+        List<Post> posts = new ArrayList<>(Math.min(limit, timeline.size()));
+        for (Post post : timeline) {
+            if (posts.size() == limit || post.getId() <= lowerBound) {
+                complete = true;
+                break;
+            }
+            if (post.getId() < upperBound) {
+                posts.add(post);
+            }
+        }
+
+        if (!complete) {
+            posts = mergePostsOfFollowedUsers(userName, limit, upperBound, lowerBound);
+        }
+        return posts;
+    }
+
+    @Override
+    public Iterator<PostDTO> iterateTimeline(String userName, Long before, Long after) {
+        long upperBound = before != null ? before : Long.MAX_VALUE;
+        long lowerBound = after != null ? after : Long.MIN_VALUE;
+        List<List<Post>> postLists = new ArrayList<>();
+        // the other nodes are read a page at a time, as the stream is written
+        List<Iterator<Post>> remotePosts = new ArrayList<>();
+        remoteUserNamesOfFollowedUsers(userName, postLists).forEach((node, userNames) -> remotePosts.add(shardClient
+                .iteratePosts(node, userNames, upperBound, lowerBound)));
+        return PostPojo2DtoConverter.convert(new PostMergeIterator(postLists, remotePosts, upperBound, lowerBound));
+    }
+
+    @Override
+    public TimelineSubscriptions.Subscription subscribeToTimeline(String userName, Long lastEventId,
+            TimelineSink sink) {
+        // subscribe first, so no post falls between the missed ones and the pushed ones
+        TimelineSubscriptions.Subscription subscription = timelineSubscriptions.subscribe(userName, sink);
+        List<Post> missedPosts = Collections.emptyList();
+        if (lastEventId != null) {
+            missedPosts = mergePostsOfFollowedUsers(userName, timelineSubscriptions.getQueueCapacity(),
+                    Long.MAX_VALUE, lastEventId);
+            Collections.reverse(missedPosts);
+        }
+        subscription.start(missedPosts);
+        return subscription;
+    }
+
+    @Override
+    public void invalidateTimeline(String userName) {
+        timelineRepository.remove(userName);
+    }
+
+    @Override
+    public void invalidateAllTimelines() {
+        timelineRepository.removeAll();
+    }
+
+    @Override
+    public void publishToFollowers(Post post) {
+        fanOut(post);
+    }
+
+    private void fanOut(Post post) {
+        for (User follower : localUsers(userRepository.findAllFollowers(post.getUser()
+                .getName()))) {
+            timelineRepository.push(follower.getName(), post);
+            timelineSubscriptions.publish(follower.getName(), post);
+        }
+    }
+
+    private List<Post> buildTimeline(String userName) {
+        return mergePostsOfFollowedUsers(userName, timelineRepository.getInboxCapacity(), Long.MAX_VALUE,
+                Long.MIN_VALUE);
+    }
+
+    private List<Post> mergePostsOfFollowedUsers(String userName, int limit, long before, long after) {
+        long start = System.nanoTime();
+        List<List<Post>> postLists = postListsOfFollowedUsers(userName, limit, before, after);
+
+        List<Post> result = firstPosts(new PostMergeIterator(postLists, before, after), limit);
+        timelineMerges.record(postLists.size(), result.size(), start);
+        return result;
+    }
+
+    /**
+     * Posts of the followed users of this node, and a page of at most {@code limit} posts between the cursors from
+     * every other node owning some of them, each in ascending id order.
+     */
+    private List<List<Post>> postListsOfFollowedUsers(String userName, int limit, long before, long after) {
+        List<List<Post>> postLists = new ArrayList<>();
+        Map<Integer, List<String>> remoteUserNamesByNode = remoteUserNamesOfFollowedUsers(userName, postLists);
+        if (!remoteUserNamesByNode.isEmpty()) {
+            postLists.addAll(shardClient.findPosts(remoteUserNamesByNode, limit, before, after));
+        }
+        return postLists;
+    }
+
+    /**
+     * Adds the posts of the followed users of this node to the given lists and returns the other followed users by
+     * the node owning them.
+     */
+    private Map<Integer, List<String>> remoteUserNamesOfFollowedUsers(String userName, List<List<Post>> postLists) {
+        Map<Integer, List<String>> remoteUserNamesByNode = new TreeMap<>();
+        for (User followedUser : userRepository.findAllFollowedUsers(userName)) {
+            int node = shardRing.ownerOf(followedUser.getName());
+            if (node == shardRing.nodeIndex()) {
+                postLists.add(postRepository.findByUserName(followedUser.getName()));
+            } else {
+                remoteUserNamesByNode.computeIfAbsent(node, key -> new ArrayList<>())
+                        .add(followedUser.getName());
+            }
+        }
+        return remoteUserNamesByNode;
+    }
+
+    private boolean followsUsersOfOtherNodes(String userName) {
+        if (!shardRing.isPartitioned()) {
+            return false;
+        }
+        for (User followedUser : userRepository.findAllFollowedUsers(userName)) {
+            if (!shardRing.isLocal(followedUser.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Leaves out the users owned by other nodes, whose timelines are not assembled here.
+     */
+    private List<User> localUsers(List<User> users) {
+        if (!shardRing.isPartitioned()) {
+            return users;
+        }
+        List<User> localUsers = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (shardRing.isLocal(user.getName())) {
+                localUsers.add(user);
+            }
+        }
+        return localUsers;
+    }
+
+    private static List<Post> firstPosts(Iterator<Post> posts, int limit) {
+        List<Post> result = new ArrayList<>(limit);
+        while (result.size() < limit && posts.hasNext()) {
+            result.add(posts.next());
+        }
+        return result;
+    }
+
     private User addOrGetUser(String userName) {
         Optional<User> user = userRepository.findByName(userName);
 
@@ -67,15 +373,48 @@ public class PostServiceImpl implements PostService {
             return Collections.emptyList();
         }
 
-        List<Post> result = new LinkedList<>();
+        long start = System.nanoTime();
+        List<List<Post>> postLists = new ArrayList<>(users.size());
+        int total = 0;
         for (UserDTO user : users) {
-            result.addAll(postRepository.findByUserName(user.getName()));
+            List<Post> userPosts = postRepository.findByUserName(user.getName());
+            postLists.add(userPosts);
+            total += userPosts.size();
         }
+
+        List<Post> result = new ArrayList<>(total);
+        PostMergeIterator.newestFirst(postLists)
+                .forEachRemaining(result::add);
+        postsByUsersMerges.record(postLists.size(), total, start);
         return result;
     }
 
-    private static void sortDescendingByDateTime(List<Post> posts) {
-        Collections.sort(posts, (post1, post2) -> post2.getDateTime()
-                .compareTo(post1.getDateTime()));
+    private static final class MergeMetrics {
+        private final DistributionSummary users;
+
+        private final DistributionSummary posts;
+
+        private final Timer time;
+
+        MergeMetrics(MeterRegistry meterRegistry, String operation) {
+            users = DistributionSummary.builder("twitter.merge.users")
+                    .description("Post lists merged per call")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            posts = DistributionSummary.builder("twitter.merge.posts")
+                    .description("Posts merged per call")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            time = Timer.builder("twitter.merge")
+                    .description("Time spent merging post lists")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+        }
+
+        void record(int mergedUsers, int mergedPosts, long startNanos) {
+            users.record(mergedUsers);
+            posts.record(mergedPosts);
+            time.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
     }
 }
@@ -0,0 +1,274 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.Arrays;
+
+/**
+ * Ids of the posts containing a term, each with the dictionary id of its author, in ascending id order. Full blocks
+ * of {@link #BLOCK_SIZE} postings are compressed into variable-length id gaps and author ids; the newest postings stay
+ * uncompressed in the tail. Writers lock, readers iterate an immutable snapshot newest first and skip whole blocks
+ * without decoding them.
+ */
+class PostingList {
+    static final int BLOCK_SIZE = 128;
+
+    private static final int INITIAL_TAIL_CAPACITY = 4;
+
+    private volatile Snapshot snapshot = new Snapshot(new Block[0], new long[INITIAL_TAIL_CAPACITY],
+            new int[INITIAL_TAIL_CAPACITY], 0, 0);
+
+    /**
+     * Appends the posting. Posts of different users are saved concurrently, so a posting may arrive after a newer one;
+     * it is inserted in place, which copies the tail or re-encodes one block. Postings already held are ignored.
+     */
+    synchronized void add(long postId, int authorId) {
+        Snapshot current = snapshot;
+        if (postId <= current.lastId()) {
+            snapshot = current.inserting(postId, authorId);
+            return;
+        }
+        if (current.tailSize >= BLOCK_SIZE) {
+            Block[] blocks = Arrays.copyOf(current.blocks, current.blocks.length + 1);
+            blocks[current.blocks.length] = Block.encode(current.tailIds, current.tailAuthors, current.tailSize);
+            current = new Snapshot(blocks, new long[INITIAL_TAIL_CAPACITY], new int[INITIAL_TAIL_CAPACITY], 0,
+                    current.size);
+        } else if (current.tailSize == current.tailIds.length) {
+            int capacity = Math.min(BLOCK_SIZE, current.tailSize * 2);
+            current = new Snapshot(current.blocks, Arrays.copyOf(current.tailIds, capacity),
+                    Arrays.copyOf(current.tailAuthors, capacity), current.tailSize, current.size);
+        }
+        current.tailIds[current.tailSize] = postId;
+        current.tailAuthors[current.tailSize] = authorId;
+        snapshot = new Snapshot(current.blocks, current.tailIds, current.tailAuthors, current.tailSize + 1,
+                current.size + 1);
+    }
+
+    int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * Compressed size of the postings in bytes, the uncompressed tail included.
+     */
+    long sizeInBytes() {
+        Snapshot current = snapshot;
+        long bytes = current.tailSize * (long) (Long.BYTES + Integer.BYTES);
+        for (Block block : current.blocks) {
+            bytes += block.data.length + 2 * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    Cursor newestFirst() {
+        return new Cursor(snapshot);
+    }
+
+    /**
+     * Walks the postings from the newest one down.
+     */
+    static final class Cursor {
+        private final Block[] blocks;
+
+        private int block;
+
+        private long[] ids;
+
+        private int[] authors;
+
+        private int position;
+
+        private long[] decodedIds;
+
+        private int[] decodedAuthors;
+
+        private Cursor(Snapshot snapshot) {
+            this.blocks = snapshot.blocks;
+            this.block = blocks.length;
+            this.ids = snapshot.tailIds;
+            this.authors = snapshot.tailAuthors;
+            this.position = snapshot.tailSize - 1;
+        }
+
+        /**
+         * Moves to the newest posting whose id is not greater than the bound and returns the id, or -1 when there is
+         * none. The bound must not grow between calls.
+         */
+        long advanceTo(long bound) {
+            while (true) {
+                if (position >= 0) {
+                    if (ids[position] <= bound) {
+                        return ids[position];
+                    }
+                    if (ids[0] <= bound) {
+                        int index = Arrays.binarySearch(ids, 0, position, bound);
+                        position = index >= 0 ? index : -index - 2;
+                        return ids[position];
+                    }
+                }
+                do {
+                    block--;
+                } while (block >= 0 && blocks[block].firstId > bound);
+                if (block < 0) {
+                    position = -1;
+                    return -1;
+                }
+                decode(blocks[block]);
+            }
+        }
+
+        /**
+         * Author of the posting the cursor is on.
+         */
+        int authorId() {
+            return authors[position];
+        }
+
+        private void decode(Block current) {
+            if (decodedIds == null || decodedIds.length < current.size) {
+                decodedIds = new long[Math.max(BLOCK_SIZE, current.size)];
+                decodedAuthors = new int[decodedIds.length];
+            }
+            current.decode(decodedIds, decodedAuthors);
+            ids = decodedIds;
+            authors = decodedAuthors;
+            position = current.size - 1;
+        }
+    }
+
+    private static final class Snapshot {
+        private final Block[] blocks;
+
+        private final long[] tailIds;
+
+        private final int[] tailAuthors;
+
+        private final int tailSize;
+
+        private final int size;
+
+        private Snapshot(Block[] blocks, long[] tailIds, int[] tailAuthors, int tailSize, int size) {
+            this.blocks = blocks;
+            this.tailIds = tailIds;
+            this.tailAuthors = tailAuthors;
+            this.tailSize = tailSize;
+            this.size = size;
+        }
+
+        private long lastId() {
+            if (tailSize > 0) {
+                return tailIds[tailSize - 1];
+            }
+            return blocks.length > 0 ? blocks[blocks.length - 1].lastId : Long.MIN_VALUE;
+        }
+
+        private Snapshot inserting(long postId, int authorId) {
+            long lastBlockId = blocks.length > 0 ? blocks[blocks.length - 1].lastId : Long.MIN_VALUE;
+            if (postId > lastBlockId) {
+                int index = Arrays.binarySearch(tailIds, 0, tailSize, postId);
+                if (index >= 0) {
+                    return this;
+                }
+                long[] ids = new long[tailSize + 1];
+                int[] authors = new int[ids.length];
+                insert(tailIds, tailAuthors, tailSize, -index - 1, postId, authorId, ids, authors);
+                return new Snapshot(blocks, ids, authors, tailSize + 1, size + 1);
+            }
+
+            int blockIndex = 0;
+            while (blocks[blockIndex].lastId < postId) {
+                blockIndex++;
+            }
+            Block block = blocks[blockIndex];
+            long[] ids = new long[block.size];
+            int[] authors = new int[block.size];
+            block.decode(ids, authors);
+            int index = Arrays.binarySearch(ids, postId);
+            if (index >= 0) {
+                return this;
+            }
+            long[] newIds = new long[block.size + 1];
+            int[] newAuthors = new int[block.size + 1];
+            insert(ids, authors, block.size, -index - 1, postId, authorId, newIds, newAuthors);
+            Block[] newBlocks = blocks.clone();
+            newBlocks[blockIndex] = Block.encode(newIds, newAuthors, newIds.length);
+            return new Snapshot(newBlocks, tailIds, tailAuthors, tailSize, size + 1);
+        }
+
+        private static void insert(long[] ids, int[] authors, int size, int index, long postId, int authorId,
+                long[] newIds, int[] newAuthors) {
+            System.arraycopy(ids, 0, newIds, 0, index);
+            System.arraycopy(authors, 0, newAuthors, 0, index);
+            newIds[index] = postId;
+            newAuthors[index] = authorId;
+            System.arraycopy(ids, index, newIds, index + 1, size - index);
+            System.arraycopy(authors, index, newAuthors, index + 1, size - index);
+        }
+    }
+
+    /**
+     * Postings as variable-length integers: the author of the first posting, then the id gap to the previous posting
+     * and the author of every other one.
+     */
+    private static final class Block {
+        private final long firstId;
+
+        private final long lastId;
+
+        private final int size;
+
+        private final byte[] data;
+
+        private Block(long firstId, long lastId, int size, byte[] data) {
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.size = size;
+            this.data = data;
+        }
+
+        private static Block encode(long[] ids, int[] authors, int size) {
+            byte[] buffer = new byte[size * 15];
+            int length = writeVarLong(buffer, 0, authors[0]);
+            for (int i = 1; i < size; i++) {
+                length = writeVarLong(buffer, length, ids[i] - ids[i - 1]);
+                length = writeVarLong(buffer, length, authors[i]);
+            }
+            return new Block(ids[0], ids[size - 1], size, Arrays.copyOf(buffer, length));
+        }
+
+        private void decode(long[] ids, int[] authors) {
+            int offset = 0;
+            long id = firstId;
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    long gap = 0;
+                    for (int shift = 0;; shift += 7) {
+                        byte b = data[offset++];
+                        gap |= (long) (b & 0x7f) << shift;
+                        if (b >= 0) {
+                            break;
+                        }
+                    }
+                    id += gap;
+                }
+                int author = 0;
+                for (int shift = 0;; shift += 7) {
+                    byte b = data[offset++];
+                    author |= (b & 0x7f) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                ids[i] = id;
+                authors[i] = author;
+            }
+        }
+
+        private static int writeVarLong(byte[] buffer, int offset, long value) {
+            while ((value & ~0x7fL) != 0) {
+                buffer[offset++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[offset++] = (byte) value;
+            return offset;
+        }
+    }
+}
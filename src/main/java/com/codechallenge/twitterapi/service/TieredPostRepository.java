@@ -0,0 +1,432 @@
+package com.codechallenge.twitterapi.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.cluster.PostIdGenerator;
+import com.codechallenge.twitterapi.cluster.ShardRing;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+/**
+ * Post storage selected with {@code twitter.storage.mode=tiered}. The recent posts of every user are kept on the
+ * heap like {@link PostRepositoryImpl} does; posts older than {@code twitter.storage.tiered.hot-age-ms}, or beyond
+ * the newest {@code twitter.storage.tiered.hot-posts-per-user}, are moved in the background to {@link ColdSegment}s,
+ * in blocks of {@link #BLOCK_POSTS}. Only the first and last id of each block stay in memory. They index the blocks by
+ * id, not by time, which only works because ids are drawn in publishing order: a page of recent posts never touches
+ * the disk and an older page inflates the one block it starts in.
+ * <p>
+ * The segments are not a persistence mechanism: they are deleted on startup, the posts being restored from the
+ * write-ahead log when it is enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "twitter.storage.mode", havingValue = "tiered")
+public class TieredPostRepository implements PostRepository {
+    static final int BLOCK_POSTS = 64;
+
+    /**
+     * Inflated blocks each view keeps; every other read of a cold post inflates its block, allocating a new post per
+     * post of the block.
+     */
+    static final int READ_BLOCKS = 4;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TieredPostRepository.class);
+
+    private final Map<String, UserPosts> allPosts = new ConcurrentHashMap<>();
+
+    private final PostIds ids;
+
+    private final UserNameDictionary userNames;
+
+    private final MutationListener mutations;
+
+    private final Path directory;
+
+    private final int hotPostsPerUser;
+
+    private final long hotAgeMillis;
+
+    private final int segmentSize;
+
+    private long nextSegmentIndex;
+
+    private ScheduledExecutorService compactionScheduler;
+
+    public TieredPostRepository(UserNameDictionary userNames, MutationPublisher mutations, String directory,
+            int hotPostsPerUser, long hotAgeMillis, int segmentSize, long compactionIntervalMillis) throws IOException {
+        this(userNames, mutations, new PostIdGenerator(ShardRing.singleNode()), directory, hotPostsPerUser,
+                hotAgeMillis, segmentSize, compactionIntervalMillis);
+    }
+
+    @Autowired
+    public TieredPostRepository(UserNameDictionary userNames, MutationPublisher mutations, PostIdGenerator postIds,
+            @Value("${twitter.storage.tiered.directory:data/cold}") String directory,
+            @Value("${twitter.storage.tiered.hot-posts-per-user:1000}") int hotPostsPerUser,
+            @Value("${twitter.storage.tiered.hot-age-ms:86400000}") long hotAgeMillis,
+            @Value("${twitter.storage.tiered.segment-size:67108864}") int segmentSize,
+            @Value("${twitter.storage.tiered.compaction-interval-ms:10000}") long compactionIntervalMillis)
+            throws IOException {
+        this.ids = new PostIds(postIds);
+        this.userNames = userNames;
+        this.mutations = mutations;
+        this.directory = Paths.get(directory);
+        this.hotPostsPerUser = hotPostsPerUser;
+        this.hotAgeMillis = hotAgeMillis;
+        this.segmentSize = segmentSize;
+        deleteSegments(this.directory);
+
+        if (compactionIntervalMillis > 0) {
+            compactionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cold-posts");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactionScheduler.scheduleWithFixedDelay(this::moveColdPostsQuietly, compactionIntervalMillis,
+                    compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Post save(Post post) {
+        return userPosts(post.getUser()).append(post, ids, mutations);
+    }
+
+    @Override
+    public Post restore(Post post) {
+        return userPosts(post.getUser()).restore(post, ids, mutations);
+    }
+
+    private UserPosts userPosts(User user) {
+        String userName = userNames.nameOf(userNames.intern(user.getName()));
+        return allPosts.computeIfAbsent(userName, key -> new UserPosts(user));
+    }
+
+    @Override
+    public List<Post> findByUserName(String userName) {
+        UserPosts userPosts = allPosts.get(userNames.canonicalName(userName));
+
+        return userPosts != null ? userPosts.view : Collections.emptyList();
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (UserPosts userPosts : allPosts.values()) {
+            count += userPosts.view.size();
+        }
+        return count;
+    }
+
+    /**
+     * Moves the posts that are too old or too many to new cold segments and returns how many were moved. The excess
+     * over {@code hotPostsPerUser} is moved in whole blocks, posts older than {@code hotAgeMillis} all at once.
+     */
+    public synchronized int moveColdPosts() throws IOException {
+        LocalDateTime oldestHot = LocalDateTime.now()
+                .minusNanos(TimeUnit.MILLISECONDS.toNanos(hotAgeMillis));
+        Map<UserPosts, List<ColdSegment.Block>> moves = new HashMap<>();
+        int moved = 0;
+        try (ColdSegment.Writer writer = new ColdSegment.Writer(directory, nextSegmentIndex, segmentSize)) {
+            for (UserPosts userPosts : allPosts.values()) {
+                PostView view = userPosts.view;
+                int count = view.postsToMove(hotPostsPerUser, oldestHot);
+                if (count == 0) {
+                    continue;
+                }
+                List<ColdSegment.Block> blocks = new ArrayList<>(count / BLOCK_POSTS + 1);
+                for (int from = 0; from < count; from += BLOCK_POSTS) {
+                    blocks.add(writer.write(view.hot, from, Math.min(count, from + BLOCK_POSTS)));
+                }
+                moves.put(userPosts, blocks);
+                moved += count;
+            }
+            writer.finish();
+            nextSegmentIndex = writer.nextSegmentIndex();
+        }
+
+        moves.forEach(UserPosts::moveToCold);
+        return moved;
+    }
+
+    /**
+     * Drops every user; the segments already written stay on disk until the next startup.
+     */
+    @Override
+    public synchronized void clear() {
+        allPosts.clear();
+    }
+
+    /**
+     * Number of posts per tier, hot ones first.
+     */
+    public long[] countByTier() {
+        long[] counts = new long[2];
+        for (UserPosts userPosts : allPosts.values()) {
+            PostView view = userPosts.view;
+            counts[0] += view.hotSize;
+            counts[1] += view.coldSize;
+        }
+        return counts;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (compactionScheduler != null) {
+            compactionScheduler.shutdown();
+        }
+    }
+
+    private void moveColdPostsQuietly() {
+        try {
+            long start = System.nanoTime();
+            int moved = moveColdPosts();
+            if (moved > 0) {
+                LOGGER.info("Moved {} posts to cold segments in {} ms", moved,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Cannot move posts to cold segments", e);
+        }
+    }
+
+    private static void deleteSegments(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, ColdSegment.PREFIX + "*"
+                + ColdSegment.SUFFIX)) {
+            for (Path segment : stale) {
+                Files.delete(segment);
+            }
+        }
+    }
+
+    /**
+     * Posts of one user. Writers are serialized on the object itself; readers get the current immutable view.
+     */
+    private static final class UserPosts {
+        private final User user;
+
+        private volatile PostView view;
+
+        UserPosts(User user) {
+            this.user = user;
+            this.view = new PostView(new ColdSegment.Block[0], new int[] { 0 }, user, new Post[8], 0);
+        }
+
+        /**
+         * Appends a new post with the next id, drawn under the lock so the posts of the user stay in id order.
+         */
+        synchronized Post append(Post post, PostIds ids, MutationListener listener) {
+            return add(PostSegment.withNewId(post, ids), listener);
+        }
+
+        /**
+         * Appends a post restored with its id, unless the user already has a post at least as new.
+         */
+        synchronized Post restore(Post post, PostIds ids, MutationListener listener) {
+            if (view.lastId() >= post.getId()) {
+                return post;
+            }
+            ids.restored(post.getId());
+            return add(post, listener);
+        }
+
+        private Post add(Post savedPost, MutationListener listener) {
+            PostView current = view;
+            Post[] hot = current.hot;
+            if (current.hotSize == hot.length) {
+                hot = Arrays.copyOf(hot, hot.length * 2);
+            }
+            hot[current.hotSize] = savedPost;
+            view = new PostView(current.blocks, current.blockStarts, user, hot, current.hotSize + 1);
+            listener.onPostSaved(savedPost);
+            return savedPost;
+        }
+
+        synchronized void moveToCold(List<ColdSegment.Block> newBlocks) {
+            PostView current = view;
+            ColdSegment.Block[] blocks = Arrays.copyOf(current.blocks, current.blocks.length + newBlocks.size());
+            int[] blockStarts = Arrays.copyOf(current.blockStarts, blocks.length + 1);
+            int moved = 0;
+            for (int i = current.blocks.length; i < blocks.length; i++) {
+                blocks[i] = newBlocks.get(i - current.blocks.length);
+                blockStarts[i + 1] = blockStarts[i] + blocks[i].size();
+                moved += blocks[i].size();
+            }
+            int remaining = current.hotSize - moved;
+            Post[] hot = Arrays.copyOfRange(current.hot, moved, moved + Math.max(8, remaining + remaining / 2));
+            view = new PostView(blocks, blockStarts, user, hot, remaining);
+        }
+    }
+
+    /**
+     * The cold blocks of a user followed by the hot posts. The {@link #READ_BLOCKS} blocks read last are kept, most
+     * recent first, so iterating over the cold posts inflates each block once, and a page that spans two blocks does
+     * not inflate them again when looked up by id first.
+     */
+    private static final class PostView extends AbstractList<Post> implements RandomAccess, IndexedPostList {
+        private final ColdSegment.Block[] blocks;
+
+        /**
+         * Index of the first post of each block, and the number of cold posts last.
+         */
+        private final int[] blockStarts;
+
+        private final User author;
+
+        private final Post[] hot;
+
+        private final int hotSize;
+
+        private final int coldSize;
+
+        /**
+         * Replaced on every change; a reader racing another may drop its block, which is inflated again next time.
+         */
+        private volatile ReadBlock[] recentReads = new ReadBlock[0];
+
+        PostView(ColdSegment.Block[] blocks, int[] blockStarts, User author, Post[] hot, int hotSize) {
+            this.blocks = blocks;
+            this.blockStarts = blockStarts;
+            this.author = author;
+            this.hot = hot;
+            this.hotSize = hotSize;
+            this.coldSize = blockStarts[blocks.length];
+        }
+
+        @Override
+        public Post get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            if (index >= coldSize) {
+                return hot[index - coldSize];
+            }
+            int block = Arrays.binarySearch(blockStarts, 0, blocks.length, index);
+            if (block < 0) {
+                block = -block - 2;
+            }
+            return read(block)[index - blockStarts[block]];
+        }
+
+        @Override
+        public int size() {
+            return coldSize + hotSize;
+        }
+
+        @Override
+        public int indexOfFirstNotBefore(long before) {
+            if (hotSize > 0 && (blocks.length == 0 || hot[0].getId() < before)) {
+                return coldSize + indexOfFirstNotBefore(hot, 0, hotSize, before);
+            }
+            int low = 0;
+            int high = blocks.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (blocks[middle].lastId() < before) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low == blocks.length) {
+                return coldSize;
+            }
+            if (blocks[low].firstId() >= before) {
+                return blockStarts[low];
+            }
+            return blockStarts[low] + indexOfFirstNotBefore(read(low), 0, blocks[low].size(), before);
+        }
+
+        long lastId() {
+            if (hotSize > 0) {
+                return hot[hotSize - 1].getId();
+            }
+            return blocks.length > 0 ? blocks[blocks.length - 1].lastId() : 0;
+        }
+
+        /**
+         * Number of the oldest hot posts to move: the ones older than the given time, and whole blocks of the ones
+         * beyond the given count.
+         */
+        int postsToMove(int hotPostsPerUser, LocalDateTime oldestHot) {
+            int count = Math.max(0, hotSize - hotPostsPerUser) / BLOCK_POSTS * BLOCK_POSTS;
+            while (count < hotSize && hot[count].getDateTime()
+                    .isBefore(oldestHot)) {
+                count++;
+            }
+            return count;
+        }
+
+        private Post[] read(int block) {
+            ReadBlock[] recent = recentReads;
+            int found = 0;
+            while (found < recent.length && recent[found].block != block) {
+                found++;
+            }
+            if (found == 0 && recent.length > 0) {
+                return recent[0].posts;
+            }
+            ReadBlock read = found < recent.length ? recent[found] : new ReadBlock(block, blocks[block].read(author));
+            ReadBlock[] reordered = new ReadBlock[Math.min(READ_BLOCKS, found < recent.length ? recent.length
+                    : recent.length + 1)];
+            reordered[0] = read;
+            for (int i = 0, j = 1; j < reordered.length; i++) {
+                if (i != found) {
+                    reordered[j++] = recent[i];
+                }
+            }
+            recentReads = reordered;
+            return read.posts;
+        }
+
+        private static int indexOfFirstNotBefore(Post[] posts, int from, int to, long before) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (posts[middle].getId() < before) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - from;
+        }
+    }
+
+    private static final class ReadBlock {
+        private final int block;
+
+        private final Post[] posts;
+
+        ReadBlock(int block, Post[] posts) {
+            this.block = block;
+            this.posts = posts;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.codechallenge.twitterapi.model.Post;
+
+public interface TimelineRepository {
+
+    /**
+     * Returns the materialized timeline of the user, newest post first, or materializes the one returned by the
+     * builder. A timeline built while the user's timeline was removed, by a follow for instance, is returned but not
+     * kept, as it may predate the change.
+     */
+    List<Post> findByUserName(String userName, Supplier<List<Post>> builder);
+
+    void push(String userName, Post post);
+
+    void remove(String userName);
+
+    void removeAll();
+
+    int getInboxCapacity();
+}
@@ -0,0 +1,199 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Materialized timelines, kept in a W-TinyLFU cache bounded by an estimate of their memory footprint. The heap store
+ * shares its posts with the timelines, so a timeline only accounts for its own structure and one reference per post.
+ * The other stores decode a new post on every read, so a timeline also accounts for the posts it holds, their text
+ * and their encoded JSON.
+ */
+@Component
+public class TimelineRepositoryImpl implements TimelineRepository, MeterBinder {
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private static final int POST_REFERENCE_BYTES = 8;
+
+    /**
+     * A post with its date and time and an empty text and JSON: the text takes two bytes per character more, the
+     * JSON one byte per byte.
+     */
+    private static final int POST_BYTES = 160;
+
+    /**
+     * JSON around the text of a post not encoded yet, which it will be once the timeline is read.
+     */
+    private static final int JSON_OVERHEAD_BYTES = 100;
+
+    private final Cache<String, Inbox> allTimelines;
+
+    private final int inboxCapacity;
+
+    private final boolean sharedPosts;
+
+    public TimelineRepositoryImpl(int inboxCapacity, long cacheBudgetBytes) {
+        this(inboxCapacity, cacheBudgetBytes, "heap");
+    }
+
+    @Autowired
+    public TimelineRepositoryImpl(@Value("${twitter.timeline.inbox-capacity:200}") int inboxCapacity,
+            @Value("${twitter.timeline.cache-budget-bytes:67108864}") long cacheBudgetBytes,
+            @Value("${twitter.storage.mode:heap}") String storageMode) {
+        this.inboxCapacity = inboxCapacity;
+        this.sharedPosts = "heap".equals(storageMode);
+        this.allTimelines = Caffeine.newBuilder()
+                .maximumWeight(cacheBudgetBytes)
+                .weigher((String userName, Inbox inbox) -> inbox.weight(sharedPosts))
+                .recordStats()
+                .executor(Runnable::run)
+                .build();
+    }
+
+    @Override
+    public List<Post> findByUserName(String userName, Supplier<List<Post>> builder) {
+        String key = userName.toLowerCase();
+        Inbox inbox = allTimelines.get(key, newKey -> new Inbox(inboxCapacity));
+        Optional<List<Post>> timeline = inbox.read();
+        if (timeline.isPresent()) {
+            return timeline.get();
+        }
+
+        List<Post> posts = builder.get();
+        // only the inbox the timeline was built for is loaded: once removed, it is not in the cache any more
+        inbox.load(posts);
+        // weigh the loaded timeline again, unless it has been removed in the meantime
+        allTimelines.asMap()
+                .replace(key, inbox, inbox);
+        return posts;
+    }
+
+    @Override
+    public void push(String userName, Post post) {
+        String key = userName.toLowerCase();
+        Inbox inbox = allTimelines.asMap()
+                .get(key);
+        if (inbox != null) {
+            inbox.push(post);
+            if (!sharedPosts) {
+                allTimelines.asMap()
+                        .replace(key, inbox, inbox);
+            }
+        }
+    }
+
+    @Override
+    public void remove(String userName) {
+        allTimelines.invalidate(userName.toLowerCase());
+    }
+
+    @Override
+    public void removeAll() {
+        allTimelines.invalidateAll();
+    }
+
+    @Override
+    public int getInboxCapacity() {
+        return inboxCapacity;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, allTimelines, "timelines");
+    }
+
+    private static class Inbox {
+        private final int capacity;
+
+        private final Deque<Post> posts = new ArrayDeque<>();
+
+        private boolean loaded;
+
+        Inbox(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized Optional<List<Post>> read() {
+            if (!loaded) {
+                return Optional.empty();
+            }
+            return Optional.of(Collections.unmodifiableList(new ArrayList<>(posts)));
+        }
+
+        /**
+         * Inserts the post in id order: posts of different authors are pushed once their authors' locks are
+         * released, so a newer post may arrive first. A post already held is ignored.
+         */
+        synchronized void push(Post post) {
+            Deque<Post> newer = new ArrayDeque<>();
+            while (!posts.isEmpty() && posts.peekFirst()
+                    .getId() > post.getId()) {
+                newer.push(posts.removeFirst());
+            }
+            if (posts.isEmpty() || posts.peekFirst()
+                    .getId() != post.getId()) {
+                posts.addFirst(post);
+            }
+            while (!newer.isEmpty()) {
+                posts.addFirst(newer.pop());
+            }
+            if (posts.size() > capacity) {
+                posts.removeLast();
+            }
+        }
+
+        synchronized void load(List<Post> newestFirst) {
+            if (loaded) {
+                return;
+            }
+            // posts pushed while the timeline was being built are newer than (or identical to) the built ones
+            // by id, as repositories that decode posts on every read return a new instance of the same post
+            Set<Long> pushedIds = new HashSet<>();
+            for (Post post : posts) {
+                pushedIds.add(post.getId());
+            }
+            for (Post post : newestFirst) {
+                if (posts.size() >= capacity) {
+                    break;
+                }
+                if (!pushedIds.contains(post.getId())) {
+                    posts.addLast(post);
+                }
+            }
+            loaded = true;
+        }
+
+        synchronized int weight(boolean sharedPosts) {
+            int weight = ENTRY_OVERHEAD_BYTES + POST_REFERENCE_BYTES * posts.size();
+            if (!sharedPosts) {
+                for (Post post : posts) {
+                    byte[] json = post.getJson();
+                    weight += POST_BYTES + 2 * post.getText()
+                            .length() + (json != null ? json.length
+                                    : JSON_OVERHEAD_BYTES + post.getText()
+                                            .length());
+                }
+            }
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.codechallenge.twitterapi.service;
+
+import java.io.IOException;
+
+import com.codechallenge.twitterapi.dto.PostDTO;
+
+/**
+ * Receiver of a live timeline, fed by {@link TimelineSubscriptions} from one sender thread at a time.
+ */
+public interface TimelineSink {
+    void send(PostDTO post) throws IOException;
+
+    /**
+     * Called once when the subscription is ended by the server, e.g. because the subscriber fell too far behind.
+     */
+    void close();
+}
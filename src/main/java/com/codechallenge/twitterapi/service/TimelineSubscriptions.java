@@ -0,0 +1,354 @@
+package com.codechallenge.twitterapi.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.utils.PostPojo2DtoConverter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Live timelines: every subscriber gets the posts pushed to its timeline through a queue of {@code queueCapacity}
+ * posts, drained by a small pool of sender threads so a publishing request never waits for a subscriber. When the
+ * queue of a slow subscriber is full, the {@code DROP_OLDEST} policy discards its oldest queued post and
+ * {@code DISCONNECT} ends the subscription, leaving it to the subscriber to resume from the last post it received.
+ * A send blocked for longer than {@code sendTimeoutMillis} ends the subscription too. While the send stays blocked
+ * the pool gets one more sender thread, so one stalled subscriber does not hold up the others. A sink is closed once
+ * its current send returns, never from the publishing thread.
+ */
+@Component
+public class TimelineSubscriptions implements MeterBinder {
+    public enum OverflowPolicy {
+        DROP_OLDEST, DISCONNECT
+    }
+
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final int queueCapacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Executor sender;
+
+    private final long sendTimeoutNanos;
+
+    private ScheduledExecutorService watchdog;
+
+    private volatile boolean closed;
+
+    private volatile Counter overflows;
+
+    private volatile Counter sendTimeouts;
+
+    @Autowired
+    public TimelineSubscriptions(@Value("${twitter.timeline.stream-queue-capacity:256}") int queueCapacity,
+            @Value("${twitter.timeline.stream-overflow:DISCONNECT}") OverflowPolicy overflowPolicy,
+            @Value("${twitter.timeline.stream-sender-threads:2}") int senderThreads,
+            @Value("${twitter.timeline.stream-send-timeout-ms:5000}") long sendTimeoutMillis) {
+        this(queueCapacity, overflowPolicy, new ThreadPoolExecutor(senderThreads, senderThreads, 0,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), daemonThreads("timeline-sender")),
+                sendTimeoutMillis);
+        if (sendTimeoutMillis > 0) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("timeline-send-watchdog"));
+            long period = Math.max(1, sendTimeoutMillis / 2);
+            watchdog.scheduleWithFixedDelay(this::dropStalledSubscribers, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public TimelineSubscriptions(int queueCapacity, OverflowPolicy overflowPolicy, Executor sender) {
+        this(queueCapacity, overflowPolicy, sender, 0);
+    }
+
+    public TimelineSubscriptions(int queueCapacity, OverflowPolicy overflowPolicy, Executor sender,
+            long sendTimeoutMillis) {
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.sender = sender;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+    }
+
+    /**
+     * Stops the sender threads; an executor that runs the senders in place has nothing to stop. Posts published
+     * afterwards are no longer sent.
+     */
+    @PreDestroy
+    public void close() {
+        closed = true;
+        if (watchdog != null) {
+            watchdog.shutdown();
+        }
+        if (sender instanceof ExecutorService) {
+            ((ExecutorService) sender).shutdown();
+        }
+    }
+
+    /**
+     * Registers a subscriber that buffers, but does not send, the posts published from now on until it is started.
+     */
+    public Subscription subscribe(String userName, TimelineSink sink) {
+        Subscription subscription = new Subscription(userName.toLowerCase(), sink);
+        subscriptions.computeIfAbsent(subscription.key, key -> ConcurrentHashMap.newKeySet())
+                .add(subscription);
+        subscriberCount.incrementAndGet();
+        return subscription;
+    }
+
+    public void publish(String userName, Post post) {
+        Set<Subscription> subscribers = subscriptions.get(userName.toLowerCase());
+        if (subscribers != null) {
+            for (Subscription subscription : subscribers) {
+                subscription.offer(post);
+            }
+        }
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("twitter.timeline.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open live timeline subscriptions")
+                .register(registry);
+        overflows = Counter.builder("twitter.timeline.stream.overflows")
+                .description("Posts that did not fit into the queue of a live timeline subscriber")
+                .tag("policy", overflowPolicy.name()
+                        .toLowerCase())
+                .register(registry);
+        sendTimeouts = Counter.builder("twitter.timeline.stream.send.timeouts")
+                .description("Live timeline subscribers dropped because a send to them was blocked too long")
+                .register(registry);
+    }
+
+    /**
+     * Ends the subscriptions whose current send has been blocked for longer than the send timeout.
+     */
+    void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Set<Subscription> subscribers : subscriptions.values()) {
+            for (Subscription subscription : subscribers) {
+                if (subscription.markStalled(now)) {
+                    if (sendTimeouts != null) {
+                        sendTimeouts.increment();
+                    }
+                    subscription.unregister();
+                }
+            }
+        }
+    }
+
+    private void resizeSenderPool(int delta) {
+        if (sender instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) sender;
+            synchronized (pool) {
+                // the maximum may never fall below the core size
+                if (delta > 0) {
+                    pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                    pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                } else {
+                    pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                    pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public final class Subscription {
+        private final String key;
+
+        private final TimelineSink sink;
+
+        private final BlockingQueue<Post> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Deque<Post> missedPosts;
+
+        private Set<Long> missedIds;
+
+        private volatile boolean started;
+
+        // guarded by this subscription
+        private long sendStartedNanos;
+
+        private boolean stalled;
+
+        private boolean closeAfterSend;
+
+        Subscription(String key, TimelineSink sink) {
+            this.key = key;
+            this.sink = sink;
+        }
+
+        /**
+         * Starts sending: first the given posts published before the subscription (oldest first), then the buffered
+         * and new ones that are not among them.
+         */
+        public void start(List<Post> missedPosts) {
+            this.missedPosts = new ArrayDeque<>(missedPosts);
+            // a post of one author may be published after a newer post of another author was read as missed
+            missedIds = new HashSet<>(missedPosts.size() * 2);
+            for (Post post : missedPosts) {
+                missedIds.add(post.getId());
+            }
+            started = true;
+            scheduleDrain();
+        }
+
+        public void cancel() {
+            unregister();
+        }
+
+        void offer(Post post) {
+            while (!queue.offer(post)) {
+                if (overflows != null) {
+                    overflows.increment();
+                }
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    disconnect();
+                    return;
+                }
+                queue.poll();
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (started && !closed && !cancelled.get() && draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // closed meanwhile
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                for (Post post = missedPosts.poll(); post != null && !cancelled.get(); post = missedPosts.poll()) {
+                    send(post);
+                }
+                for (Post post = queue.poll(); post != null && !cancelled.get(); post = queue.poll()) {
+                    if (!missedIds.contains(post.getId())) {
+                        send(post);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                cancel();
+            } finally {
+                draining.set(false);
+            }
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(Post post) throws IOException {
+            synchronized (this) {
+                sendStartedNanos = System.nanoTime() | 1;
+            }
+            try {
+                sink.send(PostPojo2DtoConverter.convert(post));
+            } finally {
+                boolean wasStalled;
+                boolean close;
+                synchronized (this) {
+                    sendStartedNanos = 0;
+                    wasStalled = stalled;
+                    close = closeAfterSend;
+                    stalled = false;
+                    closeAfterSend = false;
+                }
+                if (wasStalled) {
+                    resizeSenderPool(-1);
+                }
+                if (close) {
+                    sink.close();
+                }
+            }
+        }
+
+        /**
+         * Tells whether the current send has just been found blocked for too long, and lends the pool a thread
+         * until it returns.
+         */
+        private synchronized boolean markStalled(long now) {
+            if (sendTimeoutNanos <= 0 || sendStartedNanos == 0 || stalled
+                    || now - sendStartedNanos < sendTimeoutNanos) {
+                return false;
+            }
+            stalled = true;
+            closeAfterSend = true;
+            resizeSenderPool(1);
+            return true;
+        }
+
+        private void disconnect() {
+            if (unregister()) {
+                synchronized (this) {
+                    if (sendStartedNanos != 0) {
+                        // a sink is not closed while it is sending
+                        closeAfterSend = true;
+                        return;
+                    }
+                }
+                sink.close();
+            }
+        }
+
+        private boolean unregister() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return false;
+            }
+            subscriptions.computeIfPresent(key, (userName, subscribers) -> {
+                subscribers.remove(this);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+            subscriberCount.decrementAndGet();
+            return true;
+        }
+    }
+}
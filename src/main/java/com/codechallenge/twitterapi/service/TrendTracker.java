@@ -0,0 +1,101 @@
+package com.codechallenge.twitterapi.service;
+
+import java.time.Clock;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.dto.TrendsDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.utils.EpochMillisModule;
+
+/**
+ * Counts the hashtags and mentions of the saved posts over the last 5 minutes, hour and 24 hours, at the time of
+ * the posts. Each window takes a fixed amount of memory, however many distinct tags appear: ten, twelve and 24
+ * buckets of count-min sketches of {@code sketchWidth} columns, and at most {@code candidates} tracked tags.
+ */
+@Component
+public class TrendTracker implements MutationListener {
+    private final TrendWindow last5Minutes;
+
+    private final TrendWindow lastHour;
+
+    private final TrendWindow last24Hours;
+
+    private final Clock clock;
+
+    @Autowired
+    public TrendTracker(MutationPublisher mutations, @Value("${twitter.trends.sketch-width:2048}") int sketchWidth,
+            @Value("${twitter.trends.candidates:100}") int candidates) {
+        this(mutations, sketchWidth, candidates, Clock.systemDefaultZone());
+    }
+
+    TrendTracker(MutationPublisher mutations, int sketchWidth, int candidates, Clock clock) {
+        this.last5Minutes = new TrendWindow(TimeUnit.SECONDS.toMillis(30), 10, sketchWidth, candidates);
+        this.lastHour = new TrendWindow(TimeUnit.MINUTES.toMillis(5), 12, sketchWidth, candidates);
+        this.last24Hours = new TrendWindow(TimeUnit.HOURS.toMillis(1), 24, sketchWidth, candidates);
+        this.clock = clock;
+        mutations.addListener(this);
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        Set<String> tags = tags(post.getText());
+        if (tags.isEmpty()) {
+            return;
+        }
+        long epochMillis = EpochMillisModule.toEpochMillis(post.getDateTime());
+        for (String tag : tags) {
+            last5Minutes.add(tag, epochMillis);
+            lastHour.add(tag, epochMillis);
+            last24Hours.add(tag, epochMillis);
+        }
+    }
+
+    @Override
+    public void onClear() {
+        last5Minutes.clear();
+        lastHour.clear();
+        last24Hours.clear();
+    }
+
+    /**
+     * Returns the heaviest tags of each window with their approximate counts, no more than there are candidates.
+     */
+    public TrendsDTO findTrends(int limit) {
+        long now = clock.millis();
+        return new TrendsDTO(last5Minutes.top(limit, now), lastHour.top(limit, now), last24Hours.top(limit, now));
+    }
+
+    /**
+     * Hashtags and mentions of the text in lower case: a {@code #} or {@code @} that does not follow a word,
+     * followed by letters, digits and underscores.
+     */
+    static Set<String> tags(String text) {
+        Set<String> tags = new LinkedHashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c == '#' || c == '@') && (i == 0 || !isTagChar(text.charAt(i - 1)))) {
+                int end = i + 1;
+                while (end < text.length() && isTagChar(text.charAt(end))) {
+                    end++;
+                }
+                if (end > i + 1) {
+                    tags.add(text.substring(i, end)
+                            .toLowerCase(Locale.ROOT));
+                }
+                i = end - 1;
+            }
+        }
+        return tags;
+    }
+
+    private static boolean isTagChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
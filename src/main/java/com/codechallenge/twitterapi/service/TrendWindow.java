@@ -0,0 +1,136 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.codechallenge.twitterapi.dto.TrendDTO;
+
+/**
+ * Sliding window of tag counts, kept as a ring of count-min sketches, one per time bucket, and their running total.
+ * The window slides a bucket at a time, so it spans between {@code buckets - 1} and {@code buckets} bucket lengths.
+ * The heaviest tags are tracked as a bounded set of candidates with their estimated counts: a tag that is not a
+ * candidate replaces the lightest one once its estimate is higher.
+ */
+class TrendWindow {
+    private final long bucketMillis;
+
+    private final CountMinSketch[] buckets;
+
+    private final CountMinSketch total;
+
+    private final int capacity;
+
+    private final Map<String, Integer> candidates;
+
+    /**
+     * Lower bound of the lightest candidate's count; estimates only grow until a bucket expires.
+     */
+    private int lightestCount;
+
+    private long newestBucket = Long.MIN_VALUE;
+
+    TrendWindow(long bucketMillis, int buckets, int sketchWidth, int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new CountMinSketch[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new CountMinSketch(sketchWidth);
+        }
+        this.total = new CountMinSketch(sketchWidth);
+        this.capacity = capacity;
+        this.candidates = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts the tag at the given time. Tags older than the window are ignored.
+     */
+    synchronized void add(String tag, long epochMillis) {
+        long bucket = Math.floorDiv(epochMillis, bucketMillis);
+        advanceTo(bucket);
+        if (bucket <= newestBucket - buckets.length) {
+            return;
+        }
+        buckets[slot(bucket)].add(tag);
+        total.add(tag);
+
+        int count = total.estimate(tag);
+        if (candidates.containsKey(tag) || candidates.size() < capacity) {
+            candidates.put(tag, count);
+        } else if (count > lightestCount) {
+            String lightest = lightestCandidate();
+            if (count > candidates.get(lightest)) {
+                candidates.remove(lightest);
+                candidates.put(tag, count);
+                lightest = lightestCandidate();
+            }
+            lightestCount = candidates.get(lightest);
+        }
+    }
+
+    /**
+     * Returns the heaviest tags of the window ending at the given time, heaviest first.
+     */
+    synchronized List<TrendDTO> top(int limit, long epochMillis) {
+        advanceTo(Math.floorDiv(epochMillis, bucketMillis));
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(candidates.entrySet());
+        entries.sort(Map.Entry.<String, Integer> comparingByValue()
+                .reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<TrendDTO> trends = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Map.Entry<String, Integer> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            trends.add(new TrendDTO(entry.getKey(), entry.getValue()));
+        }
+        return trends;
+    }
+
+    synchronized void clear() {
+        for (CountMinSketch bucket : buckets) {
+            bucket.clear();
+        }
+        total.clear();
+        candidates.clear();
+        lightestCount = 0;
+        newestBucket = Long.MIN_VALUE;
+    }
+
+    private void advanceTo(long bucket) {
+        if (bucket <= newestBucket) {
+            return;
+        }
+        if (newestBucket == Long.MIN_VALUE || bucket - newestBucket >= buckets.length) {
+            for (CountMinSketch expired : buckets) {
+                expired.clear();
+            }
+            total.clear();
+            candidates.clear();
+        } else {
+            for (long expiring = newestBucket + 1; expiring <= bucket; expiring++) {
+                CountMinSketch expired = buckets[slot(expiring)];
+                total.subtract(expired);
+                expired.clear();
+            }
+            candidates.replaceAll((tag, count) -> total.estimate(tag));
+            candidates.values()
+                    .removeIf(count -> count == 0);
+        }
+        newestBucket = bucket;
+        lightestCount = candidates.size() < capacity ? 0 : candidates.get(lightestCandidate());
+    }
+
+    private String lightestCandidate() {
+        String lightest = null;
+        int count = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            if (candidate.getValue() < count) {
+                lightest = candidate.getKey();
+                count = candidate.getValue();
+            }
+        }
+        return lightest;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets.length);
+    }
+}
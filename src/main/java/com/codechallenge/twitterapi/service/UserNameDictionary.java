@@ -0,0 +1,77 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Interns user names into dense integer ids. User names are case insensitive; every spelling passed to
+ * {@link #intern(String)} is remembered, so later lookups with that spelling do not allocate a lower-cased copy.
+ */
+@Component
+public class UserNameDictionary {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile String[] names = new String[16];
+
+    private volatile int size;
+
+    public int intern(String userName) {
+        Integer id = ids.get(userName);
+        if (id != null) {
+            return id;
+        }
+
+        String key = userName.toLowerCase();
+        id = ids.get(key);
+        if (id == null) {
+            id = register(key);
+        }
+        ids.putIfAbsent(userName, id);
+        return id;
+    }
+
+    public int findId(String userName) {
+        Integer id = ids.get(userName);
+        if (id == null) {
+            id = ids.get(userName.toLowerCase());
+        }
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the lower-cased name of the user.
+     */
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public String canonicalName(String userName) {
+        int id = findId(userName);
+        return id >= 0 ? nameOf(id) : userName.toLowerCase();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private synchronized int register(String key) {
+        Integer existingId = ids.get(key);
+        if (existingId != null) {
+            return existingId;
+        }
+
+        int id = size;
+        String[] currentNames = names;
+        if (id == currentNames.length) {
+            currentNames = Arrays.copyOf(currentNames, currentNames.length * 2);
+        }
+        currentNames[id] = key;
+        names = currentNames;
+        size = id + 1;
+        ids.put(key, id);
+        return id;
+    }
+}
@@ -1,5 +1,6 @@
 package com.codechallenge.twitterapi.service;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,8 +14,42 @@ public interface UserRepository {
 
     List<User> findAll();
 
+    /**
+     * Iterates over all users without copying them first; users saved meanwhile may or may not be returned.
+     */
+    default Iterator<User> iterateAll() {
+        return findAll().iterator();
+    }
+
+    /**
+     * Returns the users that follow or are followed by someone. In a partitioned deployment they include users
+     * registered on other nodes, of which only the name is known.
+     */
+    List<User> findAllWithFollows();
+
     List<User> findAllFollowedUsers(String userName);
 
+    List<User> findAllFollowers(String userName);
+
+    /**
+     * Returns at most {@code limit} followers of the user, in a stable order, starting after the follower named
+     * {@code after} or from the first one when it is {@code null}.
+     */
+    List<User> findFollowers(String userName, String after, int limit);
+
+    int countFollowers(String userName);
+
+    int countFollowedUsers(String userName);
+
+    boolean follow(User user, User userToFollow);
+
+    long count();
+
+    /**
+     * Removes all users and follows, without notifying the mutation listeners.
+     */
+    void clear();
+
     default boolean userExists(String userName) {
         return findByName(userName).isPresent();
     }
@@ -1,12 +1,15 @@
 package com.codechallenge.twitterapi.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -14,12 +17,25 @@ import com.codechallenge.twitterapi.model.User;
 
 @Component
 public class UserRepositoryImpl implements UserRepository {
-    private Map<String, User> allUsers = new HashMap<>();
+    private Map<String, User> allUsers = new ConcurrentHashMap<>();
+
+    private final FollowGraph followGraph;
+
+    private final UserNameDictionary userNames;
+
+    private final MutationListener mutations;
+
+    @Autowired
+    public UserRepositoryImpl(FollowGraph followGraph, UserNameDictionary userNames, MutationPublisher mutations) {
+        this.followGraph = followGraph;
+        this.userNames = userNames;
+        this.mutations = mutations;
+    }
 
     @Override
     public User save(User user) {
-        allUsers.put(user.getName()
-                .toLowerCase(), user);
+        allUsers.put(userNames.nameOf(userNames.intern(user.getName())), user);
+        mutations.onUserSaved(user);
         return user;
     }
 
@@ -36,17 +52,112 @@ public class UserRepositoryImpl implements UserRepository {
         return new ArrayList<>(allUsers.values());
     }
 
+    @Override
+    public Iterator<User> iterateAll() {
+        return Collections.unmodifiableCollection(allUsers.values())
+                .iterator();
+    }
+
+    @Override
+    public List<User> findAllWithFollows() {
+        List<User> users = new ArrayList<>();
+        for (int id = 0, size = followGraph.size(); id < size; id++) {
+            if (followGraph.followedIds(id).length > 0 || followGraph.followerIds(id).length > 0) {
+                addUser(users, id);
+            }
+        }
+        return users;
+    }
+
     @Override
     public List<User> findAllFollowedUsers(String userName) {
-        Optional<User> user = getUser(userName);
-        return user.isPresent() ? user.get()
-                .getFollowedUsers() : Collections.emptyList();
+        int id = followGraph.findId(userName);
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+        return toUsers(followGraph.followedIds(id));
+    }
+
+    @Override
+    public List<User> findAllFollowers(String userName) {
+        int followedId = followGraph.findId(userName);
+        if (followedId < 0) {
+            return Collections.emptyList();
+        }
+
+        return toUsers(followGraph.followerIds(followedId));
+    }
+
+    @Override
+    public List<User> findFollowers(String userName, String after, int limit) {
+        int followedId = followGraph.findId(userName);
+        int afterId = after != null ? followGraph.findId(after) : -1;
+        if (followedId < 0 || after != null && afterId < 0) {
+            return Collections.emptyList();
+        }
+
+        int[] followerIds = followGraph.followerIds(followedId);
+        int index = after != null ? Arrays.binarySearch(followerIds, afterId) : -1;
+        int from = index >= 0 ? index + 1 : -index - 1;
+        List<User> followers = new ArrayList<>(Math.min(limit, followerIds.length - from));
+        for (int i = from; i < followerIds.length && followers.size() < limit; i++) {
+            addUser(followers, followerIds[i]);
+        }
+        return followers;
+    }
+
+    @Override
+    public int countFollowers(String userName) {
+        return followGraph.followerIds(followGraph.findId(userName)).length;
+    }
+
+    @Override
+    public int countFollowedUsers(String userName) {
+        return followGraph.followedIds(followGraph.findId(userName)).length;
+    }
+
+    @Override
+    public boolean follow(User user, User userToFollow) {
+        boolean followed = followGraph.follow(user.getName(), userToFollow.getName());
+        if (followed) {
+            mutations.onFollow(user, userToFollow);
+        }
+        return followed;
+    }
+
+    @Override
+    public long count() {
+        return allUsers.size();
+    }
+
+    @Override
+    public void clear() {
+        allUsers.clear();
+        followGraph.clear();
+    }
+
+    private List<User> toUsers(int[] ids) {
+        List<User> users = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            addUser(users, id);
+        }
+        return users;
+    }
+
+    /**
+     * A user registered on another node of a partitioned deployment takes part in follows without being saved here,
+     * so only its name is known.
+     */
+    private void addUser(List<User> users, int id) {
+        String userName = followGraph.nameOf(id);
+        User user = allUsers.get(userName);
+        users.add(user != null ? user : new User(userName));
     }
 
     private Optional<User> getUser(String userName) {
         if (StringUtils.isEmpty(userName)) {
             Optional.empty();
         }
-        return Optional.ofNullable(allUsers.get(userName.toLowerCase()));
+        return Optional.ofNullable(allUsers.get(userNames.canonicalName(userName)));
     }
 }
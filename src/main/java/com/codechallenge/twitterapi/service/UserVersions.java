@@ -0,0 +1,137 @@
+package com.codechallenge.twitterapi.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.codechallenge.twitterapi.cluster.ShardRing;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+/**
+ * Per-user counters that grow whenever the posts of a user or the follows around a user change, from which the
+ * versions of the post list, the followed users and the timeline of a user are derived without reading them.
+ * Versions are prefixed with the start time of the repositories, so a version never stands for two different
+ * states, even when the counters start over after a restart or after the repositories are cleared. In a partitioned
+ * deployment the changes made on other nodes are not counted, so there is no version of what involves users of other
+ * nodes.
+ */
+@Component
+public class UserVersions implements MutationListener {
+    private static final int PAGE_BITS = 10;
+
+    private static final int POSTS = 0;
+
+    private static final int FOLLOWS = 1;
+
+    private final FollowGraph followGraph;
+
+    private final ShardRing shardRing;
+
+    private volatile String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    /**
+     * Two counters per user id, in pages that are never copied, so no increment is lost while the pages grow.
+     */
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[16];
+
+    public UserVersions(FollowGraph followGraph, MutationPublisher mutations) {
+        this(followGraph, mutations, ShardRing.singleNode());
+    }
+
+    @Autowired
+    public UserVersions(FollowGraph followGraph, MutationPublisher mutations, ShardRing shardRing) {
+        this.followGraph = followGraph;
+        this.shardRing = shardRing;
+        mutations.addListener(this);
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        increment(followGraph.intern(post.getUser()
+                .getName()), POSTS);
+    }
+
+    /**
+     * Both sides change: the followed users of the one and the followers of the other.
+     */
+    @Override
+    public void onFollow(User user, User followedUser) {
+        increment(followGraph.intern(user.getName()), FOLLOWS);
+        increment(followGraph.intern(followedUser.getName()), FOLLOWS);
+    }
+
+    @Override
+    public synchronized void onClear() {
+        pages = new AtomicLongArray[16];
+        epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    }
+
+    public String postsVersion(String userName) {
+        return epoch + "-" + get(followGraph.findId(userName), POSTS);
+    }
+
+    /**
+     * Changes with the followed set and with the follows of every followed user; {@code null} when a followed user is
+     * owned by another node.
+     */
+    public String followedUsersVersion(String userName) {
+        return sumOverFollowedUsers(userName, FOLLOWS);
+    }
+
+    /**
+     * Changes with the followed set and with the posts of every followed user; {@code null} when a followed user is
+     * owned by another node.
+     */
+    public String timelineVersion(String userName) {
+        return sumOverFollowedUsers(userName, POSTS);
+    }
+
+    private String sumOverFollowedUsers(String userName, int counter) {
+        int id = followGraph.findId(userName);
+        long sum = 0;
+        for (int followedId : followGraph.followedIds(id)) {
+            if (shardRing.isPartitioned() && !shardRing.isLocal(followGraph.nameOf(followedId))) {
+                return null;
+            }
+            sum += get(followedId, counter);
+        }
+        return epoch + "-" + get(id, FOLLOWS) + "-" + sum;
+    }
+
+    private long get(int id, int counter) {
+        AtomicLongArray[] current = pages;
+        int page = id >>> PAGE_BITS;
+        if (id < 0 || page >= current.length || current[page] == null) {
+            return 0;
+        }
+        return current[page].get(slot(id, counter));
+    }
+
+    private void increment(int id, int counter) {
+        int page = id >>> PAGE_BITS;
+        AtomicLongArray[] current = pages;
+        if (page >= current.length || current[page] == null) {
+            current = addPage(page);
+        }
+        current[page].incrementAndGet(slot(id, counter));
+    }
+
+    private synchronized AtomicLongArray[] addPage(int page) {
+        AtomicLongArray[] current = pages;
+        if (page >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, page + 1));
+        }
+        if (current[page] == null) {
+            current[page] = new AtomicLongArray(2 << PAGE_BITS);
+        }
+        pages = current;
+        return current;
+    }
+
+    private static int slot(int id, int counter) {
+        return ((id & ((1 << PAGE_BITS) - 1)) << 1) + counter;
+    }
+}
@@ -0,0 +1,54 @@
+package com.codechallenge.twitterapi.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+
+/**
+ * Object mappers of the binary representations of the API. They write the same properties as the JSON one, with
+ * dates as milliseconds since the epoch.
+ */
+public final class BinaryMappers {
+    /**
+     * Protobuf messages of the DTOs, served to clients as a static resource.
+     */
+    public static final String PROTOBUF_SCHEMA = "static/twitter.proto";
+
+    private BinaryMappers() {
+    }
+
+    public static ObjectMapper smile() {
+        return Jackson2ObjectMapperBuilder.smile()
+                .modulesToInstall(new EpochMillisModule())
+                .build();
+    }
+
+    public static ObjectMapper cbor() {
+        return Jackson2ObjectMapperBuilder.cbor()
+                .modulesToInstall(new EpochMillisModule())
+                .build();
+    }
+
+    /**
+     * Protobuf needs a schema to write a value, see {@link #protobufSchema()}.
+     */
+    public static ObjectMapper protobuf() {
+        return Jackson2ObjectMapperBuilder.json()
+                .factory(new ProtobufFactory())
+                .modulesToInstall(new EpochMillisModule())
+                .build();
+    }
+
+    public static ProtobufSchema protobufSchema() throws IOException {
+        try (InputStream schema = new ClassPathResource(PROTOBUF_SCHEMA).getInputStream()) {
+            return ProtobufSchemaLoader.std.load(schema);
+        }
+    }
+}
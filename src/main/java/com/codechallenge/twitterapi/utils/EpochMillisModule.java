@@ -0,0 +1,65 @@
+package com.codechallenge.twitterapi.utils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+/**
+ * Writes dates as milliseconds since the epoch rather than ISO strings, which is what the binary formats send. Posts
+ * are dated in the default time zone, so that zone maps them to instants.
+ */
+public class EpochMillisModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    public EpochMillisModule() {
+        super("EpochMillisModule");
+        addSerializer(LocalDateTime.class, new Serializer());
+        addDeserializer(LocalDateTime.class, new Deserializer());
+    }
+
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static final class Serializer extends StdScalarSerializer<LocalDateTime> {
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeNumber(toEpochMillis(value));
+        }
+    }
+
+    private static final class Deserializer extends StdScalarDeserializer<LocalDateTime> {
+        private static final long serialVersionUID = 1L;
+
+        Deserializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return fromEpochMillis(parser.getLongValue());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.codechallenge.twitterapi.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Encodes a post to JSON, as the mapper would serialize its {@link PostDTO}, the first time it is written and keeps
+ * the bytes on the post. The heap store returns the stored posts, so their fragments are encoded once and reused by
+ * every later page; posts that are never read carry none. The columnar and tiered stores decode a new post on every
+ * read, so there only the posts held by materialized timelines reuse their fragments.
+ */
+public class PostJsonEncoder {
+    private final ObjectWriter postWriter;
+
+    public PostJsonEncoder(ObjectMapper objectMapper) {
+        this.postWriter = objectMapper.writerFor(PostDTO.class);
+    }
+
+    public byte[] encode(Post post) {
+        byte[] json = post.getJson();
+        if (json == null) {
+            try {
+                json = postWriter.writeValueAsBytes(PostPojo2DtoConverter.convert(post));
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+            post.setJson(json);
+        }
+        return json;
+    }
+
+    /**
+     * Writes the posts as a JSON array by copying their fragments straight to the output.
+     */
+    public void writeArray(List<Post> posts, OutputStream output) throws IOException {
+        output.write('[');
+        for (int i = 0; i < posts.size(); i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            output.write(encode(posts.get(i)));
+        }
+        output.write(']');
+    }
+}
@@ -1,5 +1,6 @@
 package com.codechallenge.twitterapi.utils;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -8,7 +9,7 @@ import com.codechallenge.twitterapi.model.Post;
 
 public class PostPojo2DtoConverter {
     public static PostDTO convert(Post post) {
-        return new PostDTO(post.getText(), post.getUser()
+        return new PostDTO(post.getId(), post.getText(), post.getUser()
                 .getName(), post.getDateTime());
     }
 
@@ -17,4 +18,18 @@ public class PostPojo2DtoConverter {
                 .map(PostPojo2DtoConverter::convert)
                 .collect(Collectors.toList());
     }
+
+    public static Iterator<PostDTO> convert(Iterator<Post> posts) {
+        return new Iterator<PostDTO>() {
+            @Override
+            public boolean hasNext() {
+                return posts.hasNext();
+            }
+
+            @Override
+            public PostDTO next() {
+                return convert(posts.next());
+            }
+        };
+    }
 }
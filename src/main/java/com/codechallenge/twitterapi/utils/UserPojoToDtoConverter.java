@@ -1,10 +1,12 @@
 package com.codechallenge.twitterapi.utils;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import com.codechallenge.twitterapi.dto.UserDTO;
 import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.UserRepository;
 
 public class UserPojoToDtoConverter {
     public static UserDTO convert(User user) {
@@ -16,4 +18,32 @@ public class UserPojoToDtoConverter {
                 .map(UserPojoToDtoConverter::convert)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Converts the user along with its follower and following counts.
+     */
+    public static UserDTO convert(User user, UserRepository userRepository) {
+        return new UserDTO(user.getName(), userRepository.countFollowers(user.getName()),
+                userRepository.countFollowedUsers(user.getName()));
+    }
+
+    public static List<UserDTO> convert(List<User> users, UserRepository userRepository) {
+        return users.stream()
+                .map(user -> convert(user, userRepository))
+                .collect(Collectors.toList());
+    }
+
+    public static Iterator<UserDTO> convert(Iterator<User> users, UserRepository userRepository) {
+        return new Iterator<UserDTO>() {
+            @Override
+            public boolean hasNext() {
+                return users.hasNext();
+            }
+
+            @Override
+            public UserDTO next() {
+                return convert(users.next(), userRepository);
+            }
+        };
+    }
 }
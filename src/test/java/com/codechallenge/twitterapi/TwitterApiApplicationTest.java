@@ -3,12 +3,15 @@ package com.codechallenge.twitterapi;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import com.codechallenge.twitterapi.controller.UserController;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -21,4 +24,14 @@ public class TwitterApiApplicationTest {
     public void contextLoads() throws Exception {
         assertThat(userController).isNotNull();
     }
+
+    @Test
+    public void shouldRefuseToStartPartitionedNodeInReactiveMode() {
+        // when-then
+        assertThatThrownBy(() -> new SpringApplicationBuilder(TwitterApiApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .run("--spring.profiles.active=" + TwitterApiApplication.REACTIVE_PROFILE, "--server.port=0",
+                        "--spring.jmx.enabled=false", "--twitter.cluster.enabled=true"))
+                                .hasStackTraceContaining("twitter.cluster.enabled is not supported");
+    }
 }
@@ -0,0 +1,147 @@
+package com.codechallenge.twitterapi.cluster;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import com.codechallenge.twitterapi.TwitterApiApplication;
+import com.codechallenge.twitterapi.controller.MediaTypes;
+import com.codechallenge.twitterapi.dto.NewPostDTO;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two nodes in one JVM, each owning part of the users.
+ */
+public class PartitionedDeploymentTest {
+    private static final int NODES = 2;
+
+    private static final ConfigurableApplicationContext[] contexts = new ConfigurableApplicationContext[NODES];
+
+    private static List<String> nodeUrls;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @BeforeClass
+    public static void startNodes() throws IOException {
+        int[] ports = new int[NODES];
+        String[] urls = new String[NODES];
+        for (int node = 0; node < NODES; node++) {
+            ports[node] = freePort();
+            urls[node] = "http://localhost:" + ports[node] + "/twitter/api";
+        }
+        nodeUrls = Arrays.asList(urls);
+        for (int node = 0; node < NODES; node++) {
+            // as on the command line, since application.properties takes precedence over default properties
+            contexts[node] = new SpringApplicationBuilder(TwitterApiApplication.class).run("--server.port="
+                    + ports[node], "--spring.jmx.enabled=false", "--twitter.cluster.enabled=true",
+                    "--twitter.cluster.nodes=" + String.join(",", urls), "--twitter.cluster.node-index=" + node);
+        }
+    }
+
+    @AfterClass
+    public static void stopNodes() {
+        for (ConfigurableApplicationContext context : contexts) {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    @Test
+    public void shouldServeUsersAndTimelinesFromAnyNode() {
+        // given
+        ShardRing shardRing = new ShardRing(nodeUrls, 0, 128);
+        String follower = userOwnedBy(shardRing, 0);
+        String followed = userOwnedBy(shardRing, 1);
+
+        // when
+        post(0, "/users", follower);
+        post(0, "/users", followed);
+        post(1, "/users/" + follower + "/followed-users", followed);
+        restTemplate.postForEntity(nodeUrls.get(0) + "/users/" + followed + "/posts", Collections.singletonMap(
+                "text", "post on the other node"), String.class);
+
+        // then
+        assertThat(contexts[0].getBean(UserRepository.class)
+                .userExists(follower)).isTrue();
+        assertThat(contexts[1].getBean(UserRepository.class)
+                .userExists(followed)).isTrue();
+        assertThat(contexts[0].getBean(UserRepository.class)
+                .userExists(followed)).isFalse();
+        assertThat(restTemplate.getForObject(nodeUrls.get(0) + "/users/" + followed + "/followers", String.class))
+                .contains(follower);
+        assertThat(restTemplate.getForObject(nodeUrls.get(1) + "/users/" + follower + "/timelines", String.class))
+                .contains("post on the other node");
+    }
+
+    @Test
+    public void shouldStreamTimelineReadingOtherNodePageByPage() {
+        // given
+        ShardRing shardRing = new ShardRing(nodeUrls, 0, 128);
+        String follower = userOwnedBy(shardRing, 0, "reader");
+        String followed = userOwnedBy(shardRing, 1, "writer");
+        post(0, "/users", follower);
+        post(0, "/users", followed);
+        post(0, "/users/" + follower + "/followed-users", followed);
+        int posts = 2 * ShardClient.PAGE_SIZE + 1;
+        List<NewPostDTO> newPosts = new ArrayList<>(posts);
+        for (int i = 0; i < posts; i++) {
+            newPosts.add(new NewPostDTO(followed, "post " + i));
+        }
+        restTemplate.postForEntity(nodeUrls.get(0) + "/posts/bulk", newPosts, String.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.valueOf(MediaTypes.APPLICATION_NDJSON_VALUE)));
+
+        // when
+        String timeline = restTemplate.exchange(nodeUrls.get(0) + "/users/" + follower + "/timelines",
+                HttpMethod.GET, new HttpEntity<>(headers), String.class)
+                .getBody();
+
+        // then
+        String[] lines = timeline.split("\n");
+        assertThat(lines).hasSize(posts);
+        assertThat(lines[0]).contains("post " + (posts - 1));
+        assertThat(lines[posts - 1]).contains("post 0");
+    }
+
+    private void post(int node, String path, String name) {
+        assertThat(restTemplate.postForEntity(nodeUrls.get(node) + path, Collections.singletonMap("name", name),
+                String.class)
+                .getStatusCode()
+                .is2xxSuccessful()).isTrue();
+    }
+
+    private static String userOwnedBy(ShardRing shardRing, int node) {
+        return userOwnedBy(shardRing, node, "user");
+    }
+
+    private static String userOwnedBy(ShardRing shardRing, int node, String prefix) {
+        for (int i = 0;; i++) {
+            if (shardRing.ownerOf(prefix + i) == node) {
+                return prefix + i;
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.codechallenge.twitterapi.cluster;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PostIdGeneratorTest {
+    private static final List<String> NODES = Arrays.asList("http://localhost:8080/twitter/api",
+            "http://localhost:8081/twitter/api", "http://localhost:8082/twitter/api");
+
+    private static final Instant NOW = Instant.parse("2018-03-01T12:00:00Z");
+
+    @Test
+    public void shouldLeaveNumberingToRepositoryOnSingleNode() {
+        // given
+        PostIdGenerator generator = new PostIdGenerator(ShardRing.singleNode());
+
+        // when-then
+        assertEquals(0, generator.nextId());
+    }
+
+    @Test
+    public void shouldCarryNodeIndexInLowBits() {
+        // given
+        PostIdGenerator generator = generator(2, NOW);
+
+        // when
+        long id = generator.nextId();
+
+        // then
+        assertEquals(2, id & (1 << PostIdGenerator.NODE_BITS) - 1);
+    }
+
+    @Test
+    public void shouldOrderIdsOfNodesByTime() {
+        // given
+        PostIdGenerator earlierNode = generator(2, NOW);
+        PostIdGenerator laterNode = generator(0, NOW.plusMillis(1));
+
+        // when-then
+        assertTrue(earlierNode.nextId() < laterNode.nextId());
+    }
+
+    @Test
+    public void shouldKeepIdsAscendingWhileClockStandsStill() {
+        // given
+        PostIdGenerator generator = generator(1, NOW);
+        long lastId = 0;
+
+        // when-then
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > lastId);
+            lastId = id;
+        }
+    }
+
+    @Test
+    public void shouldDrawIdsAboveRestoredOneWhenClockWentBack() {
+        // given
+        long restoredId = generator(1, NOW.plusSeconds(3600)).nextId();
+        PostIdGenerator generator = generator(1, NOW);
+
+        // when
+        generator.advancePast(restoredId);
+        long id = generator.nextId();
+
+        // then
+        assertTrue(id > restoredId);
+        assertEquals(1, id & (1 << PostIdGenerator.NODE_BITS) - 1);
+    }
+
+    private static PostIdGenerator generator(int nodeIndex, Instant now) {
+        return new PostIdGenerator(new ShardRing(NODES, nodeIndex, 16), Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
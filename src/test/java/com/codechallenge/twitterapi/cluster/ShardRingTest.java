@@ -0,0 +1,91 @@
+package com.codechallenge.twitterapi.cluster;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShardRingTest {
+    private static final int USERS = 30_000;
+
+    private static final List<String> NODES = Arrays.asList("http://localhost:8080/twitter/api",
+            "http://localhost:8081/twitter/api", "http://localhost:8082/twitter/api");
+
+    @Test
+    public void shouldOwnEveryUserOnSingleNode() {
+        // given
+        ShardRing shardRing = ShardRing.singleNode();
+
+        // when-then
+        assertTrue(shardRing.isLocal("User"));
+        assertEquals(1, shardRing.size());
+    }
+
+    @Test
+    public void shouldAssignUserRegardlessOfCase() {
+        // given
+        ShardRing shardRing = new ShardRing(NODES, 0, 128);
+
+        // when-then
+        for (int i = 0; i < 100; i++) {
+            assertEquals(shardRing.ownerOf("user" + i), shardRing.ownerOf("USER" + i));
+        }
+    }
+
+    @Test
+    public void shouldSpreadUsersEvenlyAcrossNodes() {
+        // given
+        ShardRing shardRing = new ShardRing(NODES, 0, 128);
+        int[] usersPerNode = new int[NODES.size()];
+
+        // when
+        for (int i = 0; i < USERS; i++) {
+            usersPerNode[shardRing.ownerOf("user" + i)]++;
+        }
+
+        // then
+        for (int users : usersPerNode) {
+            assertTrue(Arrays.toString(usersPerNode), users > USERS / NODES.size() * 0.7
+                    && users < USERS / NODES.size() * 1.3);
+        }
+    }
+
+    @Test
+    public void shouldMoveOnlyUsersOfNewNodeWhenNodeIsAdded() {
+        // given
+        ShardRing shardRing = new ShardRing(NODES.subList(0, 2), 0, 128);
+        ShardRing grownShardRing = new ShardRing(NODES, 0, 128);
+        int movedUsers = 0;
+
+        // when
+        for (int i = 0; i < USERS; i++) {
+            int owner = grownShardRing.ownerOf("user" + i);
+            if (owner != shardRing.ownerOf("user" + i)) {
+                assertEquals(2, owner);
+                movedUsers++;
+            }
+        }
+
+        // then
+        assertTrue(String.valueOf(movedUsers), movedUsers > USERS / 3 * 0.8 && movedUsers < USERS / 3 * 1.2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNodeIndexOutsideNodes() {
+        // when
+        new ShardRing(NODES, 3, 128);
+    }
+
+    @Test
+    public void shouldReadUserNameOfPath() {
+        // when-then
+        assertEquals("User", ShardRoutingFilter.userNameOf("/users/User"));
+        assertEquals("User Name", ShardRoutingFilter.userNameOf("/users/User%20Name/followed-users"));
+        assertNull(ShardRoutingFilter.userNameOf("/users/"));
+        assertNull(ShardRoutingFilter.userNameOf("/posts"));
+    }
+}
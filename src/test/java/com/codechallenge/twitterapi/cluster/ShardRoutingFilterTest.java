@@ -0,0 +1,79 @@
+package com.codechallenge.twitterapi.cluster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardRoutingFilterTest {
+    private final ShardRoutingFilter filter = new ShardRoutingFilter(new ShardRing(Arrays.asList(
+            "http://127.0.0.1:8080/twitter/api", "http://10.0.0.2:8080/twitter/api"), 0, 16), new ObjectMapper(),
+            2000);
+
+    @Test
+    public void shouldTrustRequestsFromNodes() {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/twitter/api/users");
+        request.setRemoteAddr("10.0.0.2");
+
+        // when-then
+        assertTrue(filter.isFromNode(request));
+    }
+
+    @Test
+    public void shouldNotTrustRequestsFromClients() {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/twitter/api/users");
+        request.setRemoteAddr("10.0.0.3");
+
+        // when-then
+        assertFalse(filter.isFromNode(request));
+    }
+
+    @Test
+    public void shouldNotifyReadListenerOfCachedBody() throws IOException {
+        // given
+        ServletInputStream input = new ShardRoutingFilter.CachedBodyRequest(new MockHttpServletRequest(),
+                "{\"name\":\"alice\"}".getBytes(StandardCharsets.UTF_8)).getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+
+        // when
+        input.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                events.add("data");
+                while (input.isReady() && !input.isFinished()) {
+                    read.write(input.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("error");
+            }
+        });
+
+        // then
+        assertEquals(Arrays.asList("data", "done"), events);
+        assertEquals("{\"name\":\"alice\"}", new String(read.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
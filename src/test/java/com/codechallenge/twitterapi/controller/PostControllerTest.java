@@ -0,0 +1,164 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.restdocs.AutoConfigureRestDocs;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.codechallenge.twitterapi.dto.NewPostDTO;
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.PostSearchIndex;
+import com.codechallenge.twitterapi.service.PostService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.preprocessRequest;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.preprocessResponse;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.prettyPrint;
+import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
+import static org.springframework.restdocs.payload.PayloadDocumentation.requestFields;
+import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.requestParameters;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebMvcTest(PostController.class)
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+public class PostControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PostService postService;
+
+    @MockBean
+    private PostSearchIndex searchIndex;
+
+    @Test
+    public void shouldAddValidPostsAndReportInvalidOnes() throws Exception {
+        // given
+        List<NewPostDTO> newPosts = Arrays.asList(new NewPostDTO("User", "first post"), new NewPostDTO("User", ""),
+                new NewPostDTO("Other", "second post"));
+        when(postService.addNewPosts(anyList())).thenReturn(
+                Arrays.asList(createPost(1, "first post", "User"), createPost(2, "second post", "Other")));
+
+        // when-then
+        mockMvc.perform(post("/twitter/api/posts/bulk").contextPath("/twitter/api")
+                .contentType(APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(newPosts)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].status", is(201)))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].status", is(400)))
+                .andExpect(jsonPath("$[1].errors[0].field", is("text")))
+                .andExpect(jsonPath("$[2].status", is(201)))
+                .andExpect(jsonPath("$[2].id", is(2)))
+                .andDo(document("posts/bulk", preprocessRequest(prettyPrint()), preprocessResponse(prettyPrint()),
+                        requestFields(fieldWithPath("[].userName").description("The author of the post"),
+                                fieldWithPath("[].text").description("The text to publish")),
+                        responseFields(fieldWithPath("[].status")
+                                .description("201 when the post was published, 400 when the record is invalid"),
+                                fieldWithPath("[].id").optional()
+                                        .description("The identifier of the published post"),
+                                fieldWithPath("[].errors").optional()
+                                        .description("Why the record was rejected"),
+                                fieldWithPath("[].errors[].field").description("The invalid field"),
+                                fieldWithPath("[].errors[].message").description("What is wrong with it"))));
+    }
+
+    @Test
+    public void shouldAddPostsFromNewlineDelimitedJson() throws Exception {
+        // given
+        String body = "{\"userName\":\"User\",\"text\":\"first post\"}\n{\"userName\":\n\n"
+                + "{\"userName\":\"User\",\"text\":\"second post\"}\n";
+        when(postService.addNewPosts(anyList())).thenReturn(
+                Arrays.asList(createPost(1, "first post", "User"), createPost(2, "second post", "User")));
+
+        // when-then
+        mockMvc.perform(post("/twitter/api/posts/bulk").contextPath("/twitter/api")
+                .contentType(MediaTypes.APPLICATION_NDJSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].status", is(400)))
+                .andExpect(jsonPath("$[1].errors[0].message", is("Malformed JSON record")))
+                .andExpect(jsonPath("$[2].id", is(2)))
+                .andDo(document("posts/bulk-ndjson"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<NewPostDTO>> validPosts = ArgumentCaptor.forClass(List.class);
+        verify(postService).addNewPosts(validPosts.capture());
+        assertEquals(2, validPosts.getValue()
+                .size());
+    }
+
+    @Test
+    public void shouldReturnNewestPostsMatchingQuery() throws Exception {
+        // given
+        User user = new User("User");
+        Post newer = new Post(7, "more #java streams", user, LocalDateTime.of(2018, 3, 24, 12, 0));
+        Post older = new Post(3, "java streams", user, LocalDateTime.of(2018, 3, 24, 11, 0));
+        when(searchIndex.search("java streams", 2, 42L)).thenReturn(Arrays.asList(newer, older));
+
+        // when-then
+        mockMvc.perform(get("/twitter/api/posts/search").contextPath("/twitter/api")
+                .param("q", "java streams")
+                .param("limit", "2")
+                .param("before", "42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(7)))
+                .andExpect(jsonPath("$[1].text", is("java streams")))
+                .andDo(document("posts/search", preprocessResponse(prettyPrint()),
+                        requestParameters(parameterWithName("q")
+                                .description("Words that all have to appear in the posts, ignoring case"),
+                                parameterWithName("limit")
+                                        .description("The maximum number of posts to return (1-200, default 20)"),
+                                parameterWithName("before")
+                                        .description("Optional. Only posts with an id lower than this are returned")),
+                        responseFields(fieldWithPath("[].id").description("The identifier of the post"),
+                                fieldWithPath("[].text").description("The text of the published post"),
+                                fieldWithPath("[].userName").description("The author of the post"),
+                                fieldWithPath("[].dateTime").description("The date of publishing the post"))));
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenSearchLimitTooLarge() throws Exception {
+        // when-then
+        mockMvc.perform(get("/posts/search").param("q", "java")
+                .param("limit", "201"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Limit [201] must be between 1 and 200")));
+        verifyZeroInteractions(searchIndex);
+    }
+
+    private static PostDTO createPost(long id, String text, String userName) {
+        return new PostDTO(id, text, userName, LocalDateTime.now());
+    }
+}
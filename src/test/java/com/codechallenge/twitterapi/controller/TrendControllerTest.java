@@ -0,0 +1,80 @@
+package com.codechallenge.twitterapi.controller;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.restdocs.AutoConfigureRestDocs;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.codechallenge.twitterapi.dto.TrendDTO;
+import com.codechallenge.twitterapi.dto.TrendsDTO;
+import com.codechallenge.twitterapi.service.TrendTracker;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.preprocessResponse;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.prettyPrint;
+import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
+import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
+import static org.springframework.restdocs.payload.PayloadDocumentation.subsectionWithPath;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.requestParameters;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebMvcTest(TrendController.class)
+@AutoConfigureRestDocs(outputDir = "target/generated-snippets")
+public class TrendControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TrendTracker trendTracker;
+
+    @Test
+    public void shouldReturnTopTagsOfEachWindow() throws Exception {
+        // given
+        TrendDTO java = new TrendDTO("#java", 42);
+        TrendDTO alice = new TrendDTO("@alice", 17);
+        when(trendTracker.findTrends(2)).thenReturn(new TrendsDTO(Collections.singletonList(java), Arrays.asList(java,
+                alice), Arrays.asList(alice, java)));
+
+        // when-then
+        mockMvc.perform(get("/twitter/api/trends").contextPath("/twitter/api")
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.last5Minutes", hasSize(1)))
+                .andExpect(jsonPath("$.lastHour[1].tag", is("@alice")))
+                .andExpect(jsonPath("$.last24Hours[0].count", is(17)))
+                .andDo(document("trends", preprocessResponse(prettyPrint()),
+                        requestParameters(parameterWithName("limit")
+                                .description("The maximum number of tags per window (1-50, default 10)")),
+                        responseFields(subsectionWithPath("last5Minutes").description("Top tags of the last 5 minutes"),
+                                subsectionWithPath("lastHour").description("Top tags of the last hour"),
+                                subsectionWithPath("last24Hours").description("Top tags of the last 24 hours"),
+                                fieldWithPath("*[].tag").description("The hashtag or mention, in lower case"),
+                                fieldWithPath("*[].count")
+                                        .description("How many posts used the tag, approximately, never fewer"))));
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenTooManyTrendsRequested() throws Exception {
+        // when-then
+        mockMvc.perform(get("/trends").param("limit", "51"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Limit [51] must be between 1 and 50")));
+        verifyZeroInteractions(trendTracker);
+    }
+}
@@ -1,5 +1,6 @@
 package com.codechallenge.twitterapi.controller;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
@@ -7,6 +8,10 @@ import java.util.List;
 import java.util.Optional;
 import java.util.StringJoiner;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
@@ -14,28 +19,49 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.restdocs.AutoConfigureRestDocs;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.restdocs.constraints.ConstraintDescriptions;
 import org.springframework.restdocs.operation.preprocess.Preprocessors;
 import org.springframework.restdocs.payload.PayloadDocumentation;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.codechallenge.twitterapi.cluster.ShardClient;
+import com.codechallenge.twitterapi.cluster.ShardRing;
 import com.codechallenge.twitterapi.dto.CommentDTO;
 import com.codechallenge.twitterapi.dto.PostDTO;
 import com.codechallenge.twitterapi.dto.UserDTO;
+import com.codechallenge.twitterapi.model.Post;
 import com.codechallenge.twitterapi.model.User;
 import com.codechallenge.twitterapi.service.PostService;
+import com.codechallenge.twitterapi.service.TimelineSink;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions.OverflowPolicy;
 import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserVersions;
+import com.codechallenge.twitterapi.utils.BinaryMappers;
+import com.codechallenge.twitterapi.utils.EpochMillisModule;
+import com.codechallenge.twitterapi.utils.PostPojo2DtoConverter;
 import com.codechallenge.twitterapi.utils.UserPojoToDtoConverter;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
-import static org.mockito.Mockito.mock;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
+import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
+import static org.springframework.restdocs.headers.HeaderDocumentation.responseHeaders;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
 import static org.springframework.restdocs.operation.preprocess.Preprocessors.preprocessRequest;
 import static org.springframework.restdocs.operation.preprocess.Preprocessors.preprocessResponse;
@@ -43,10 +69,15 @@ import static org.springframework.restdocs.operation.preprocess.Preprocessors.pr
 import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
 import static org.springframework.restdocs.payload.PayloadDocumentation.requestFields;
 import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.requestParameters;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -57,12 +88,29 @@ public class UserControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @MockBean
     private UserRepository userRepository;
 
     @MockBean
     private PostService postService;
 
+    @MockBean
+    private UserVersions userVersions;
+
+    @MockBean
+    private ShardRing shardRing;
+
+    @MockBean
+    private ShardClient shardClient;
+
+    @Before
+    public void setUp() {
+        when(shardRing.isLocal(Mockito.anyString())).thenReturn(true);
+    }
+
     @Test
     public void shouldReturnEmptyListWhenNoGivenUser() throws Exception {
         // given
@@ -79,9 +127,13 @@ public class UserControllerTest {
     public void shouldReturnAllRegisteredUsers() throws Exception {
         // given
         List<User> allUsers = Arrays.asList(new User("FirstUser"), new User("SecondUser"), new User("ThirdUser"));
-        List<UserDTO> allUsersDto = UserPojoToDtoConverter.convert(allUsers);
+        List<UserDTO> allUsersDto = Arrays.asList(new UserDTO("FirstUser", 2, 0), new UserDTO("SecondUser", 0, 1),
+                new UserDTO("ThirdUser", 0, 1));
 
         when(userRepository.findAll()).thenReturn(allUsers);
+        when(userRepository.countFollowers("FirstUser")).thenReturn(2);
+        when(userRepository.countFollowedUsers("SecondUser")).thenReturn(1);
+        when(userRepository.countFollowedUsers("ThirdUser")).thenReturn(1);
 
         // when-then
         mockMvc.perform(get("/twitter/api/users").contextPath("/twitter/api")
@@ -90,7 +142,9 @@ public class UserControllerTest {
                 .andExpect(content().contentType(APPLICATION_JSON_UTF8))
                 .andExpect(content().bytes(convertObjectToJson(allUsersDto)))
                 .andDo(document("users/list", preprocessResponse(prettyPrint()),
-                        responseFields(fieldWithPath("[].name").description("The name of the user"))));
+                        responseFields(fieldWithPath("[].name").description("The name of the user"),
+                                fieldWithPath("[].followers").description("The number of users following the user"),
+                                fieldWithPath("[].following").description("The number of users the user follows"))));
     }
 
     @Test
@@ -109,10 +163,12 @@ public class UserControllerTest {
                 .content(convertObjectToJson(newUserDto)))
                 .andExpect(status().isCreated())
                 .andExpect(content().contentType(APPLICATION_JSON_UTF8))
-                .andExpect(content().bytes(convertObjectToJson(newUserDto)))
+                .andExpect(content().bytes(convertObjectToJson(new UserDTO(userName, 0, 0))))
                 .andDo(document("users/create", preprocessRequest(prettyPrint()), preprocessResponse(prettyPrint()),
                         requestFields(fieldWithPath(".name").description("The name of the user to be created")),
-                        responseFields(fieldWithPath(".name").description("The name of the user"))));
+                        responseFields(fieldWithPath(".name").description("The name of the user"),
+                                fieldWithPath(".followers").description("The number of users following the user"),
+                                fieldWithPath(".following").description("The number of users the user follows"))));
     }
 
     @Test
@@ -120,9 +176,11 @@ public class UserControllerTest {
         // given
         String userName = "User";
         User user = new User(userName);
-        UserDTO userDto = new UserDTO(userName);
+        UserDTO userDto = new UserDTO(userName, 3, 1);
 
         when(userRepository.findByName(userDto.getName())).thenReturn(Optional.of(user));
+        when(userRepository.countFollowers(userName)).thenReturn(3);
+        when(userRepository.countFollowedUsers(userName)).thenReturn(1);
 
         // when-then
         mockMvc.perform(get("/twitter/api/users/" + userName).contextPath("/twitter/api")
@@ -131,7 +189,9 @@ public class UserControllerTest {
                 .andExpect(content().contentType(APPLICATION_JSON_UTF8))
                 .andExpect(content().bytes(convertObjectToJson(userDto)))
                 .andDo(document("users/details", preprocessResponse(prettyPrint()),
-                        responseFields(fieldWithPath(".name").description("The name of the user"))));
+                        responseFields(fieldWithPath(".name").description("The name of the user"),
+                                fieldWithPath(".followers").description("The number of users following the user"),
+                                fieldWithPath(".following").description("The number of users the user follows"))));
     }
 
     @Test
@@ -148,36 +208,73 @@ public class UserControllerTest {
     }
 
     @Test
-    public void shouldReturnAllPostsPublishedByUser() throws Exception {
+    public void shouldReturnPageOfPostsPublishedByUser() throws Exception {
         // given
         User user = new User("User");
-        PostDTO post1 = createPost("post one", user);
-        PostDTO post2 = createPost("post two", user);
-        List<PostDTO> posts = Arrays.asList(post1, post2);
+        Post post1 = createSavedPost(2, "post one", user);
+        Post post2 = createSavedPost(1, "post two", user);
+        List<Post> posts = Arrays.asList(post1, post2);
 
         when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
-        when(postService.findByUserName(user.getName())).thenReturn(posts);
+        when(postService.findPostsByUserName(user.getName(), 2, 42L, null)).thenReturn(posts);
 
         // when-then
-        mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/posts").contextPath("/twitter/api")
+        mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/posts?limit=2&before=42")
+                .contextPath("/twitter/api")
                 .contentType(APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON_UTF8))
+                .andExpect(content().bytes(objectMapper.writeValueAsBytes(PostPojo2DtoConverter.convert(posts))))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].text", is("post one")))
                 .andExpect(jsonPath("$[1].text", is("post two")))
                 .andDo(document("posts/list", preprocessResponse(prettyPrint()),
-                        responseFields(fieldWithPath("[].text").description("The text of the published post"),
+                        requestParameters(
+                                parameterWithName("limit")
+                                        .description("The maximum number of posts to return (1-200, default 20)"),
+                                parameterWithName("before")
+                                        .description("Optional. Only posts with an id lower than this are returned"),
+                                parameterWithName("after").optional()
+                                        .description("Optional. Only posts with an id greater than this are returned")),
+                        responseFields(fieldWithPath("[].id").description("The identifier of the post"),
+                                fieldWithPath("[].text").description("The text of the published post"),
                                 fieldWithPath("[].userName").description("The author of the post"),
                                 fieldWithPath("[].dateTime").description("The date of publishing the post"))));
     }
 
+    @Test
+    public void shouldStreamPostsPublishedByUserAsNewlineDelimitedJson() throws Exception {
+        // given
+        User user = new User("User");
+        List<PostDTO> posts = Arrays.asList(createPost(2, "post two", user), createPost(1, "post one", user));
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postService.iterateByUserName(user.getName(), 42L, null)).thenReturn(posts.iterator());
+
+        // when-then
+        MvcResult result = mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/posts?before=42")
+                .contextPath("/twitter/api")
+                .accept(MediaTypes.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaTypes.APPLICATION_NDJSON))
+                .andExpect(content().string(toNdjson(posts)))
+                .andDo(document("posts/stream", requestParameters(
+                        parameterWithName("before")
+                                .description("Optional. Only posts with an id lower than this are returned"),
+                        parameterWithName("after").optional()
+                                .description("Optional. Only posts with an id greater than this are returned"))));
+    }
+
     @Test
     public void shouldReturnNotFoundWhenNoPostsPublishedByUser() throws Exception {
         // given
         User user = new User("User");
 
         when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
-        when(postService.findByUserName(user.getName())).thenReturn(Collections.emptyList());
+        when(postService.findPostsByUserName(user.getName(), 20, null, null)).thenReturn(Collections.emptyList());
 
         // when-then
         mockMvc.perform(get("/users/" + user.getName() + "/posts").contentType(APPLICATION_JSON_UTF8))
@@ -187,32 +284,103 @@ public class UserControllerTest {
     }
 
     @Test
-    public void shouldCreateNewPostAndReturnAllUserPosts() throws Exception {
+    public void shouldCreateNewPostAndReturnIt() throws Exception {
         // given
         User user = new User("User");
         CommentDTO commentDto = new CommentDTO("a new post to be added");
-        PostDTO existingPost = createPost("existing post", user);
-        PostDTO newPost = createPost(commentDto.getText(), user);
+        PostDTO newPost = createPost(42, commentDto.getText(), user);
 
-        when(postService.addNewPost(commentDto.getText(), user.getName())).thenReturn(mock(PostDTO.class));
-        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
-        when(postService.findByUserName(user.getName())).thenReturn(Arrays.asList(newPost, existingPost));
+        when(postService.addNewPost(commentDto.getText(), user.getName())).thenReturn(newPost);
 
         // when-then
         mockMvc.perform(post("/twitter/api/users/" + user.getName() + "/posts").contextPath("/twitter/api")
                 .contentType(APPLICATION_JSON_UTF8)
                 .content(convertObjectToJson(commentDto)))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].text", is(commentDto.getText())))
-                .andExpect(jsonPath("$[1].text", is(existingPost.getText())))
+                .andExpect(header().string("Location", "http://localhost:8080/twitter/api/users/User/posts/42"))
+                .andExpect(jsonPath("$.id", is(42)))
+                .andExpect(jsonPath("$.text", is(commentDto.getText())))
                 .andDo(document("posts/create", preprocessRequest(prettyPrint()), preprocessResponse(prettyPrint()),
                         requestFields(fieldWithPath(".text")
                                 .description("The text to publish. " + getConstraints(CommentDTO.class, "text"))),
-                        responseFields(fieldWithPath("[].text").description("The text of the published post. "),
-                                fieldWithPath("[].userName").description("The author of the post"),
-                                fieldWithPath("[].dateTime").description("The date of publishing the post"))));
+                        responseHeaders(headerWithName("Location").description("The URI of the published post")),
+                        responseFields(fieldWithPath("id").description("The identifier of the post"),
+                                fieldWithPath("text").description("The text of the published post. "),
+                                fieldWithPath("userName").description("The author of the post"),
+                                fieldWithPath("dateTime").description("The date of publishing the post"))));
+    }
+
+    @Test
+    public void shouldCreateNewPostAndReturnRecentUserPostsWhenRequested() throws Exception {
+        // given
+        User user = new User("User");
+        CommentDTO commentDto = new CommentDTO("a new post to be added");
+        Post existingPost = createSavedPost(1, "existing post", user);
+        Post newPost = createSavedPost(2, commentDto.getText(), user);
 
+        when(postService.addNewPost(commentDto.getText(), user.getName()))
+                .thenReturn(PostPojo2DtoConverter.convert(newPost));
+        when(postService.findPostsByUserName(user.getName(), 2, null, null))
+                .thenReturn(Arrays.asList(newPost, existingPost));
+
+        // when-then
+        mockMvc.perform(post("/twitter/api/users/" + user.getName() + "/posts?recent=2").contextPath("/twitter/api")
+                .contentType(APPLICATION_JSON_UTF8)
+                .content(convertObjectToJson(commentDto)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "http://localhost:8080/twitter/api/users/User/posts/2"))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].text", is(commentDto.getText())))
+                .andExpect(jsonPath("$[1].text", is(existingPost.getText())))
+                .andDo(document("posts/create-recent", preprocessRequest(prettyPrint()),
+                        preprocessResponse(prettyPrint()),
+                        requestParameters(parameterWithName("recent")
+                                .description("The number of the newest posts of the user to return (1-200)")),
+                        responseHeaders(headerWithName("Location").description("The URI of the published post"))));
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenTooManyRecentPostsRequested() throws Exception {
+        // given
+        User user = new User("User");
+        CommentDTO commentDto = new CommentDTO("a new post to be added");
+
+        // when-then
+        mockMvc.perform(post("/users/" + user.getName() + "/posts?recent=201").contentType(APPLICATION_JSON_UTF8)
+                .content(convertObjectToJson(commentDto)))
+                .andExpect(status().isBadRequest());
+        Mockito.verifyZeroInteractions(postService);
+    }
+
+    @Test
+    public void shouldReturnPostById() throws Exception {
+        // given
+        User user = new User("User");
+        PostDTO post = createPost(42, "post one", user);
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postService.findPost(user.getName(), 42)).thenReturn(Optional.of(post));
+
+        // when-then
+        mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/posts/42").contextPath("/twitter/api")
+                .contentType(APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(42)))
+                .andExpect(jsonPath("$.text", is("post one")))
+                .andDo(document("posts/get", preprocessResponse(prettyPrint())));
+    }
+
+    @Test
+    public void shouldReturnNotFoundWhenNoPostWithGivenId() throws Exception {
+        // given
+        User user = new User("User");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postService.findPost(user.getName(), 42)).thenReturn(Optional.empty());
+
+        // when-then
+        mockMvc.perform(get("/users/" + user.getName() + "/posts/42").contentType(APPLICATION_JSON_UTF8))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -221,12 +389,9 @@ public class UserControllerTest {
         User user = new User("User");
         CommentDTO tooLongPostMessage = new CommentDTO(
                 "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Aenean mollis tellus sed nisl convallis tincidunt. Praesent at lorem ex. Nam tristique.");
-        PostDTO existingPost = createPost("existing post", user);
         PostDTO newPost = createPost(tooLongPostMessage.getText(), user);
 
         when(postService.addNewPost(tooLongPostMessage.getText(), user.getName())).thenReturn(newPost);
-        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
-        when(postService.findByUserName(user.getName())).thenReturn(Arrays.asList(existingPost));
 
         // when-then
         mockMvc.perform(post("/users/" + user.getName() + "/posts").contentType(APPLICATION_JSON_UTF8)
@@ -249,10 +414,10 @@ public class UserControllerTest {
     @Test
     public void shouldReturnAllOtherUsersFollowedByGivenUser() throws Exception {
         // given
-        User user = mock(User.class);
+        User user = new User("User");
 
-        when(user.getName()).thenReturn("User");
-        when(user.getFollowedUsers()).thenReturn(Arrays.asList(new User("Other1"), new User("Other2")));
+        when(userRepository.findAllFollowedUsers(user.getName()))
+                .thenReturn(Arrays.asList(new User("Other1"), new User("Other2")));
         when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
 
         // when-then
@@ -268,12 +433,13 @@ public class UserControllerTest {
         // given
         UserDTO userToFollow = new UserDTO("UserToFollow");
         User user = new User("User");
-        user.follow(new User("FollowedUser1"));
-        user.follow(new User("FollowedUser2"));
+        User newlyFollowedUser = new User(userToFollow.getName());
 
         when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
-        when(userRepository.findByName(userToFollow.getName()))
-                .thenReturn(Optional.of(new User(userToFollow.getName())));
+        when(userRepository.findByName(userToFollow.getName())).thenReturn(Optional.of(newlyFollowedUser));
+        when(userRepository.follow(user, newlyFollowedUser)).thenReturn(true);
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(
+                Arrays.asList(new User("FollowedUser1"), new User("FollowedUser2"), newlyFollowedUser));
 
         // when-then
         mockMvc.perform(post("/twitter/api/users/" + user.getName() + "/followed-users").contextPath("/twitter/api")
@@ -283,10 +449,80 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$", hasSize(3)))
                 .andDo(document("users/follow", preprocessRequest(prettyPrint()), preprocessResponse(prettyPrint()),
                         requestFields(fieldWithPath(".name").description("The name of the user to follow")),
-                        responseFields(fieldWithPath("[].name").description("The name of the followed user"))));
+                        responseFields(fieldWithPath("[].name").description("The name of the followed user"),
+                                fieldWithPath("[].followers")
+                                        .description("The number of users following the followed user"),
+                                fieldWithPath("[].following")
+                                        .description("The number of users the followed user follows"))));
 
     }
 
+    @Test
+    public void shouldFollowUserOwnedByAnotherNode() throws Exception {
+        // given
+        User user = new User("User");
+        User remoteUser = new User("RemoteUser");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(shardRing.isLocal(remoteUser.getName())).thenReturn(false);
+        when(shardClient.findUser(remoteUser.getName())).thenReturn(Optional.of(remoteUser));
+        when(userRepository.follow(user, remoteUser)).thenReturn(true);
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Collections.singletonList(remoteUser));
+
+        // when-then
+        mockMvc.perform(post("/users/" + user.getName() + "/followed-users").contentType(APPLICATION_JSON_UTF8)
+                .content(convertObjectToJson(new UserDTO(remoteUser.getName()))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].name", is(remoteUser.getName())));
+        verify(shardClient).addFollower(remoteUser.getName(), user.getName());
+        verify(postService).invalidateTimeline(user.getName());
+    }
+
+    @Test
+    public void shouldReturnPageOfFollowers() throws Exception {
+        // given
+        User user = new User("User");
+        User lastSeenFollower = new User("Follower1");
+        List<User> followers = Arrays.asList(new User("Follower2"), new User("Follower3"));
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userRepository.findByName(lastSeenFollower.getName())).thenReturn(Optional.of(lastSeenFollower));
+        when(userRepository.findFollowers(user.getName(), lastSeenFollower.getName(), 2)).thenReturn(followers);
+        when(userRepository.countFollowedUsers("Follower2")).thenReturn(1);
+        when(userRepository.countFollowedUsers("Follower3")).thenReturn(4);
+
+        // when-then
+        mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/followers").contextPath("/twitter/api")
+                .param("limit", "2")
+                .param("after", lastSeenFollower.getName()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name", is("Follower2")))
+                .andExpect(jsonPath("$[1].following", is(4)))
+                .andDo(document("users/followers", preprocessResponse(prettyPrint()),
+                        requestParameters(
+                                parameterWithName("limit")
+                                        .description("The maximum number of followers to return (1-200, default 20)"),
+                                parameterWithName("after").description(
+                                        "Optional. The name of the last follower of the previous page")),
+                        responseFields(fieldWithPath("[].name").description("The name of the follower"),
+                                fieldWithPath("[].followers").description("The number of users following the follower"),
+                                fieldWithPath("[].following").description("The number of users the follower follows"))));
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenFollowersPageStartsAfterUnknownUser() throws Exception {
+        // given
+        User user = new User("User");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+
+        // when-then
+        mockMvc.perform(get("/users/" + user.getName() + "/followers").param("after", "Unknown"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("User [Unknown] not found")));
+    }
+
     @Test
     public void shouldReturnBadRequestWhenUserWantsToFollowHimself() throws Exception {
         // given
@@ -319,10 +555,11 @@ public class UserControllerTest {
     public void shouldReturnEmptyArrayWhenNoPostsPublishedByFollowedUsers() throws Exception {
         // given
         User user = new User("User");
-        user.follow(new User("OtherUser"));
 
         when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
-        when(postService.findPostsByUsers(Mockito.anyList())).thenReturn(Collections.emptyList());
+        when(userRepository.findAllFollowedUsers(user.getName()))
+                .thenReturn(Collections.singletonList(new User("OtherUser")));
+        when(postService.findTimelinePosts(user.getName(), 20, null, null)).thenReturn(Collections.emptyList());
 
         // when-then
         mockMvc.perform(get("/users/" + user.getName() + "/timelines").contentType(APPLICATION_JSON_UTF8))
@@ -336,37 +573,388 @@ public class UserControllerTest {
         User user = new User("User");
         User otherUserOne = new User("OtherUserOne");
         User otherUserTwo = new User("OtherUserTwo");
-        user.follow(otherUserOne);
-        user.follow(otherUserTwo);
 
-        List<PostDTO> postsPublishedByOthers = Arrays.asList(createPost("post one", otherUserOne),
-                createPost("post two", otherUserTwo));
+        List<Post> postsPublishedByOthers = Arrays.asList(createSavedPost(2, "post one", otherUserOne),
+                createSavedPost(1, "post two", otherUserTwo));
 
         when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
-        when(postService.findPostsByUsers(Mockito.anyList())).thenReturn(postsPublishedByOthers);
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Arrays.asList(otherUserOne, otherUserTwo));
+        when(postService.findTimelinePosts(user.getName(), 2, 42L, null)).thenReturn(postsPublishedByOthers);
 
         // when-then
         mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/timelines").contextPath("/twitter/api")
+                .param("limit", "2")
+                .param("before", "42")
                 .contentType(APPLICATION_JSON_UTF8))
                 .andExpect(content().contentType(APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].text", is("post one")))
                 .andExpect(jsonPath("$[1].text", is("post two")))
                 .andDo(document("timelines", preprocessResponse(prettyPrint()),
-                        responseFields(fieldWithPath("[].text").description("The text of the published post. "),
+                        requestParameters(
+                                parameterWithName("limit")
+                                        .description("The maximum number of posts to return (1-200, default 20)"),
+                                parameterWithName("before")
+                                        .description("Optional. Only posts with an id lower than this are returned"),
+                                parameterWithName("after").optional()
+                                        .description("Optional. Only posts with an id greater than this are returned")),
+                        responseFields(fieldWithPath("[].id").description("The identifier of the post"),
+                                fieldWithPath("[].text").description("The text of the published post. "),
                                 fieldWithPath("[].userName").description("The author of the post"),
                                 fieldWithPath("[].dateTime").description("The date and time of publishing the post"))));
     }
 
+    @Test
+    public void shouldStreamPostsPublishedByOtherUsersAsNewlineDelimitedJson() throws Exception {
+        // given
+        User user = new User("User");
+        User otherUser = new User("OtherUser");
+        List<PostDTO> posts = Arrays.asList(createPost(2, "post two", otherUser), createPost(1, "post one", otherUser));
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Collections.singletonList(otherUser));
+        when(postService.iterateTimeline(user.getName(), null, null)).thenReturn(posts.iterator());
+
+        // when-then
+        MvcResult result = mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/timelines")
+                .contextPath("/twitter/api")
+                .accept(MediaTypes.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaTypes.APPLICATION_NDJSON))
+                .andExpect(content().string(toNdjson(posts)))
+                .andDo(document("timelines-stream"));
+    }
+
+    @Test
+    public void shouldStreamAllRegisteredUsersAsNewlineDelimitedJson() throws Exception {
+        // given
+        List<User> users = Arrays.asList(new User("UserOne"), new User("UserTwo"));
+
+        when(userRepository.iterateAll()).thenReturn(users.iterator());
+
+        // when-then
+        MvcResult result = mockMvc.perform(get("/users").accept(MediaTypes.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(toNdjson(UserPojoToDtoConverter.convert(users, userRepository))));
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenStreamingPostsOfNonExistingUser() throws Exception {
+        // given
+        User user = new User("NonExistingUser");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.empty());
+
+        // when-then
+        mockMvc.perform(get("/users/" + user.getName() + "/posts").accept(MediaTypes.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("User [" + user.getName() + "] not found")));
+    }
+
+    @Test
+    public void shouldStreamNewPostsOfOtherUsersAsServerSentEvents() throws Exception {
+        // given
+        User user = new User("User");
+        User otherUser = new User("OtherUser");
+        PostDTO post = createPost(43, "post", otherUser);
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postService.subscribeToTimeline(Mockito.eq(user.getName()), Mockito.eq(42L), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    TimelineSink sink = invocation.getArgument(2);
+                    sink.send(post);
+                    sink.close();
+                    return new TimelineSubscriptions(1, OverflowPolicy.DISCONNECT, Runnable::run)
+                            .subscribe(user.getName(), sink);
+                });
+
+        // when-then
+        MvcResult result = mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/timelines/stream")
+                .contextPath("/twitter/api")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", "42"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("id:43\nevent:post\ndata:" + objectMapper.writeValueAsString(post)
+                        + "\n\n"))
+                .andDo(document("timelines-live", requestHeaders(headerWithName("Last-Event-ID").optional()
+                        .description("Optional. The id of the last received post; newer posts published while "
+                                + "disconnected are sent first"))));
+    }
+
+    @Test
+    public void shouldCancelLiveTimelineWhenStreamFails() throws Exception {
+        // given
+        User user = new User("User");
+        TimelineSubscriptions subscriptions = new TimelineSubscriptions(1, OverflowPolicy.DISCONNECT, Runnable::run);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        subscriptions.bindTo(registry);
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postService.subscribeToTimeline(Mockito.eq(user.getName()), Mockito.isNull(), Mockito.any()))
+                .thenAnswer(invocation -> subscriptions.subscribe(user.getName(), invocation.getArgument(2)));
+        MvcResult result = mockMvc.perform(get("/users/" + user.getName() + "/timelines/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // when
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest()
+                .getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+        }
+
+        // then
+        assertEquals(0, registry.find("twitter.timeline.subscribers")
+                .gauge()
+                .value(), 0);
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenTimelineLimitTooLarge() throws Exception {
+        // given
+        User user = new User("User");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userRepository.findAllFollowedUsers(user.getName()))
+                .thenReturn(Collections.singletonList(new User("OtherUser")));
+
+        // when-then
+        mockMvc.perform(get("/users/" + user.getName() + "/timelines").param("limit", "201")
+                .contentType(APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Limit [201] must be between 1 and 200")));
+    }
+
+    @Test
+    public void shouldReturnTimelineWithETagOfFollowedUsersVersions() throws Exception {
+        // given
+        User user = new User("User");
+        User otherUser = new User("OtherUser");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Collections.singletonList(otherUser));
+        when(userVersions.timelineVersion(user.getName())).thenReturn("jf3k2-1-7");
+        when(postService.findTimelinePosts(user.getName(), 20, null, null))
+                .thenReturn(Collections.singletonList(createSavedPost(1, "post one", otherUser)));
+
+        // when-then
+        mockMvc.perform(get("/users/" + user.getName() + "/timelines").contentType(APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"jf3k2-1-7\""))
+                .andExpect(jsonPath("$[0].text", is("post one")));
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWithoutReadingTimelineWhenETagMatches() throws Exception {
+        // given
+        User user = new User("User");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userRepository.findAllFollowedUsers(user.getName()))
+                .thenReturn(Collections.singletonList(new User("OtherUser")));
+        when(userVersions.timelineVersion(user.getName())).thenReturn("jf3k2-1-7");
+
+        // when-then
+        mockMvc.perform(get("/twitter/api/users/" + user.getName() + "/timelines").contextPath("/twitter/api")
+                .header("If-None-Match", "W/\"jf3k2-1-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"jf3k2-1-7\""))
+                .andExpect(content().string(""))
+                .andDo(document("timelines/not-modified",
+                        requestHeaders(headerWithName("If-None-Match")
+                                .description("The ETag of a previously returned page of the timeline")),
+                        responseHeaders(headerWithName("ETag")
+                                .description("The version of the timeline, unchanged since the given ETag"))));
+        Mockito.verifyZeroInteractions(postService);
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWithoutReadingPostsWhenETagMatches() throws Exception {
+        // given
+        User user = new User("User");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userVersions.postsVersion(user.getName())).thenReturn("jf3k2-4");
+
+        // when-then
+        mockMvc.perform(get("/users/" + user.getName() + "/posts").header("If-None-Match", "W/\"jf3k2-4\""))
+                .andExpect(status().isNotModified());
+        Mockito.verifyZeroInteractions(postService);
+    }
+
+    @Test
+    public void shouldReturnFollowedUsersWhenETagIsStale() throws Exception {
+        // given
+        User user = new User("User");
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userRepository.findAllFollowedUsers(user.getName()))
+                .thenReturn(Collections.singletonList(new User("OtherUser")));
+        when(userVersions.followedUsersVersion(user.getName())).thenReturn("jf3k2-2-0");
+
+        // when-then
+        mockMvc.perform(get("/users/" + user.getName() + "/followed-users").header("If-None-Match",
+                "W/\"jf3k2-1-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"jf3k2-2-0\""))
+                .andExpect(jsonPath("$[0].name", is("OtherUser")));
+    }
+
+    @Test
+    public void shouldReturnPostsPublishedByUserAsSmileWithEpochMillisDates() throws Exception {
+        // given
+        User user = new User("User");
+        Post post = createSavedPost(1, "post one", user);
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postService.findPostsByUserName(user.getName(), 20, null, null)).thenReturn(Collections.singletonList(post));
+
+        // when
+        byte[] body = mockMvc.perform(get("/users/" + user.getName() + "/posts").accept(MediaTypes.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaTypes.APPLICATION_SMILE))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        // then
+        JsonNode posts = BinaryMappers.smile()
+                .readTree(body);
+        assertEquals(1, posts.size());
+        assertEquals(post.getText(), posts.get(0)
+                .get("text")
+                .asText());
+        assertEquals(EpochMillisModule.toEpochMillis(post.getDateTime()), posts.get(0)
+                .get("dateTime")
+                .asLong());
+    }
+
+    @Test
+    public void shouldReturnTimelineAsCbor() throws Exception {
+        // given
+        User user = new User("User");
+        User otherUser = new User("OtherUser");
+        List<Post> posts = Arrays.asList(createSavedPost(2, "post two", otherUser),
+                createSavedPost(1, "post one", otherUser));
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Collections.singletonList(otherUser));
+        when(postService.findTimelinePosts(user.getName(), 20, null, null)).thenReturn(posts);
+
+        // when
+        byte[] body = mockMvc.perform(get("/users/" + user.getName() + "/timelines").accept(MediaTypes.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaTypes.APPLICATION_CBOR))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        // then
+        PostDTO[] timeline = BinaryMappers.cbor()
+                .readValue(body, PostDTO[].class);
+        assertEquals(2, timeline.length);
+        assertEquals(2, timeline[0].getId());
+        assertEquals(otherUser.getName(), timeline[1].getUserName());
+        assertEquals(posts.get(1)
+                .getDateTime()
+                .withNano(0), timeline[1].getDateTime()
+                        .withNano(0));
+    }
+
+    @Test
+    public void shouldReturnTimelineAsProtobufMessage() throws Exception {
+        // given
+        User user = new User("User");
+        User otherUser = new User("OtherUser");
+        Post post = createSavedPost(7, "post seven", otherUser);
+
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Collections.singletonList(otherUser));
+        when(postService.findTimelinePosts(user.getName(), 20, null, null)).thenReturn(Collections.singletonList(post));
+
+        // when
+        byte[] body = mockMvc
+                .perform(get("/users/" + user.getName() + "/timelines").accept(MediaTypes.APPLICATION_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaTypes.APPLICATION_PROTOBUF))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        // then
+        JsonNode message = readProtobuf(body, "Posts");
+        assertEquals(7, message.get("posts")
+                .get(0)
+                .get("id")
+                .asLong());
+        assertEquals(otherUser.getName(), message.get("posts")
+                .get(0)
+                .get("userName")
+                .asText());
+    }
+
+    @Test
+    public void shouldReportErrorAsProtobufMessage() throws Exception {
+        // when
+        byte[] body = mockMvc.perform(get("/users/Unknown").accept(MediaTypes.APPLICATION_PROTOBUF))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaTypes.APPLICATION_PROTOBUF))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        // then
+        JsonNode error = readProtobuf(body, "ApiError");
+        assertEquals(400, error.get("code")
+                .asInt());
+        assertEquals("User [Unknown] not found", error.get("message")
+                .asText());
+    }
+
     private static PostDTO createPost(String text, User author) {
         return new PostDTO(text, author.getName(), LocalDateTime.now());
     }
 
+    private static PostDTO createPost(long id, String text, User author) {
+        return new PostDTO(id, text, author.getName(), LocalDateTime.now());
+    }
+
+    private static Post createSavedPost(long id, String text, User author) {
+        return new Post(id, text, author, LocalDateTime.now());
+    }
+
+    private static JsonNode readProtobuf(byte[] body, String messageType) throws Exception {
+        return BinaryMappers.protobuf()
+                .readerFor(JsonNode.class)
+                .with(BinaryMappers.protobufSchema()
+                        .withRootType(messageType))
+                .readValue(body);
+    }
+
     private static byte[] convertObjectToJson(Object source) throws Exception {
         ObjectMapper mapper = new ObjectMapper();
         return mapper.writeValueAsBytes(source);
     }
 
+    private String toNdjson(List<?> records) throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (Object record : records) {
+            ndjson.append(objectMapper.writeValueAsString(record))
+                    .append('\n');
+        }
+        return ndjson.toString();
+    }
+
     private static <T> String getConstraints(Class<T> clazz, String property) {
         ConstraintDescriptions userConstraints = new ConstraintDescriptions(clazz);
         List<String> descriptions = userConstraints.descriptionsForProperty(property);
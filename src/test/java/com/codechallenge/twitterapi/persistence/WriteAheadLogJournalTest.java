@@ -0,0 +1,133 @@
+package com.codechallenge.twitterapi.persistence;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.FollowGraph;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.PostRepositoryImpl;
+import com.codechallenge.twitterapi.service.UserNameDictionary;
+import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserRepositoryImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WriteAheadLogJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldRestoreUsersFollowsAndPostsAfterRestart() throws Exception {
+        // given
+        Node node = new Node();
+        User user = node.userRepository.save(new User("User"));
+        User otherUser = node.userRepository.save(new User("Other"));
+        node.userRepository.follow(user, otherUser);
+        Post post = node.postRepository.save(new Post("hello", otherUser, LocalDateTime.now()));
+        node.journal.close();
+
+        // when
+        Node restartedNode = new Node();
+        Post newPost = restartedNode.postRepository.save(new Post("again", otherUser, LocalDateTime.now()));
+
+        // then
+        assertTrue(restartedNode.userRepository.userExists("user"));
+        assertEquals("other", restartedNode.userRepository.findAllFollowedUsers("user")
+                .get(0)
+                .getName()
+                .toLowerCase());
+        List<Post> posts = restartedNode.postRepository.findByUserName("other");
+        assertEquals(2, posts.size());
+        assertEquals(post.getId(), posts.get(0)
+                .getId());
+        assertEquals(post.getDateTime(), posts.get(0)
+                .getDateTime());
+        assertTrue(newPost.getId() > post.getId());
+    }
+
+    @Test
+    public void shouldRestoreFromSnapshotAndLaterLogSegments() throws Exception {
+        // given
+        Node node = new Node();
+        User user = node.userRepository.save(new User("User"));
+        User otherUser = node.userRepository.save(new User("Other"));
+        node.userRepository.follow(user, otherUser);
+        node.postRepository.save(new Post("first", otherUser, LocalDateTime.now()));
+        Path snapshot = node.journal.takeSnapshot();
+        node.postRepository.save(new Post("second", otherUser, LocalDateTime.now()));
+        node.journal.close();
+
+        // when
+        Node restartedNode = new Node();
+
+        // then
+        assertTrue(Files.exists(snapshot));
+        assertFalse(Files.exists(folder.getRoot()
+                .toPath()
+                .resolve(String.format("wal-%020d.log", 1))));
+        assertEquals(1, restartedNode.userRepository.findAllFollowedUsers("user")
+                .size());
+        List<Post> posts = restartedNode.postRepository.findByUserName("other");
+        assertEquals(2, posts.size());
+        assertEquals("first", posts.get(0)
+                .getText());
+        assertEquals("second", posts.get(1)
+                .getText());
+    }
+
+    @Test
+    public void shouldRestoreFollowsOfUsersOfOtherNodesFromSnapshot() throws Exception {
+        // given
+        Node node = new Node();
+        User user = node.userRepository.save(new User("User"));
+        // users owned by other nodes of a partitioned deployment are only known by name
+        node.userRepository.follow(user, new User("remotefollowed"));
+        node.userRepository.follow(new User("remotefollower"), user);
+        node.journal.takeSnapshot();
+        node.journal.close();
+
+        // when
+        Node restartedNode = new Node();
+
+        // then
+        assertFalse(restartedNode.userRepository.userExists("remotefollowed"));
+        assertEquals("remotefollowed", restartedNode.userRepository.findAllFollowedUsers("user")
+                .get(0)
+                .getName());
+        assertEquals("remotefollower", restartedNode.userRepository.findAllFollowers("user")
+                .get(0)
+                .getName());
+        assertEquals(1, restartedNode.userRepository.findAllFollowedUsers("remotefollower")
+                .size());
+    }
+
+    private class Node {
+        private final UserRepository userRepository;
+
+        private final PostRepository postRepository;
+
+        private final WriteAheadLogJournal journal;
+
+        Node() throws Exception {
+            UserNameDictionary userNames = new UserNameDictionary();
+            MutationPublisher mutations = new MutationPublisher();
+            userRepository = new UserRepositoryImpl(new FollowGraph(userNames), userNames, mutations);
+            postRepository = new PostRepositoryImpl(userNames, mutations);
+            journal = new WriteAheadLogJournal(mutations, userRepository, postRepository, folder.getRoot()
+                    .getPath(), 4096, 1, 0, 0);
+            journal.afterSingletonsInstantiated();
+        }
+    }
+}
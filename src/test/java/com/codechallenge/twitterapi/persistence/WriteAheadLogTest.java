@@ -0,0 +1,209 @@
+package com.codechallenge.twitterapi.persistence;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.MutationListener;
+
+import static org.junit.Assert.assertEquals;
+
+public class WriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReplayMutationsWrittenBeforeReopening() throws Exception {
+        // given
+        Path directory = folder.getRoot()
+                .toPath();
+        User user = new User("User");
+        User otherUser = new User("Other");
+        LocalDateTime dateTime = LocalDateTime.of(2018, 3, 24, 12, 0, 0, 123_456_789);
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 4096, 1, 0)) {
+            writeAheadLog.onUserSaved(user);
+            writeAheadLog.onFollow(user, otherUser);
+            writeAheadLog.onPostSaved(new Post(7, "zażółć", user, dateTime));
+        }
+
+        // when
+        RecordingListener listener = new RecordingListener();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 4096, 1, 0)) {
+            writeAheadLog.replay(listener);
+        }
+
+        // then
+        List<String> expected = new ArrayList<>();
+        expected.add("user User");
+        expected.add("follow User Other");
+        expected.add("post 7 User zażółć " + dateTime);
+        assertEquals(expected, listener.events);
+    }
+
+    @Test
+    public void shouldRollSegmentsWhenFull() throws Exception {
+        // given
+        Path directory = folder.getRoot()
+                .toPath();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 64, 0, 0)) {
+            for (int i = 0; i < 10; i++) {
+                writeAheadLog.onUserSaved(new User("user" + i));
+            }
+        }
+
+        // when
+        RecordingListener listener = new RecordingListener();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 64, 0, 0)) {
+            writeAheadLog.replay(listener);
+        }
+
+        // then
+        assertEquals(10, listener.events.size());
+        assertEquals("user user9", listener.events.get(9));
+    }
+
+    @Test
+    public void shouldKeepRecordLargerThanSegment() throws Exception {
+        // given
+        Path directory = folder.getRoot()
+                .toPath();
+        User user = new User("User");
+        LocalDateTime dateTime = LocalDateTime.of(2018, 3, 24, 12, 0);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            text.append("long text ");
+        }
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 64, 0, 0)) {
+            writeAheadLog.onUserSaved(user);
+            writeAheadLog.onPostSaved(new Post(1, text.toString(), user, dateTime));
+            writeAheadLog.onUserSaved(new User("Other"));
+        }
+
+        // when
+        RecordingListener listener = new RecordingListener();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 64, 0, 0)) {
+            writeAheadLog.replay(listener);
+        }
+
+        // then
+        assertEquals(3, listener.events.size());
+        assertEquals("post 1 User " + text + " " + dateTime, listener.events.get(1));
+        assertEquals("user Other", listener.events.get(2));
+    }
+
+    @Test
+    public void shouldStopReplayingSegmentAtCorruptedRecord() throws Exception {
+        // given
+        Path directory = folder.getRoot()
+                .toPath();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 4096, 0, 0)) {
+            writeAheadLog.onUserSaved(new User("first"));
+            writeAheadLog.onUserSaved(new User("second"));
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(firstSegment(directory).toFile(), "rw")) {
+            segment.seek(8 + 9 + 8 + 5);
+            segment.write('X');
+        }
+
+        // when
+        RecordingListener listener = new RecordingListener();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 4096, 0, 0)) {
+            writeAheadLog.replay(listener);
+        }
+
+        // then
+        assertEquals(1, listener.events.size());
+        assertEquals("user first", listener.events.get(0));
+    }
+
+    @Test
+    public void shouldReplayLogAgainAfterDroppingTornEnd() throws Exception {
+        // given
+        Path directory = folder.getRoot()
+                .toPath();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 4096, 0, 0)) {
+            writeAheadLog.onUserSaved(new User("first"));
+            writeAheadLog.onUserSaved(new User("second"));
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(firstSegment(directory).toFile(), "rw")) {
+            segment.seek(8 + 9 + 8 + 5);
+            segment.write('X');
+        }
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 4096, 0, 0)) {
+            writeAheadLog.replay(new RecordingListener());
+            writeAheadLog.onUserSaved(new User("third"));
+        }
+
+        // when
+        RecordingListener listener = new RecordingListener();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 4096, 0, 0)) {
+            writeAheadLog.replay(listener);
+        }
+
+        // then
+        assertEquals(2, listener.events.size());
+        assertEquals("user third", listener.events.get(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailReplayAtCorruptedRecordBeforeLastSegment() throws Exception {
+        // given
+        Path directory = folder.getRoot()
+                .toPath();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 64, 0, 0)) {
+            for (int i = 0; i < 10; i++) {
+                writeAheadLog.onUserSaved(new User("user" + i));
+            }
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(firstSegment(directory).toFile(), "rw")) {
+            segment.seek(8 + 10 + 8 + 5);
+            segment.write('X');
+        }
+
+        // when
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 64, 0, 0)) {
+            writeAheadLog.replay(new RecordingListener());
+        }
+    }
+
+    private static Path firstSegment(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted()
+                    .collect(Collectors.toList())
+                    .get(0);
+        }
+    }
+
+    private static class RecordingListener implements MutationListener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onUserSaved(User user) {
+            events.add("user " + user.getName());
+        }
+
+        @Override
+        public void onPostSaved(Post post) {
+            events.add("post " + post.getId() + " " + post.getUser()
+                    .getName() + " " + post.getText() + " " + post.getDateTime());
+        }
+
+        @Override
+        public void onFollow(User user, User followedUser) {
+            events.add("follow " + user.getName() + " " + followedUser.getName());
+        }
+    }
+}
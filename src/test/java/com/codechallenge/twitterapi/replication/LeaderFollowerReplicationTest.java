@@ -0,0 +1,141 @@
+package com.codechallenge.twitterapi.replication;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.util.Collections;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.codechallenge.twitterapi.TwitterApiApplication;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A leader and a replica in one JVM; the replica starts once the leader holds some data, so it loads a snapshot
+ * first.
+ */
+public class LeaderFollowerReplicationTest {
+    private static ConfigurableApplicationContext leader;
+
+    private static ConfigurableApplicationContext replica;
+
+    private static String leaderUrl;
+
+    private static String replicaUrl;
+
+    private static final RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory() {
+        @Override
+        protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+            super.prepareConnection(connection, httpMethod);
+            // a read redirected to the leader would tell nothing about the replica
+            connection.setInstanceFollowRedirects(false);
+        }
+    });
+
+    private static String followToken;
+
+    @BeforeClass
+    public static void startNodes() throws IOException {
+        int leaderPort = freePort();
+        leaderUrl = "http://localhost:" + leaderPort + "/twitter/api";
+        leader = new SpringApplicationBuilder(TwitterApiApplication.class).run("--server.port=" + leaderPort,
+                "--spring.jmx.enabled=false", "--twitter.replication.role=leader");
+        write("/users", "name", "Follower");
+        write("/users", "name", "Author");
+        followToken = write("/users/Follower/followed-users", "name", "Author");
+
+        int replicaPort = freePort();
+        replicaUrl = "http://localhost:" + replicaPort + "/twitter/api";
+        replica = new SpringApplicationBuilder(TwitterApiApplication.class).run("--server.port=" + replicaPort,
+                "--spring.jmx.enabled=false", "--twitter.replication.role=replica",
+                "--twitter.replication.leader-url=" + leaderUrl, "--twitter.replication.read-wait-ms=5000");
+    }
+
+    @AfterClass
+    public static void stopNodes() {
+        for (ConfigurableApplicationContext context : new ConfigurableApplicationContext[] { replica, leader }) {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    @Test
+    public void shouldReadOwnWritesOnReplica() {
+        // given
+        assertThat(read("/users/Follower/timelines", followToken).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        // when
+        String token = write("/users/Author/posts", "text", "replicated post");
+
+        // then
+        assertThat(read("/users/Follower/timelines", token).getBody()).contains("replicated post");
+        assertThat(read("/users/Author/followers", token).getBody()).contains("Follower");
+        assertThat(replica.getBean(Replicator.class)
+                .getAppliedSequence()).isGreaterThanOrEqualTo(Long.parseLong(token.substring(token.indexOf(':') + 1)));
+        assertThat(replica.getBean(MeterRegistry.class)
+                .find("twitter.replication.lag")
+                .gauge()).isNotNull();
+    }
+
+    @Test
+    public void shouldRedirectReadWithTokenOfAnotherLogToLeader() {
+        // given
+        String otherLogToken = "other-log" + followToken.substring(followToken.indexOf(':'));
+
+        // when
+        ResponseEntity<String> response = read("/users/Follower/timelines", otherLogToken);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TEMPORARY_REDIRECT);
+        assertThat(response.getHeaders()
+                .getLocation()).hasToString(leaderUrl + "/users/Follower/timelines");
+    }
+
+    @Test
+    public void shouldRedirectWritesToLeader() {
+        // when
+        ResponseEntity<String> response = restTemplate.postForEntity(replicaUrl + "/users", Collections.singletonMap(
+                "name", "NewUser"), String.class);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TEMPORARY_REDIRECT);
+        assertThat(response.getHeaders()
+                .getLocation()).hasToString(leaderUrl + "/users");
+    }
+
+    private static String write(String path, String field, String value) {
+        ResponseEntity<String> response = restTemplate.postForEntity(leaderUrl + path, Collections.singletonMap(
+                field, value), String.class);
+        assertThat(response.getStatusCode()
+                .is2xxSuccessful()).isTrue();
+        return response.getHeaders()
+                .getFirst(ConsistencyTokenAdvice.CONSISTENCY_TOKEN_HEADER);
+    }
+
+    private ResponseEntity<String> read(String path, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ConsistencyTokenAdvice.CONSISTENCY_TOKEN_HEADER, token);
+        return restTemplate.exchange(replicaUrl + path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.codechallenge.twitterapi.replication;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import com.codechallenge.twitterapi.TwitterApiApplication;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A replica following a leader that restarts without a write-ahead log, so its new log numbers mutations and posts
+ * from the start again.
+ */
+public class LeaderRestartReplicationTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    private ConfigurableApplicationContext leader;
+
+    private ConfigurableApplicationContext replica;
+
+    @After
+    public void stopNodes() {
+        for (ConfigurableApplicationContext context : new ConfigurableApplicationContext[] { replica, leader }) {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    @Test
+    public void shouldStartOverFromSnapshotOfRestartedLeader() throws Exception {
+        // given
+        int leaderPort = freePort();
+        String leaderUrl = "http://localhost:" + leaderPort + "/twitter/api";
+        leader = startLeader(leaderPort);
+        write(leaderUrl + "/users", "name", "OldUser");
+        for (int i = 0; i < 3; i++) {
+            write(leaderUrl + "/users/Author/posts", "text", "old post " + i);
+        }
+        replica = new SpringApplicationBuilder(TwitterApiApplication.class).run("--server.port=" + freePort(),
+                "--spring.jmx.enabled=false", "--twitter.replication.role=replica",
+                "--twitter.replication.leader-url=" + leaderUrl, "--twitter.replication.poll-wait-ms=100",
+                "--twitter.replication.retry-interval-ms=100");
+        UserRepository userRepository = replica.getBean(UserRepository.class);
+        PostRepository postRepository = replica.getBean(PostRepository.class);
+        awaitLastPost(postRepository, "old post 2");
+
+        // when
+        leader.close();
+        leader = startLeader(leaderPort);
+        write(leaderUrl + "/users/Author/posts", "text", "new post");
+
+        // then
+        List<Post> posts = awaitLastPost(postRepository, "new post");
+        assertThat(posts).extracting(Post::getText)
+                .containsExactly("new post");
+        assertThat(userRepository.userExists("OldUser")).isFalse();
+    }
+
+    private static ConfigurableApplicationContext startLeader(int port) {
+        return new SpringApplicationBuilder(TwitterApiApplication.class).run("--server.port=" + port,
+                "--spring.jmx.enabled=false", "--twitter.replication.role=leader");
+    }
+
+    private void write(String url, String field, String value) {
+        restTemplate.postForEntity(url, Collections.singletonMap(field, value), String.class);
+    }
+
+    private static List<Post> awaitLastPost(PostRepository postRepository, String text) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        List<Post> posts = postRepository.findByUserName("Author");
+        while ((posts.isEmpty() || !posts.get(posts.size() - 1)
+                .getText()
+                .equals(text)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            posts = postRepository.findByUserName("Author");
+        }
+        return posts;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
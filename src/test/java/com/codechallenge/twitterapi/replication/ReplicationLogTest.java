@@ -0,0 +1,96 @@
+package com.codechallenge.twitterapi.replication;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.codechallenge.twitterapi.dto.MutationDTO;
+import com.codechallenge.twitterapi.exception.ReplicationLogTruncatedException;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.MutationPublisher;
+import com.codechallenge.twitterapi.service.PostRepository;
+import com.codechallenge.twitterapi.service.UserRepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ReplicationLogTest {
+
+    private final MutationPublisher mutations = new MutationPublisher();
+
+    @Test
+    public void shouldNumberMutationsInPublishingOrder() throws Exception {
+        // given
+        ReplicationLog replicationLog = replicationLog(10);
+        User user = new User("User");
+
+        // when
+        mutations.onUserSaved(user);
+        mutations.onPostSaved(new Post(7, "post", user, LocalDateTime.now()));
+        mutations.onFollow(user, new User("OtherUser"));
+        List<MutationDTO> batch = replicationLog.read(0, 10, 0);
+
+        // then
+        assertEquals(3, replicationLog.getLastSequence());
+        assertEquals(3, batch.size());
+        assertEquals(MutationDTO.Type.USER_SAVED, batch.get(0)
+                .getType());
+        assertEquals(Long.valueOf(7), batch.get(1)
+                .getPostId());
+        assertEquals("OtherUser", batch.get(2)
+                .getFollowedUserName());
+        assertEquals(3, batch.get(2)
+                .getSequence());
+    }
+
+    @Test
+    public void shouldReturnAtMostLimitMutationsAfterSequence() throws Exception {
+        // given
+        ReplicationLog replicationLog = replicationLog(10);
+        for (int i = 0; i < 5; i++) {
+            mutations.onUserSaved(new User("User" + i));
+        }
+
+        // when
+        List<MutationDTO> batch = replicationLog.read(1, 2, 0);
+
+        // then
+        assertEquals(2, batch.size());
+        assertEquals("User1", batch.get(0)
+                .getUserName());
+        assertEquals(3, batch.get(1)
+                .getSequence());
+    }
+
+    @Test
+    public void shouldReturnNothingWhenNoMutationComesWhileWaiting() throws Exception {
+        // given
+        ReplicationLog replicationLog = replicationLog(10);
+        mutations.onUserSaved(new User("User"));
+
+        // when
+        List<MutationDTO> batch = replicationLog.read(1, 10, 10);
+
+        // then
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test(expected = ReplicationLogTruncatedException.class)
+    public void shouldRejectReadOfDroppedMutations() throws Exception {
+        // given
+        ReplicationLog replicationLog = replicationLog(2);
+        for (int i = 0; i < 3; i++) {
+            mutations.onUserSaved(new User("User" + i));
+        }
+
+        // when
+        replicationLog.read(0, 10, 0);
+    }
+
+    private ReplicationLog replicationLog(int capacity) {
+        return new ReplicationLog(mutations, mock(UserRepository.class), mock(PostRepository.class), capacity);
+    }
+}
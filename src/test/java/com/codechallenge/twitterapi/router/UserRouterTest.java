@@ -0,0 +1,186 @@
+package com.codechallenge.twitterapi.router;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import javax.validation.Validation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.codechallenge.twitterapi.controller.MediaTypes;
+import com.codechallenge.twitterapi.dto.CommentDTO;
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.dto.UserDTO;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.PostService;
+import com.codechallenge.twitterapi.service.UserRepository;
+import com.codechallenge.twitterapi.service.UserVersions;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
+
+public class UserRouterTest {
+    private static final String USERS = "/twitter/api/users";
+
+    private UserRepository userRepository;
+
+    private PostService postService;
+
+    private UserVersions userVersions;
+
+    private WebTestClient webTestClient;
+
+    @Before
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        postService = mock(PostService.class);
+        userVersions = mock(UserVersions.class);
+        UserHandler userHandler = new UserHandler(userRepository, postService, userVersions, Validation
+                .buildDefaultValidatorFactory()
+                .getValidator(), Jackson2ObjectMapperBuilder.json()
+                        .build());
+        webTestClient = WebTestClient.bindToRouterFunction(new UserRouter().userRoutes(userHandler, "/twitter/api"))
+                .build();
+    }
+
+    @Test
+    public void shouldReturnAllRegisteredUsers() {
+        // given
+        List<User> users = Arrays.asList(new User("UserOne"), new User("UserTwo"));
+        when(userRepository.iterateAll()).thenReturn(users.iterator());
+
+        // when-then
+        webTestClient.get()
+                .uri(USERS)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(UserDTO.class)
+                .hasSize(2);
+    }
+
+    @Test
+    public void shouldReturnPageOfPostsPublishedByUser() {
+        // given
+        User user = new User("User");
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postService.findByUserName(user.getName(), 2, 42L, null)).thenReturn(Arrays.asList(createPost(2, user),
+                createPost(1, user)));
+
+        // when-then
+        webTestClient.get()
+                .uri(USERS + "/User/posts?limit=2&before=42")
+                .accept(APPLICATION_JSON_UTF8)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.length()")
+                .isEqualTo(2)
+                .jsonPath("$[0].id")
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWhenPostsVersionMatchesETag() {
+        // given
+        User user = new User("User");
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(userVersions.postsVersion(user.getName())).thenReturn("jf3k2-4");
+
+        // when-then
+        webTestClient.get()
+                .uri(USERS + "/User/posts")
+                .header("If-None-Match", "W/\"jf3k2-4\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals("ETag", "W/\"jf3k2-4\"");
+        verifyZeroInteractions(postService);
+    }
+
+    @Test
+    public void shouldStreamPostsPublishedByUserAsNewlineDelimitedJson() {
+        // given
+        User user = new User("User");
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postService.iterateByUserName(user.getName(), null, null)).thenReturn(Arrays.asList(createPost(2, user),
+                createPost(1, user))
+                .iterator());
+
+        // when-then
+        webTestClient.get()
+                .uri(USERS + "/User/posts")
+                .accept(MediaTypes.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaTypes.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .consumeWith(result -> assertEquals(2, result.getResponseBody()
+                        .split("\n").length));
+    }
+
+    @Test
+    public void shouldCreateNewPostAndReturnItsLocation() {
+        // given
+        User user = new User("User");
+        when(postService.addNewPost("new post", user.getName())).thenReturn(createPost(42, user));
+
+        // when-then
+        webTestClient.post()
+                .uri(USERS + "/User/posts")
+                .contentType(APPLICATION_JSON_UTF8)
+                .syncBody(new CommentDTO("new post"))
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectHeader()
+                .valueEquals("Location", USERS + "/User/posts/42")
+                .expectBody()
+                .jsonPath("$.id")
+                .isEqualTo(42);
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenPostMessageIsEmpty() {
+        // when-then
+        webTestClient.post()
+                .uri(USERS + "/User/posts")
+                .contentType(APPLICATION_JSON_UTF8)
+                .syncBody(new CommentDTO(""))
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenUserDoesNotExist() {
+        // given
+        when(userRepository.findByName("NonExistingUser")).thenReturn(Optional.empty());
+
+        // when-then
+        webTestClient.get()
+                .uri(USERS + "/NonExistingUser/timelines")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.message")
+                .isEqualTo("User [NonExistingUser] not found");
+    }
+
+    private static PostDTO createPost(long id, User author) {
+        return new PostDTO(id, "post " + id, author.getName(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,154 @@
+package com.codechallenge.twitterapi.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarPostRepositoryTest {
+
+    private final PostRepository postRepository = new ColumnarPostRepository(new UserNameDictionary(),
+            new MutationPublisher(), false);
+
+    @Test
+    public void shouldReadBackSavedPostsOfUserInPublishingOrder() {
+        // given
+        User user = new User("User");
+        User otherUser = new User("Other");
+        LocalDateTime dateTime = LocalDateTime.of(2018, 3, 24, 12, 30, 15, 123_000_000);
+        postRepository.save(new Post("first", user, dateTime));
+        postRepository.save(new Post("other", otherUser, dateTime));
+        postRepository.save(new Post("zażółć gęślą jaźń", user, dateTime.plusMinutes(1)));
+
+        // when
+        List<Post> result = postRepository.findByUserName("USER");
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals("first", result.get(0)
+                .getText());
+        assertEquals(dateTime, result.get(0)
+                .getDateTime());
+        assertEquals("zażółć gęślą jaźń", result.get(1)
+                .getText());
+        assertSame(user, result.get(1)
+                .getUser());
+        assertTrue(result.get(0)
+                .getId() < result.get(1)
+                        .getId());
+    }
+
+    @Test
+    public void shouldGrowColumnsAndArena() {
+        // given
+        PostRepository offHeapRepository = new ColumnarPostRepository(new UserNameDictionary(),
+                new MutationPublisher(), true);
+        User user = new User("User");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 140; i++) {
+            text.append('x');
+        }
+
+        // when
+        for (int i = 0; i < 5_000; i++) {
+            offHeapRepository.save(new Post(i + text.toString(), user, LocalDateTime.now()));
+        }
+        List<Post> result = offHeapRepository.findByUserName(user.getName());
+
+        // then
+        assertEquals(5_000, result.size());
+        assertEquals(4_999 + text.toString(), result.get(4_999)
+                .getText());
+    }
+
+    @Test
+    public void shouldKeepTextLargerThanArenaOfChunk() {
+        // given
+        User user = new User("User");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            text.append('x');
+        }
+        postRepository.save(new Post("before", user, LocalDateTime.now()));
+
+        // when
+        postRepository.save(new Post(text.toString(), user, LocalDateTime.now()));
+        postRepository.save(new Post("after", user, LocalDateTime.now()));
+        List<Post> result = postRepository.findByUserName(user.getName());
+
+        // then
+        assertEquals(3, result.size());
+        assertEquals(text.toString(), result.get(1)
+                .getText());
+        assertEquals("after", result.get(2)
+                .getText());
+    }
+
+    @Test
+    public void shouldKeepPostsOfUsersSavedConcurrently() throws Exception {
+        // given
+        User[] users = { new User("first"), new User("second"), new User("third"), new User("fourth") };
+        int threads = 8;
+        int postsPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+
+        // when
+        for (int thread = 0; thread < threads; thread++) {
+            User user = users[thread % users.length];
+            String prefix = "thread" + thread + "-";
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < postsPerThread; i++) {
+                    postRepository.save(new Post(prefix + i, user, LocalDateTime.now()));
+                    List<Post> posts = postRepository.findByUserName(user.getName());
+                    posts.get(posts.size() - 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(threads * postsPerThread, postRepository.count());
+        for (User user : users) {
+            List<Post> posts = postRepository.findByUserName(user.getName());
+            assertEquals(threads / users.length * postsPerThread, posts.size());
+            for (int i = 1; i < posts.size(); i++) {
+                assertTrue(posts.get(i - 1)
+                        .getId() < posts.get(i)
+                                .getId());
+                assertTrue(posts.get(i)
+                        .getText()
+                        .startsWith("thread"));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReturnEmptyListForUnknownUser() {
+        // when
+        List<Post> result = postRepository.findByUserName("unknown");
+
+        // then
+        assertTrue(result.isEmpty());
+    }
+}
@@ -0,0 +1,58 @@
+package com.codechallenge.twitterapi.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FollowGraphTest {
+
+    private final FollowGraph followGraph = new FollowGraph(new UserNameDictionary());
+
+    @Test
+    public void shouldInternUserNamesIgnoringCase() {
+        // when
+        int id = followGraph.intern("User");
+
+        // then
+        assertEquals(id, followGraph.intern("USER"));
+        assertEquals(id, followGraph.findId("user"));
+        assertEquals("user", followGraph.nameOf(id));
+        assertEquals(-1, followGraph.findId("unknown"));
+    }
+
+    @Test
+    public void shouldKeepFollowedIdsSorted() {
+        // given
+        int first = followGraph.intern("first");
+        int second = followGraph.intern("second");
+        int third = followGraph.intern("third");
+
+        // when
+        followGraph.follow("first", "third");
+        followGraph.follow("first", "second");
+
+        // then
+        assertArrayEquals(new int[] { second, third }, followGraph.followedIds(first));
+        assertArrayEquals(new int[] { first }, followGraph.followerIds(second));
+        assertArrayEquals(new int[] { first }, followGraph.followerIds(third));
+        assertTrue(followGraph.isFollowing("first", "second"));
+        assertFalse(followGraph.isFollowing("second", "first"));
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacity() {
+        // when
+        for (int i = 0; i < 100; i++) {
+            followGraph.follow("user" + i, "user" + (i + 1));
+        }
+
+        // then
+        assertEquals(101, followGraph.size());
+        assertTrue(followGraph.isFollowing("user99", "user100"));
+        assertArrayEquals(new int[] { followGraph.findId("user99") }, followGraph.followerIds(followGraph.findId(
+                "user100")));
+    }
+}
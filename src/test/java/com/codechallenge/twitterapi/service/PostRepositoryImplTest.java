@@ -0,0 +1,155 @@
+package com.codechallenge.twitterapi.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codechallenge.twitterapi.cluster.PostIdGenerator;
+import com.codechallenge.twitterapi.cluster.ShardRing;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PostRepositoryImplTest {
+
+    private final PostRepository postRepository = new PostRepositoryImpl(new UserNameDictionary(), new MutationPublisher());
+
+    @Test
+    public void shouldReturnPostsOfUserInPublishingOrder() {
+        // given
+        User user = new User("User");
+        postRepository.save(new Post("first", user, LocalDateTime.now()));
+        postRepository.save(new Post("second", user, LocalDateTime.now()));
+
+        // when
+        List<Post> result = postRepository.findByUserName("user");
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals("first", result.get(0)
+                .getText());
+        assertTrue(result.get(0)
+                .getId() < result.get(1)
+                        .getId());
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotWhenPostsAreAddedLater() {
+        // given
+        User user = new User("User");
+        postRepository.save(new Post("first", user, LocalDateTime.now()));
+        List<Post> snapshot = postRepository.findByUserName(user.getName());
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            postRepository.save(new Post("post " + i, user, LocalDateTime.now()));
+        }
+
+        // then
+        assertEquals(1, snapshot.size());
+        assertEquals(21, postRepository.findByUserName(user.getName())
+                .size());
+    }
+
+    @Test
+    public void shouldSaveAllPostsOfSeveralUsersInGivenOrder() {
+        // given
+        User user = new User("User");
+        User other = new User("Other");
+        postRepository.save(new Post("first", user, LocalDateTime.now()));
+
+        // when
+        List<Post> result = postRepository.saveAll(Arrays.asList(new Post("second", user, LocalDateTime.now()),
+                new Post("third", user, LocalDateTime.now()), new Post("fourth", other, LocalDateTime.now())));
+
+        // then
+        assertEquals(3, result.size());
+        assertTrue(result.get(0)
+                .getId() < result.get(1)
+                        .getId());
+        assertEquals(3, postRepository.findByUserName(user.getName())
+                .size());
+        assertEquals("fourth", postRepository.findByUserName(other.getName())
+                .get(0)
+                .getText());
+        assertEquals(4, postRepository.count());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowModifyingReturnedPosts() {
+        // given
+        User user = new User("User");
+        postRepository.save(new Post("first", user, LocalDateTime.now()));
+
+        // when
+        postRepository.findByUserName(user.getName())
+                .remove(0);
+    }
+
+    @Test
+    public void shouldKeepAllPostsSavedConcurrently() throws Exception {
+        // given
+        User[] users = { new User("first"), new User("second") };
+
+        // when-then
+        assertAllPostsKeptInIdOrder(postRepository, users);
+    }
+
+    @Test
+    public void shouldKeepAllPostsOfOneUserSavedConcurrentlyOnPartitionedNode() throws Exception {
+        // given
+        ShardRing shardRing = new ShardRing(true, new String[] { "http://localhost:8080/twitter/api",
+                "http://localhost:8081/twitter/api" }, 1, 16);
+        PostRepository partitionedRepository = new PostRepositoryImpl(new UserNameDictionary(),
+                new MutationPublisher(), new PostIdGenerator(shardRing));
+
+        // when-then
+        assertAllPostsKeptInIdOrder(partitionedRepository, new User("author"));
+    }
+
+    private static void assertAllPostsKeptInIdOrder(PostRepository repository, User... users) throws Exception {
+        int threads = 8;
+        int postsPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+
+        for (int thread = 0; thread < threads; thread++) {
+            User user = users[thread % users.length];
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < postsPerThread; i++) {
+                    repository.save(new Post("post", user, LocalDateTime.now()));
+                    List<Post> posts = repository.findByUserName(user.getName());
+                    posts.get(posts.size() - 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        for (User user : users) {
+            List<Post> posts = repository.findByUserName(user.getName());
+            assertEquals(threads / users.length * postsPerThread, posts.size());
+            for (int i = 1; i < posts.size(); i++) {
+                assertTrue(posts.get(i - 1)
+                        .getId() < posts.get(i)
+                                .getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.codechallenge.twitterapi.service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PostSearchIndexTest {
+
+    private final UserNameDictionary userNames = new UserNameDictionary();
+
+    private final MutationPublisher mutations = new MutationPublisher();
+
+    private final PostRepository postRepository = new PostRepositoryImpl(userNames, mutations);
+
+    private final PostSearchIndex searchIndex = new PostSearchIndex(postRepository, userNames, mutations);
+
+    @Test
+    public void shouldFindNewestPostsContainingAllWordsIgnoringCaseAndPunctuation() {
+        // given
+        long first = save("Alice", "Learning #Java streams").getId();
+        save("Bob", "java is verbose");
+        long third = save("Bob", "Streams in JAVA, finally!").getId();
+
+        // when
+        List<Post> posts = searchIndex.search("java STREAMS", 20, null);
+
+        // then
+        assertEquals(Arrays.asList(third, first), ids(posts));
+        assertEquals("Streams in JAVA, finally!", posts.get(0)
+                .getText());
+    }
+
+    @Test
+    public void shouldPageThroughMatchesWithBeforeCursor() {
+        // given
+        for (int i = 0; i < 1000; i++) {
+            save("user" + i % 7, i % 3 == 0 ? "fizz post " + i : "plain post " + i);
+        }
+
+        // when
+        List<Post> firstPage = searchIndex.search("fizz", 10, null);
+        List<Post> secondPage = searchIndex.search("fizz", 10, firstPage.get(9)
+                .getId());
+
+        // then
+        assertEquals(10, firstPage.size());
+        assertEquals("fizz post 999", firstPage.get(0)
+                .getText());
+        assertEquals("fizz post 972", firstPage.get(9)
+                .getText());
+        assertEquals("fizz post 969", secondPage.get(0)
+                .getText());
+        List<Post> fullPage = searchIndex.search("fizz", 200, null);
+        assertEquals(134, searchIndex.search("fizz", 200, fullPage.get(199)
+                .getId())
+                .size());
+    }
+
+    @Test
+    public void shouldIntersectWordsAcrossCompressedBlocks() {
+        // given
+        for (int i = 0; i < 2000; i++) {
+            save("user", "common " + (i % 500 == 0 ? "rare" : "word"));
+        }
+
+        // when
+        List<Post> posts = searchIndex.search("rare common", 20, null);
+
+        // then
+        assertEquals(Arrays.asList(1501L, 1001L, 501L, 1L), ids(posts));
+        assertTrue(searchIndex.postingsSizeInBytes() < 2000 * (Long.BYTES + Integer.BYTES));
+    }
+
+    @Test
+    public void shouldKeepPostingsOrderedWhenPostsArriveOutOfOrder() {
+        // given
+        PostingList postings = new PostingList();
+        for (long id = 2; id <= 400; id += 2) {
+            postings.add(id, 1);
+        }
+
+        // when
+        postings.add(3, 2);
+        postings.add(399, 3);
+        postings.add(400, 1);
+
+        // then
+        assertEquals(202, postings.size());
+        PostingList.Cursor cursor = postings.newestFirst();
+        assertEquals(399, cursor.advanceTo(399));
+        assertEquals(3, cursor.authorId());
+        assertEquals(4, cursor.advanceTo(5));
+        assertEquals(3, cursor.advanceTo(3));
+        assertEquals(2, cursor.authorId());
+        assertEquals(2, cursor.advanceTo(2));
+        assertEquals(-1, cursor.advanceTo(1));
+    }
+
+    @Test
+    public void shouldMatchNothingForUnknownWordsOrEmptyQuery() {
+        // given
+        save("User", "hello world");
+
+        // then
+        assertTrue(searchIndex.search("hello unknown", 20, null)
+                .isEmpty());
+        assertTrue(searchIndex.search(" #! ", 20, null)
+                .isEmpty());
+    }
+
+    private Post save(String userName, String text) {
+        return postRepository.save(new Post(text, new User(userName), LocalDateTime.now()));
+    }
+
+    private static List<Long> ids(List<Post> posts) {
+        return posts.stream()
+                .map(Post::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -2,11 +2,13 @@ package com.codechallenge.twitterapi.service;
 
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -14,12 +16,17 @@ import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import com.codechallenge.twitterapi.dto.NewPostDTO;
 import com.codechallenge.twitterapi.dto.PostDTO;
 import com.codechallenge.twitterapi.dto.UserDTO;
 import com.codechallenge.twitterapi.model.Post;
 import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions.OverflowPolicy;
 import com.codechallenge.twitterapi.utils.UserPojoToDtoConverter;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -36,11 +43,21 @@ public class PostServiceImplTest {
 
     private UserRepository userRepository;
 
+    private TimelineRepository timelineRepository;
+
+    private TimelineSubscriptions timelineSubscriptions;
+
+    private MeterRegistry meterRegistry;
+
     @Before
     public void setUp() {
         postRepository = mock(PostRepository.class);
         userRepository = mock(UserRepository.class);
-        postService = new PostServiceImpl(postRepository, userRepository);
+        timelineRepository = new TimelineRepositoryImpl(4, 1 << 20);
+        meterRegistry = new SimpleMeterRegistry();
+        timelineSubscriptions = new TimelineSubscriptions(4, OverflowPolicy.DISCONNECT, Runnable::run);
+        postService = new PostServiceImpl(postRepository, userRepository, timelineRepository, timelineSubscriptions,
+                meterRegistry);
     }
 
     @Test
@@ -94,13 +111,46 @@ public class PostServiceImplTest {
         when(postRepository.findByUserName(user.getName())).thenReturn(userPosts);
 
         // when
-        List<PostDTO> result = postService.findByUserName(user.getName());
+        List<PostDTO> result = postService.findByUserName(user.getName(), 10, null, null);
 
         // then
         assertEquals(3, result.size());
         assertReverseChronologicalOrder(result);
     }
 
+    @Test
+    public void shouldReturnPagesOfUserPostsNewestFirst() {
+        // given
+        User user = new User("user");
+        when(postRepository.findByUserName(user.getName())).thenReturn(createPostList(user));
+
+        // when
+        List<PostDTO> firstPage = postService.findByUserName(user.getName(), 2, null, null);
+        List<PostDTO> secondPage = postService.findByUserName(user.getName(), 2, 3L, null);
+        List<PostDTO> newerPosts = postService.findByUserName(user.getName(), 2, null, 1L);
+
+        // then
+        assertEquals(Arrays.asList(5L, 3L), ids(firstPage));
+        assertEquals(Arrays.asList(1L), ids(secondPage));
+        assertEquals(Arrays.asList(5L, 3L), ids(newerPosts));
+    }
+
+    @Test
+    public void shouldFindPostOfUserById() {
+        // given
+        User user = new User("user");
+        when(postRepository.findByUserName(user.getName())).thenReturn(createPostList(user));
+
+        // when
+        Optional<PostDTO> existingPost = postService.findPost(user.getName(), 3);
+        Optional<PostDTO> missingPost = postService.findPost(user.getName(), 4);
+
+        // then
+        assertEquals("Post no2", existingPost.get()
+                .getText());
+        assertFalse(missingPost.isPresent());
+    }
+
     @Test
     public void shouldReturnMultipleUserPostsInReverseChronologicalOrder() {
         // given
@@ -109,7 +159,7 @@ public class PostServiceImplTest {
         UserDTO firstUserDto = UserPojoToDtoConverter.convert(firstUser);
         UserDTO secondUserDto = UserPojoToDtoConverter.convert(secondUser);
         List<Post> firstUserPosts = createPostList(firstUser);
-        List<Post> secondUserPosts = createPostList(secondUser);
+        List<Post> secondUserPosts = createPostList(secondUser, 2);
         when(postRepository.findByUserName(firstUser.getName())).thenReturn(firstUserPosts);
         when(postRepository.findByUserName(secondUser.getName())).thenReturn(secondUserPosts);
 
@@ -121,6 +171,188 @@ public class PostServiceImplTest {
         assertReverseChronologicalOrder(result);
     }
 
+    @Test
+    public void shouldBuildBoundedTimelineFromFollowedUsersOnFirstRead() {
+        // given
+        User user = new User("user");
+        User firstUser = new User("user1");
+        User secondUser = new User("user2");
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Arrays.asList(firstUser, secondUser));
+        when(postRepository.findByUserName(firstUser.getName())).thenReturn(createPostList(firstUser));
+        when(postRepository.findByUserName(secondUser.getName())).thenReturn(createPostList(secondUser, 2));
+
+        // when
+        List<PostDTO> result = postService.findTimeline(user.getName(), 4, null, null);
+
+        // then
+        assertEquals(4, result.size());
+        assertEquals(Arrays.asList(6L, 5L, 4L, 3L), ids(result));
+    }
+
+    @Test
+    public void shouldReturnTimelinePageBetweenCursors() {
+        // given
+        User user = new User("user");
+        User firstUser = new User("user1");
+        User secondUser = new User("user2");
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Arrays.asList(firstUser, secondUser));
+        when(postRepository.findByUserName(firstUser.getName())).thenReturn(createPostList(firstUser));
+        when(postRepository.findByUserName(secondUser.getName())).thenReturn(createPostList(secondUser, 2));
+
+        // when
+        List<PostDTO> result = postService.findTimeline(user.getName(), 2, 6L, 2L);
+
+        // then
+        assertEquals(Arrays.asList(5L, 4L), ids(result));
+    }
+
+    @Test
+    public void shouldMergeFollowedUsersPostsWhenPageIsOlderThanTimeline() {
+        // given
+        User user = new User("user");
+        User firstUser = new User("user1");
+        User secondUser = new User("user2");
+        when(userRepository.findAllFollowedUsers(user.getName())).thenReturn(Arrays.asList(firstUser, secondUser));
+        when(postRepository.findByUserName(firstUser.getName())).thenReturn(createPostList(firstUser));
+        when(postRepository.findByUserName(secondUser.getName())).thenReturn(createPostList(secondUser, 2));
+
+        // when
+        List<PostDTO> result = postService.findTimeline(user.getName(), 3, 4L, null);
+
+        // then
+        assertEquals(Arrays.asList(3L, 2L, 1L), ids(result));
+    }
+
+    @Test
+    public void shouldPushNewPostIntoTimelinesOfFollowersWithoutRebuildingThem() {
+        // given
+        User author = new User("author");
+        User follower = new User("follower");
+        when(userRepository.findAllFollowedUsers(follower.getName())).thenReturn(Collections.singletonList(author));
+        when(userRepository.findAllFollowers(author.getName())).thenReturn(Collections.singletonList(follower));
+        when(userRepository.findByName(author.getName())).thenReturn(Optional.of(author));
+        when(postRepository.findByUserName(author.getName())).thenReturn(Collections.emptyList());
+        when(postRepository.save(Mockito.any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        postService.findTimeline(follower.getName(), 10, null, null);
+
+        // when
+        postService.addNewPost("new post", author.getName());
+        List<PostDTO> result = postService.findTimeline(follower.getName(), 10, null, null);
+
+        // then
+        verify(postRepository, Mockito.times(1)).findByUserName(author.getName());
+        assertEquals(1, result.size());
+        assertEquals("new post", result.get(0)
+                .getText());
+    }
+
+    @Test
+    public void shouldAddPostsOfManyUsersGroupedPerAuthorAndKeepTheirOrder() {
+        // given
+        User author = new User("author");
+        User other = new User("other");
+        User follower = new User("follower");
+        when(userRepository.findByName(author.getName())).thenReturn(Optional.of(author));
+        when(userRepository.findByName(other.getName())).thenReturn(Optional.of(other));
+        when(userRepository.findAllFollowers(author.getName())).thenReturn(Collections.singletonList(follower));
+        when(userRepository.findAllFollowedUsers(follower.getName())).thenReturn(Collections.singletonList(author));
+        when(postRepository.findByUserName(author.getName())).thenReturn(Collections.emptyList());
+        long[] ids = { 0 };
+        when(postRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Post> posts = invocation.getArgument(0);
+            return posts.stream()
+                    .map(post -> new Post(++ids[0], post.getText(), post.getUser(), post.getDateTime()))
+                    .collect(Collectors.toList());
+        });
+        postService.findTimeline(follower.getName(), 10, null, null);
+        List<NewPostDTO> newPosts = Arrays.asList(new NewPostDTO("author", "first"), new NewPostDTO("other", "second"),
+                new NewPostDTO("Author", "third"));
+
+        // when
+        List<PostDTO> result = postService.addNewPosts(newPosts);
+
+        // then
+        verify(postRepository, Mockito.times(2)).saveAll(Mockito.anyList());
+        verify(userRepository, Mockito.times(1)).findAllFollowers(author.getName());
+        assertEquals(Arrays.asList("first", "second", "third"), result.stream()
+                .map(PostDTO::getText)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(1L, 3L, 2L), ids(result));
+        assertEquals(Arrays.asList(2L, 1L), ids(postService.findTimeline(follower.getName(), 10, null, null)));
+        assertEquals(3.0, meterRegistry.get("twitter.posts.ingested")
+                .counter()
+                .count(), 0.0);
+    }
+
+    @Test
+    public void shouldSendMissedAndNewPostsOfFollowedUsersToTimelineSubscriber() {
+        // given
+        User author = new User("author");
+        User follower = new User("follower");
+        when(userRepository.findAllFollowedUsers(follower.getName())).thenReturn(Collections.singletonList(author));
+        when(userRepository.findAllFollowers(author.getName())).thenReturn(Collections.singletonList(follower));
+        when(userRepository.findByName(author.getName())).thenReturn(Optional.of(author));
+        when(postRepository.findByUserName(author.getName())).thenReturn(createPostList(author));
+        when(postRepository.save(Mockito.any(Post.class))).thenAnswer(invocation -> {
+            Post post = invocation.getArgument(0);
+            return new Post(10, post.getText(), post.getUser(), post.getDateTime());
+        });
+        List<PostDTO> received = new ArrayList<>();
+
+        // when
+        postService.subscribeToTimeline(follower.getName(), 1L, new TimelineSink() {
+            @Override
+            public void send(PostDTO post) {
+                received.add(post);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        postService.addNewPost("new post", author.getName());
+
+        // then
+        assertEquals(Arrays.asList(3L, 5L, 10L), ids(received));
+    }
+
+    @Test
+    public void shouldRecordIngestedPostsAndMergeSizes() {
+        // given
+        User author = new User("author");
+        List<Post> posts = createPostList(author);
+        when(userRepository.findByName(author.getName())).thenReturn(Optional.of(author));
+        when(postRepository.save(Mockito.any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(postRepository.findByUserName(author.getName())).thenReturn(posts);
+
+        // when
+        postService.addNewPost("new post", author.getName());
+        postService.findPostsByUsers(Collections.singletonList(UserPojoToDtoConverter.convert(author)));
+
+        // then
+        assertEquals(1.0, meterRegistry.get("twitter.posts.ingested")
+                .counter()
+                .count(), 0.0);
+        assertEquals(1.0, meterRegistry.get("twitter.merge.users")
+                .tag("operation", "posts-by-users")
+                .summary()
+                .totalAmount(), 0.0);
+        assertEquals(3.0, meterRegistry.get("twitter.merge.posts")
+                .tag("operation", "posts-by-users")
+                .summary()
+                .totalAmount(), 0.0);
+        assertEquals(1, meterRegistry.get("twitter.merge")
+                .tag("operation", "posts-by-users")
+                .timer()
+                .count());
+    }
+
+    private static List<Long> ids(List<PostDTO> posts) {
+        return posts.stream()
+                .map(PostDTO::getId)
+                .collect(Collectors.toList());
+    }
+
     private void assertReverseChronologicalOrder(List<PostDTO> result) {
         for (int i = 0; i < result.size() - 1; i++) {
             PostDTO post1 = result.get(i);
@@ -132,9 +364,13 @@ public class PostServiceImplTest {
     }
 
     private List<Post> createPostList(User author) {
-        Post post1 = new Post("Post no1", author, LocalDateTime.of(2018, Month.MARCH, 24, 0, 0));
-        Post post2 = new Post("Post no2", author, LocalDateTime.of(2018, Month.MARCH, 8, 0, 0));
-        Post post3 = new Post("Post no3", author, LocalDateTime.of(2018, Month.MARCH, 15, 0, 0));
+        return createPostList(author, 1);
+    }
+
+    private List<Post> createPostList(User author, long firstId) {
+        Post post1 = new Post(firstId, "Post no1", author, LocalDateTime.of(2018, Month.MARCH, 8, 0, 0));
+        Post post2 = new Post(firstId + 2, "Post no2", author, LocalDateTime.of(2018, Month.MARCH, 15, 0, 0));
+        Post post3 = new Post(firstId + 4, "Post no3", author, LocalDateTime.of(2018, Month.MARCH, 24, 0, 0));
 
         return Arrays.asList(post1, post2, post3);
     }
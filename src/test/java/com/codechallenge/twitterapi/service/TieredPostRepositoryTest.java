@@ -0,0 +1,175 @@
+package com.codechallenge.twitterapi.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TieredPostRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final User user = new User("User");
+
+    private TieredPostRepository postRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        postRepository = newRepository(10);
+    }
+
+    @Test
+    public void shouldMoveWholeBlocksBeyondHotPostsPerUser() throws IOException {
+        // given
+        LocalDateTime dateTime = LocalDateTime.now()
+                .withNano(123_000_000);
+        for (int i = 0; i < 200; i++) {
+            postRepository.save(new Post("zażółć " + i, user, dateTime.plusSeconds(i)));
+        }
+        postRepository.save(new Post("other", new User("Other"), dateTime));
+
+        // when
+        int moved = postRepository.moveColdPosts();
+        List<Post> result = postRepository.findByUserName("USER");
+
+        // then
+        assertEquals(2 * TieredPostRepository.BLOCK_POSTS, moved);
+        assertArrayEquals(new long[] { 73, 128 }, postRepository.countByTier());
+        assertEquals(201, postRepository.count());
+        assertEquals(200, result.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i + 1, result.get(i)
+                    .getId());
+            assertEquals("zażółć " + i, result.get(i)
+                    .getText());
+            assertEquals(dateTime.plusSeconds(i), result.get(i)
+                    .getDateTime());
+        }
+        assertSame(user, result.get(0)
+                .getUser());
+    }
+
+    @Test
+    public void shouldMovePostsOlderThanHotAge() throws IOException {
+        // given
+        postRepository = newRepository(1000);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 3; i++) {
+            postRepository.save(new Post("old " + i, user, now.minusDays(2)));
+        }
+        postRepository.save(new Post("new", user, now));
+
+        // when
+        int moved = postRepository.moveColdPosts();
+
+        // then
+        assertEquals(3, moved);
+        assertArrayEquals(new long[] { 1, 3 }, postRepository.countByTier());
+        assertEquals("old 2", postRepository.findByUserName("User")
+                .get(2)
+                .getText());
+    }
+
+    @Test
+    public void shouldPageThroughColdAndHotPosts() throws IOException {
+        // given
+        for (int i = 0; i < 300; i++) {
+            postRepository.save(new Post("post " + i, user, LocalDateTime.now()));
+        }
+        postRepository.moveColdPosts();
+        List<Post> posts = postRepository.findByUserName("User");
+
+        // when-then
+        assertEquals(0, PostMergeIterator.indexOfFirstNotBefore(posts, 1));
+        assertEquals(99, PostMergeIterator.indexOfFirstNotBefore(posts, 100));
+        assertEquals(128, PostMergeIterator.indexOfFirstNotBefore(posts, 129));
+        assertEquals(256, PostMergeIterator.indexOfFirstNotBefore(posts, 257));
+        assertEquals(299, PostMergeIterator.indexOfFirstNotBefore(posts, 300));
+        assertEquals(300, PostMergeIterator.indexOfFirstNotBefore(posts, 301));
+    }
+
+    @Test
+    public void shouldKeepRecentlyReadBlocksInflated() throws IOException {
+        // given
+        for (int i = 0; i < 400; i++) {
+            postRepository.save(new Post("post " + i, user, LocalDateTime.now()));
+        }
+        postRepository.moveColdPosts();
+        List<Post> posts = postRepository.findByUserName("User");
+        Post firstOfFirstBlock = posts.get(0);
+
+        // when
+        for (int block = 1; block < TieredPostRepository.READ_BLOCKS; block++) {
+            posts.get(block * TieredPostRepository.BLOCK_POSTS);
+        }
+        Post firstOfFirstBlockAgain = posts.get(0);
+        for (int block = 1; block <= TieredPostRepository.READ_BLOCKS; block++) {
+            posts.get(block * TieredPostRepository.BLOCK_POSTS);
+        }
+
+        // then
+        assertSame(firstOfFirstBlock, firstOfFirstBlockAgain);
+        assertNotSame(firstOfFirstBlock, posts.get(0));
+    }
+
+    @Test
+    public void shouldAppendAfterMovingAndIgnoreRestoredOlderPosts() throws IOException {
+        // given
+        for (int i = 0; i < 100; i++) {
+            postRepository.save(new Post("post " + i, user, LocalDateTime.now()));
+        }
+        postRepository.moveColdPosts();
+
+        // when
+        postRepository.restore(new Post(50, "restored", user, LocalDateTime.now()));
+        Post saved = postRepository.save(new Post("newest", user, LocalDateTime.now()));
+
+        // then
+        List<Post> result = postRepository.findByUserName("User");
+        assertEquals(101, saved.getId());
+        assertEquals(101, result.size());
+        assertEquals("post 50", result.get(50)
+                .getText());
+        assertEquals("newest", result.get(100)
+                .getText());
+    }
+
+    @Test
+    public void shouldDeleteSegmentsLeftFromPreviousRun() throws IOException {
+        // given
+        for (int i = 0; i < 100; i++) {
+            postRepository.save(new Post("post " + i, user, LocalDateTime.now()));
+        }
+        postRepository.moveColdPosts();
+        File[] segments = folder.getRoot()
+                .listFiles();
+        assertEquals(1, segments.length);
+
+        // when
+        newRepository(10);
+
+        // then
+        assertFalse(Files.exists(segments[0].toPath()));
+    }
+
+    private TieredPostRepository newRepository(int hotPostsPerUser) throws IOException {
+        return new TieredPostRepository(new UserNameDictionary(), new MutationPublisher(), folder.getRoot()
+                .getPath(), hotPostsPerUser, 86_400_000, 1 << 20, 0);
+    }
+}
@@ -0,0 +1,237 @@
+package com.codechallenge.twitterapi.service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TimelineRepositoryImplTest {
+
+    private final TimelineRepository timelineRepository = new TimelineRepositoryImpl(2, 1 << 20);
+
+    private final User author = new User("author");
+
+    private long lastId;
+
+    @Test
+    public void shouldBuildTimelineNotMaterializedOnlyOnce() {
+        // given
+        Post post = createPost("post");
+        timelineRepository.findByUserName("user", () -> Arrays.asList(post));
+
+        // when
+        List<Post> result = read(timelineRepository, "user");
+
+        // then
+        assertEquals(Arrays.asList(post), result);
+    }
+
+    @Test
+    public void shouldIgnorePushesToUsersWithoutTimeline() {
+        // given
+        timelineRepository.push("user", createPost("post"));
+
+        // when-then
+        assertFalse(isMaterialized(timelineRepository, "user"));
+    }
+
+    @Test
+    public void shouldKeepOnlyNewestPostsUpToCapacity() {
+        // given
+        Post oldPost = createPost("old");
+        Post newPost = createPost("new");
+        Post newestPost = createPost("newest");
+        timelineRepository.findByUserName("user", () -> Arrays.asList(newPost, oldPost));
+
+        // when
+        timelineRepository.push("USER", newestPost);
+        List<Post> result = read(timelineRepository, "user");
+
+        // then
+        assertEquals(2, result.size());
+        assertSame(newestPost, result.get(0));
+        assertSame(newPost, result.get(1));
+    }
+
+    @Test
+    public void shouldKeepPostsPushedWhileTimelineWasBuilt() {
+        // given
+        Post builtPost = createPost("built");
+        Post pushedPost = createPost("pushed");
+
+        // when
+        timelineRepository.findByUserName("user", () -> {
+            timelineRepository.push("user", pushedPost);
+            return Arrays.asList(pushedPost, builtPost);
+        });
+        List<Post> result = read(timelineRepository, "user");
+
+        // then
+        assertEquals(Arrays.asList(pushedPost, builtPost), result);
+    }
+
+    @Test
+    public void shouldNotRepeatPushedPostReadAgainWhileTimelineWasBuilt() {
+        // given
+        Post builtPost = createPost("built");
+        Post pushedPost = createPost("pushed");
+        Post decodedPushedPost = new Post(pushedPost.getId(), pushedPost.getText(), author, pushedPost.getDateTime());
+
+        // when
+        timelineRepository.findByUserName("user", () -> {
+            timelineRepository.push("user", pushedPost);
+            return Arrays.asList(decodedPushedPost, builtPost);
+        });
+        List<Post> result = read(timelineRepository, "user");
+
+        // then
+        assertEquals(2, result.size());
+        assertSame(pushedPost, result.get(0));
+        assertSame(builtPost, result.get(1));
+    }
+
+    @Test
+    public void shouldKeepPostsInIdOrderWhenPushedOutOfOrder() {
+        // given
+        Post oldPost = createPost("old");
+        Post newPost = createPost("new");
+        Post newestPost = createPost("newest");
+        timelineRepository.findByUserName("user", () -> Arrays.asList(oldPost));
+
+        // when
+        timelineRepository.push("user", newestPost);
+        timelineRepository.push("user", newPost);
+        List<Post> result = read(timelineRepository, "user");
+
+        // then
+        assertEquals(Arrays.asList(newestPost, newPost), result);
+    }
+
+    @Test
+    public void shouldIgnorePostPushedTwice() {
+        // given
+        Post oldPost = createPost("old");
+        Post newPost = createPost("new");
+        timelineRepository.findByUserName("user", () -> Arrays.asList(oldPost));
+
+        // when
+        timelineRepository.push("user", newPost);
+        timelineRepository.push("user", newPost);
+        List<Post> result = read(timelineRepository, "user");
+
+        // then
+        assertEquals(Arrays.asList(newPost, oldPost), result);
+    }
+
+    @Test
+    public void shouldNotKeepTimelineBuiltWhileItWasRemoved() {
+        // given
+        Post builtPost = createPost("built");
+
+        // when
+        List<Post> result = timelineRepository.findByUserName("user", () -> {
+            timelineRepository.remove("user");
+            return Arrays.asList(builtPost);
+        });
+
+        // then
+        assertEquals(Arrays.asList(builtPost), result);
+        assertFalse(isMaterialized(timelineRepository, "user"));
+    }
+
+    @Test
+    public void shouldForgetRemovedTimeline() {
+        // given
+        timelineRepository.findByUserName("user", () -> Arrays.asList(createPost("post")));
+
+        // when
+        timelineRepository.remove("user");
+
+        // then
+        assertFalse(isMaterialized(timelineRepository, "user"));
+    }
+
+    @Test
+    public void shouldEvictTimelinesBeyondMemoryBudget() {
+        // given
+        TimelineRepositoryImpl boundedRepository = new TimelineRepositoryImpl(2, 2 * (160 + 8));
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        boundedRepository.bindTo(meterRegistry);
+
+        // when
+        boundedRepository.findByUserName("user1", () -> Arrays.asList(createPost("post1")));
+        boundedRepository.findByUserName("user2", () -> Arrays.asList(createPost("post2")));
+        boundedRepository.findByUserName("user3", () -> Arrays.asList(createPost("post3")));
+
+        // then
+        long materializedTimelines = Stream.of("user1", "user2", "user3")
+                .filter(userName -> isMaterialized(boundedRepository, userName))
+                .count();
+        assertTrue(materializedTimelines < 3);
+        assertTrue(meterRegistry.get("cache.evictions")
+                .functionCounter()
+                .count() >= 1);
+    }
+
+    @Test
+    public void shouldWeighPostsOfStoreThatDoesNotShareThem() {
+        // given
+        long budget = 4 * (160 + 8);
+        TimelineRepositoryImpl sharingRepository = new TimelineRepositoryImpl(2, budget, "heap");
+        TimelineRepositoryImpl decodingRepository = new TimelineRepositoryImpl(2, budget, "columnar");
+
+        // when
+        for (String userName : Arrays.asList("user1", "user2", "user3")) {
+            Post post = createPost("post of " + userName);
+            sharingRepository.findByUserName(userName, () -> Arrays.asList(post));
+            decodingRepository.findByUserName(userName, () -> Arrays.asList(post));
+        }
+
+        // then
+        assertEquals(3, countMaterialized(sharingRepository, "user1", "user2", "user3"));
+        assertTrue(countMaterialized(decodingRepository, "user1", "user2", "user3") < 3);
+    }
+
+    private static List<Post> read(TimelineRepository repository, String userName) {
+        return repository.findByUserName(userName, () -> {
+            throw new AssertionError("timeline of " + userName + " is not materialized");
+        });
+    }
+
+    /**
+     * Materializes an empty timeline when there is none, as reading the timeline of the user would.
+     */
+    private static boolean isMaterialized(TimelineRepository repository, String userName) {
+        AtomicBoolean built = new AtomicBoolean();
+        repository.findByUserName(userName, () -> {
+            built.set(true);
+            return Collections.emptyList();
+        });
+        return !built.get();
+    }
+
+    private static long countMaterialized(TimelineRepository repository, String... userNames) {
+        return Stream.of(userNames)
+                .filter(userName -> isMaterialized(repository, userName))
+                .count();
+    }
+
+    private Post createPost(String text) {
+        return new Post(++lastId, text, author, LocalDateTime.now());
+    }
+}
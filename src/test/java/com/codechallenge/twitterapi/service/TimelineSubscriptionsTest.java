@@ -0,0 +1,205 @@
+package com.codechallenge.twitterapi.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codechallenge.twitterapi.dto.PostDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+import com.codechallenge.twitterapi.service.TimelineSubscriptions.OverflowPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimelineSubscriptionsTest {
+    private static final User AUTHOR = new User("Author");
+
+    private final List<Runnable> pendingSends = new ArrayList<>();
+
+    @Test
+    public void shouldSendMissedPostsFirstAndThenPublishedOnesWithoutDuplicates() {
+        // given
+        TimelineSubscriptions subscriptions = new TimelineSubscriptions(4, OverflowPolicy.DISCONNECT, Runnable::run);
+        RecordingSink sink = new RecordingSink();
+        TimelineSubscriptions.Subscription subscription = subscriptions.subscribe("User", sink);
+        subscriptions.publish("user", createPost(3));
+
+        // when
+        subscription.start(Arrays.asList(createPost(2), createPost(3)));
+        subscriptions.publish("User", createPost(4));
+
+        // then
+        assertEquals(Arrays.asList(2L, 3L, 4L), sink.ids);
+    }
+
+    @Test
+    public void shouldDisconnectSubscriberWhoseQueueIsFull() {
+        // given
+        TimelineSubscriptions subscriptions = new TimelineSubscriptions(2, OverflowPolicy.DISCONNECT,
+                pendingSends::add);
+        RecordingSink sink = new RecordingSink();
+        subscriptions.subscribe("User", sink)
+                .start(Collections.emptyList());
+
+        // when
+        for (long id = 1; id <= 3; id++) {
+            subscriptions.publish("User", createPost(id));
+        }
+        subscriptions.publish("User", createPost(4));
+        pendingSends.forEach(Runnable::run);
+
+        // then
+        assertTrue(sink.closed);
+        assertTrue(sink.ids.isEmpty());
+    }
+
+    @Test
+    public void shouldDropOldestPostsOfSubscriberWhoseQueueIsFull() {
+        // given
+        TimelineSubscriptions subscriptions = new TimelineSubscriptions(2, OverflowPolicy.DROP_OLDEST,
+                pendingSends::add);
+        RecordingSink sink = new RecordingSink();
+        subscriptions.subscribe("User", sink)
+                .start(Collections.emptyList());
+
+        // when
+        for (long id = 1; id <= 4; id++) {
+            subscriptions.publish("User", createPost(id));
+        }
+        pendingSends.forEach(Runnable::run);
+
+        // then
+        assertFalse(sink.closed);
+        assertEquals(Arrays.asList(3L, 4L), sink.ids);
+    }
+
+    @Test
+    public void shouldStopSendingToCancelledSubscription() {
+        // given
+        TimelineSubscriptions subscriptions = new TimelineSubscriptions(2, OverflowPolicy.DISCONNECT, Runnable::run);
+        RecordingSink sink = new RecordingSink();
+        TimelineSubscriptions.Subscription subscription = subscriptions.subscribe("User", sink);
+        subscription.start(Collections.emptyList());
+
+        // when
+        subscription.cancel();
+        subscriptions.publish("User", createPost(1));
+
+        // then
+        assertTrue(sink.ids.isEmpty());
+    }
+
+    @Test
+    public void shouldSendPostPublishedAfterNewerMissedOne() {
+        // given
+        TimelineSubscriptions subscriptions = new TimelineSubscriptions(4, OverflowPolicy.DISCONNECT, Runnable::run);
+        RecordingSink sink = new RecordingSink();
+        TimelineSubscriptions.Subscription subscription = subscriptions.subscribe("User", sink);
+
+        // when
+        subscription.start(Arrays.asList(createPost(5), createPost(7)));
+        subscriptions.publish("User", createPost(6));
+        subscriptions.publish("User", createPost(7));
+
+        // then
+        assertEquals(Arrays.asList(5L, 7L, 6L), sink.ids);
+    }
+
+    @Test
+    public void shouldStopSenderThreadsWhenClosed() {
+        // given
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        TimelineSubscriptions subscriptions = new TimelineSubscriptions(4, OverflowPolicy.DISCONNECT, sender);
+        RecordingSink sink = new RecordingSink();
+        subscriptions.subscribe("User", sink)
+                .start(Collections.emptyList());
+
+        // when
+        subscriptions.close();
+        subscriptions.publish("User", createPost(1));
+
+        // then
+        assertTrue(sender.isShutdown());
+        assertTrue(sink.ids.isEmpty());
+    }
+
+    @Test
+    public void shouldDropStalledSubscriberAndKeepSendingToOthers() throws Exception {
+        // given
+        ThreadPoolExecutor sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        TimelineSubscriptions subscriptions = new TimelineSubscriptions(4, OverflowPolicy.DISCONNECT, sender, 10);
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch stalledClosed = new CountDownLatch(1);
+        subscriptions.subscribe("Stalled", new TimelineSink() {
+            @Override
+            public void send(PostDTO post) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread()
+                            .interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+                stalledClosed.countDown();
+            }
+        })
+                .start(Collections.emptyList());
+        CountDownLatch received = new CountDownLatch(1);
+        subscriptions.subscribe("Other", new RecordingSink() {
+            @Override
+            public void send(PostDTO post) {
+                received.countDown();
+            }
+        })
+                .start(Collections.emptyList());
+        subscriptions.publish("Stalled", createPost(1));
+        Thread.sleep(50);
+
+        // when
+        subscriptions.dropStalledSubscribers();
+        subscriptions.publish("Other", createPost(2));
+
+        // then
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals(1, stalledClosed.getCount());
+        unblock.countDown();
+        assertTrue(stalledClosed.await(5, TimeUnit.SECONDS));
+        sender.shutdown();
+    }
+
+    private static Post createPost(long id) {
+        return new Post(id, "post " + id, AUTHOR, LocalDateTime.now());
+    }
+
+    private static class RecordingSink implements TimelineSink {
+        private final List<Long> ids = new ArrayList<>();
+
+        private boolean closed;
+
+        @Override
+        public void send(PostDTO post) {
+            ids.add(post.getId());
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
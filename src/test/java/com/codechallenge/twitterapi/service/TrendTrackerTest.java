@@ -0,0 +1,149 @@
+package com.codechallenge.twitterapi.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.codechallenge.twitterapi.dto.TrendDTO;
+import com.codechallenge.twitterapi.dto.TrendsDTO;
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrendTrackerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2018-03-24T12:00:00Z"));
+
+    private final TrendTracker trendTracker = new TrendTracker(new MutationPublisher(), 1024, 20, clock);
+
+    @Test
+    public void shouldExtractHashtagsAndMentions() {
+        // when
+        List<String> tags = new ArrayList<>(TrendTracker.tags("#Java and @alice_1, #java again; mail@example.com # #"));
+
+        // then
+        assertEquals(Arrays.asList("#java", "@alice_1"), tags);
+    }
+
+    @Test
+    public void shouldRankTagsOfEachWindowByCount() {
+        // given
+        post("#java @bob");
+        post("#java #spring");
+        post("#java #spring");
+
+        // when
+        TrendsDTO trends = trendTracker.findTrends(2);
+
+        // then
+        assertEquals(Arrays.asList("#java=3", "#spring=2"), format(trends.getLast5Minutes()));
+        assertEquals(format(trends.getLast5Minutes()), format(trends.getLastHour()));
+        assertEquals(format(trends.getLast5Minutes()), format(trends.getLast24Hours()));
+    }
+
+    @Test
+    public void shouldForgetTagsOnceTheyLeaveTheWindow() {
+        // given
+        post("#breakfast");
+        clock.advance(TimeUnit.MINUTES.toMillis(10));
+        post("#lunch");
+
+        // when
+        TrendsDTO trends = trendTracker.findTrends(10);
+
+        // then
+        assertEquals(Arrays.asList("#lunch=1"), format(trends.getLast5Minutes()));
+        assertEquals(Arrays.asList("#breakfast=1", "#lunch=1"), format(trends.getLastHour()));
+
+        clock.advance(TimeUnit.HOURS.toMillis(2));
+        assertTrue(trendTracker.findTrends(10)
+                .getLastHour()
+                .isEmpty());
+        assertEquals(2, trendTracker.findTrends(10)
+                .getLast24Hours()
+                .size());
+    }
+
+    @Test
+    public void shouldIgnorePostsOlderThanTheWindow() {
+        // given
+        clock.advance(TimeUnit.HOURS.toMillis(1));
+        trendTracker.onPostSaved(new Post(1, "#late", new User("User"), LocalDateTime.now(clock)
+                .minusMinutes(30)));
+
+        // when
+        TrendsDTO trends = trendTracker.findTrends(10);
+
+        // then
+        assertTrue(trends.getLast5Minutes()
+                .isEmpty());
+        assertEquals(Arrays.asList("#late=1"), format(trends.getLastHour()));
+    }
+
+    @Test
+    public void shouldFindHeavyHittersAmongManyDistinctTags() {
+        // given
+        for (int i = 0; i < 10000; i++) {
+            post("#tag" + i + (i % 10 == 0 ? " #popular" : "") + (i % 100 == 0 ? " #known" : ""));
+        }
+
+        // when
+        List<TrendDTO> trends = trendTracker.findTrends(2)
+                .getLast5Minutes();
+
+        // then
+        assertEquals("#popular", trends.get(0)
+                .getTag());
+        assertTrue(trends.get(0)
+                .getCount() >= 1000);
+        assertEquals("#known", trends.get(1)
+                .getTag());
+    }
+
+    private void post(String text) {
+        trendTracker.onPostSaved(new Post(1, text, new User("User"), LocalDateTime.now(clock)));
+    }
+
+    private static List<String> format(List<TrendDTO> trends) {
+        return trends.stream()
+                .map(trend -> trend.getTag() + "=" + trend.getCount())
+                .collect(Collectors.toList());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(long millis) {
+            instant = instant.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
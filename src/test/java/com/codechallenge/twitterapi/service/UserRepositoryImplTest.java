@@ -26,8 +26,11 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class UserRepositoryImplTest {
 
+    private UserNameDictionary userNames = new UserNameDictionary();
+
     @InjectMocks
-    private UserRepository userRepository = new UserRepositoryImpl();
+    private UserRepository userRepository = new UserRepositoryImpl(new FollowGraph(userNames), userNames,
+            new MutationPublisher());
 
     @Mock
     private Map<String, User> allUsers;
@@ -108,7 +111,7 @@ public class UserRepositoryImplTest {
     public void shouldReturnEmptyListWhenUserDontFollowOthers() {
         // given
         User user = new User("user");
-        when(allUsers.get(user.getName())).thenReturn(user);
+        userRepository.follow(new User("other"), user);
 
         // when
         List<User> result = userRepository.findAllFollowedUsers(user.getName());
@@ -125,15 +128,61 @@ public class UserRepositoryImplTest {
         User user2 = new User(userName);
         User user3 = new User("user3");
 
-        user2.follow(user1);
-        user2.follow(user3);
-        when(allUsers.get(userName)).thenReturn(user2);
+        userRepository.follow(user2, user1);
+        userRepository.follow(user2, user3);
+        when(allUsers.get(user1.getName())).thenReturn(user1);
+        when(allUsers.get(user3.getName())).thenReturn(user3);
 
         // when
         List<User> result = userRepository.findAllFollowedUsers(user2.getName());
 
         // then
-        verify(allUsers).get(userName);
-        assertEquals(2, result.size());
+        verify(allUsers).get(user1.getName());
+        assertEquals(Arrays.asList(user1, user3), result);
+    }
+
+    @Test
+    public void shouldIgnoreRepeatedAndMutualFollows() {
+        // given
+        User user1 = new User("user1");
+        User user2 = new User("User2");
+        when(allUsers.get("user2")).thenReturn(user2);
+
+        // when
+        boolean firstFollow = userRepository.follow(user1, user2);
+        boolean repeatedFollow = userRepository.follow(user1, new User("USER2"));
+        userRepository.follow(user2, user1);
+
+        // then
+        assertTrue(firstFollow);
+        assertFalse(repeatedFollow);
+        assertEquals(Arrays.asList(user2), userRepository.findAllFollowedUsers(user1.getName()));
+        assertEquals(Arrays.asList(user2), userRepository.findAllFollowers(user1.getName()));
+    }
+
+    @Test
+    public void shouldPageThroughFollowersAndCountThem() {
+        // given
+        User followed = new User("followed");
+        User[] followers = new User[5];
+        for (int i = 0; i < followers.length; i++) {
+            followers[i] = new User("follower" + i);
+            when(allUsers.get(followers[i].getName())).thenReturn(followers[i]);
+            userRepository.follow(followers[i], followed);
+        }
+
+        // when
+        List<User> firstPage = userRepository.findFollowers(followed.getName(), null, 2);
+        List<User> secondPage = userRepository.findFollowers(followed.getName(), "Follower1", 2);
+        List<User> lastPage = userRepository.findFollowers(followed.getName(), "follower3", 2);
+
+        // then
+        assertEquals(Arrays.asList(followers[0], followers[1]), firstPage);
+        assertEquals(Arrays.asList(followers[2], followers[3]), secondPage);
+        assertEquals(Collections.singletonList(followers[4]), lastPage);
+        assertEquals(5, userRepository.countFollowers(followed.getName()));
+        assertEquals(0, userRepository.countFollowedUsers(followed.getName()));
+        assertEquals(1, userRepository.countFollowedUsers("follower4"));
+        assertEquals(0, userRepository.countFollowers("unknown"));
     }
 }
@@ -0,0 +1,82 @@
+package com.codechallenge.twitterapi.service;
+
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.codechallenge.twitterapi.model.Post;
+import com.codechallenge.twitterapi.model.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class UserVersionsTest {
+
+    private final FollowGraph followGraph = new FollowGraph(new UserNameDictionary());
+
+    private final UserVersions userVersions = new UserVersions(followGraph, new MutationPublisher());
+
+    @Test
+    public void shouldChangePostsVersionOnlyWhenUserPosts() {
+        // given
+        String version = userVersions.postsVersion("User");
+
+        // when
+        userVersions.onPostSaved(new Post(1, "post of other user", new User("OtherUser"), LocalDateTime.now()));
+        String unchanged = userVersions.postsVersion("User");
+        userVersions.onPostSaved(new Post(2, "post", new User("User"), LocalDateTime.now()));
+
+        // then
+        assertEquals(version, unchanged);
+        assertNotEquals(version, userVersions.postsVersion("User"));
+    }
+
+    @Test
+    public void shouldChangeTimelineVersionWhenFollowedUserPostsOrFollowedSetChanges() {
+        // given
+        follow("User", "OtherUser");
+        String version = userVersions.timelineVersion("User");
+
+        // when
+        userVersions.onPostSaved(new Post(1, "post", new User("OtherUser"), LocalDateTime.now()));
+        String afterPost = userVersions.timelineVersion("User");
+        follow("User", "ThirdUser");
+
+        // then
+        assertNotEquals(version, afterPost);
+        assertNotEquals(afterPost, userVersions.timelineVersion("User"));
+    }
+
+    @Test
+    public void shouldChangeFollowedUsersVersionWhenFollowedUserFollowsSomeoneElse() {
+        // given
+        follow("User", "OtherUser");
+        String version = userVersions.followedUsersVersion("User");
+
+        // when
+        follow("OtherUser", "ThirdUser");
+
+        // then
+        assertNotEquals(version, userVersions.followedUsersVersion("User"));
+    }
+
+    @Test
+    public void shouldKeepCountersOfUsersBeyondFirstPage() {
+        // given
+        for (int i = 0; i < 2000; i++) {
+            followGraph.intern("user" + i);
+        }
+        String version = userVersions.postsVersion("user1999");
+
+        // when
+        userVersions.onPostSaved(new Post(1, "post", new User("user1999"), LocalDateTime.now()));
+
+        // then
+        assertEquals(version.substring(0, version.length() - 1) + "1", userVersions.postsVersion("user1999"));
+    }
+
+    private void follow(String userName, String followedUserName) {
+        followGraph.follow(userName, followedUserName);
+        userVersions.onFollow(new User(userName), new User(followedUserName));
+    }
+}